@@ -32,10 +32,14 @@
  */
 package de.tud.cs.se.flashcards.model;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.swing.event.ListDataEvent;
 import javax.swing.event.ListDataListener;
 
 import de.tud.cs.st.constraints.NotNull;
+import de.tud.cs.st.constraints.Null;
 import de.tud.cs.util.Arrays;
 
 
@@ -56,6 +60,23 @@ public abstract class AbstractFlashcardSeries implements FlashcardSeries {
     private ListDataListener[] listeners = NO_LISTENERS;
 
 
+    // The nesting depth of the current batch (see FlashcardSeries#beginBatch).
+    private int batchDepth = 0;
+
+
+    // The events of the current batch in the order in which they happened; consecutive events
+    // that can be described by a single event are merged.
+    private final List<ListDataEvent> pendingEvents = new ArrayList<>();
+
+
+    // True if the listeners have to be informed that all cards were removed and added again.
+    private boolean pendingReset = false;
+
+
+    // The size of this series when the current batch was started.
+    private int batchStartSize;
+
+
     /*
      * (non-Javadoc)
      *
@@ -92,6 +113,133 @@ public abstract class AbstractFlashcardSeries implements FlashcardSeries {
     }
 
 
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.tud.cs.se.flashcards.model.FlashcardSeries#beginBatch()
+     */
+    public void beginBatch() {
+
+        if (batchDepth == 0)
+            batchStartSize = getSize();
+        batchDepth++;
+    }
+
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.tud.cs.se.flashcards.model.FlashcardSeries#endBatch()
+     */
+    public void endBatch() throws IllegalStateException {
+
+        if (batchDepth == 0)
+            throw new IllegalStateException("no batch was started");
+
+        batchDepth--;
+        if (batchDepth > 0)
+            return;
+
+        ListDataEvent[] events = pendingEvents.toArray(new ListDataEvent[pendingEvents.size()]);
+        pendingEvents.clear();
+        if (pendingReset) {
+            pendingReset = false;
+            if (batchStartSize > 0)
+                fireIntervalRemoved(new ListDataEvent(
+                        this,
+                        ListDataEvent.INTERVAL_REMOVED,
+                        0,
+                        batchStartSize - 1));
+            if (getSize() > 0)
+                fireIntervalAdded(new ListDataEvent(
+                        this,
+                        ListDataEvent.INTERVAL_ADDED,
+                        0,
+                        getSize() - 1));
+            return;
+        }
+        for (ListDataEvent e : events) {
+            if (e.getType() == ListDataEvent.INTERVAL_ADDED)
+                fireIntervalAdded(e);
+            else if (e.getType() == ListDataEvent.INTERVAL_REMOVED)
+                fireIntervalRemoved(e);
+            else
+                fireContentsUpdated(e);
+        }
+    }
+
+
+    /**
+     * @return <code>true</code> if the event was held back.
+     */
+    private boolean holdBack(@NotNull ListDataEvent e) {
+
+        if (batchDepth == 0)
+            return false;
+
+        if (pendingReset)
+            return true;
+
+        int last = pendingEvents.size() - 1;
+        ListDataEvent mergedEvent = null;
+        if (last >= 0)
+            mergedEvent = merge(pendingEvents.get(last), e);
+        if (mergedEvent != null) {
+            pendingEvents.set(last, mergedEvent);
+        } else if (last < 0 || getSourceModel() == this) {
+            // The listeners of the source model (e.g., the journal) get one event per run;
+            // resetting the source model would make them process every card.
+            pendingEvents.add(e);
+        } else {
+            // The events of a view (e.g., a sorted series) are not necessarily valid when the
+            // batch is ended; hence, the listeners rebuild their state.
+            pendingEvents.clear();
+            pendingReset = true;
+        }
+        return true;
+    }
+
+
+    /**
+     * Merges the given events, where the second event describes a change after the first change.
+     *
+     * @return The event that describes both changes or <code>null</code> if the changes cannot be
+     *         described by a single event.
+     */
+    static @Null ListDataEvent merge(@NotNull ListDataEvent first, @NotNull ListDataEvent second) {
+
+        if (first.getSource() != second.getSource())
+            return null;
+
+        int a = first.getIndex0();
+        int b = first.getIndex1();
+        int x = second.getIndex0();
+        int y = second.getIndex1();
+        int count = y - x + 1;
+        int type = first.getType();
+        if (type == ListDataEvent.INTERVAL_ADDED) {
+            if (second.getType() == ListDataEvent.INTERVAL_ADDED && a <= x && x <= b + 1)
+                // the new cards are inserted in (or right after) the block of added cards
+                return new ListDataEvent(first.getSource(), type, a, b + count);
+            if (second.getType() == ListDataEvent.CONTENTS_CHANGED && a <= x && y <= b)
+                // the listeners will get the current state of the added cards
+                return first;
+        } else if (type == ListDataEvent.INTERVAL_REMOVED) {
+            if (second.getType() == ListDataEvent.INTERVAL_REMOVED && x <= a && a <= y + 1)
+                // the removed cards are directly before or after the gap
+                return new ListDataEvent(first.getSource(), type, x, y + (b - a + 1));
+        } else {
+            if (second.getType() == ListDataEvent.CONTENTS_CHANGED && x <= b + 1 && a <= y + 1)
+                return new ListDataEvent(
+                        first.getSource(),
+                        type,
+                        Math.min(a, x),
+                        Math.max(b, y));
+        }
+        return null;
+    }
+
+
     final void fireIntervalAdded(
             @NotNull
                     Object source, int index0, int index1
@@ -99,7 +247,8 @@ public abstract class AbstractFlashcardSeries implements FlashcardSeries {
 
         ListDataEvent e = new ListDataEvent(source, ListDataEvent.INTERVAL_ADDED, index0, index1);
 
-        fireIntervalAdded(e);
+        if (!holdBack(e))
+            fireIntervalAdded(e);
     }
 
 
@@ -119,7 +268,8 @@ public abstract class AbstractFlashcardSeries implements FlashcardSeries {
 
         ListDataEvent e = new ListDataEvent(source, ListDataEvent.INTERVAL_REMOVED, index0, index1);
 
-        fireIntervalRemoved(e);
+        if (!holdBack(e))
+            fireIntervalRemoved(e);
     }
 
 
@@ -139,7 +289,8 @@ public abstract class AbstractFlashcardSeries implements FlashcardSeries {
 
         ListDataEvent e = new ListDataEvent(source, ListDataEvent.CONTENTS_CHANGED, index0, index1);
 
-        fireContentsUpdated(e);
+        if (!holdBack(e))
+            fireContentsUpdated(e);
     }
 
 
@@ -152,4 +303,33 @@ public abstract class AbstractFlashcardSeries implements FlashcardSeries {
         }
     }
 
+
+    /**
+     * Splits the given indices into runs of consecutive indices; used to fire one event per run
+     * instead of one event per index.
+     *
+     * @param indices
+     *           indices sorted in ascending order; no index appears twice.
+     * @return The positions (w.r.t. the given array) at which the runs start followed by the length
+     *         of the array; i.e., the i-th run consists of the indices stored at the positions
+     *         <code>runs[i]</code> to <code>runs[i + 1] - 1</code>.
+     */
+    static @NotNull int[] runs(@NotNull int[] indices) {
+
+        int runsCount = 0;
+        for (int i = 0; i < indices.length; i++) {
+            if (i == 0 || indices[i - 1] + 1 != indices[i])
+                runsCount++;
+        }
+
+        int[] runs = new int[runsCount + 1];
+        int run = 0;
+        for (int i = 0; i < indices.length; i++) {
+            if (i == 0 || indices[i - 1] + 1 != indices[i])
+                runs[run++] = i;
+        }
+        runs[runsCount] = indices.length;
+        return runs;
+    }
+
 }
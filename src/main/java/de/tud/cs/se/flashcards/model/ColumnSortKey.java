@@ -0,0 +1,65 @@
+/*  License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische
+ *    Universität Darmstadt nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.model;
+
+import de.tud.cs.st.constraints.NotNull;
+
+/**
+ * A sort key whose values are the values of a column (see {@link FlashcardColumns}); hence, the
+ * keys of the cards of a series can be computed without creating flashcard objects (see
+ * {@link FlashcardSeries#getColumns(int[], int[][])}).
+ *
+ * @author Michael Eichberg
+ */
+final class ColumnSortKey implements FlashcardSortKey {
+
+    final int column;
+
+
+    ColumnSortKey(int column) {
+
+        this.column = column;
+    }
+
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * de.tud.cs.se.flashcards.model.FlashcardSortKey#key(de.tud.cs.se.flashcards.model.Flashcard)
+     */
+    public long key(@NotNull Flashcard flashcard) {
+
+        return FlashcardColumns.value(flashcard, column);
+    }
+}
@@ -0,0 +1,245 @@
+/*  License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische
+ *    Universität Darmstadt nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import de.tud.cs.st.constraints.NotNull;
+
+
+/**
+ * Stores the flashcards of a {@link PagedFlashcardSeries} in primitive columns (see
+ * {@link FlashcardColumns}) on the heap; the texts are shared with the flashcard objects.
+ * <p>
+ * A series that uses this storage only creates flashcard objects for the cards that are currently
+ * used (e.g., shown by a window). All other cards require only the few bytes of their columns and
+ * their texts; sorting and filtering the series (see
+ * {@link FlashcardSeries#getColumns(int[], int[][])} and
+ * {@link FlashcardSeries#contains(int, String)}) only touches the columns and texts that are
+ * needed.
+ * </p>
+ *
+ * @author Michael Eichberg
+ */
+public final class ColumnarFlashcardStorage implements FlashcardStorage {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+
+    private int rowsCount = 0;
+
+
+    // columns[c][row] is the value of the column c of the card stored in the row; the creation id
+    // of a card is its row and is not stored.
+    private final int[][] columns = new int[FlashcardColumns.COLUMNS_COUNT][];
+
+
+    private String[] questions;
+
+
+    private String[] answers;
+
+
+    private final BitSet removedRows = new BitSet();
+
+
+    public ColumnarFlashcardStorage() {
+
+        this(INITIAL_CAPACITY);
+    }
+
+
+    private ColumnarFlashcardStorage(int capacity) {
+
+        for (int c = 0; c < columns.length; c++) {
+            if (c != FlashcardColumns.CREATION_ID)
+                columns[c] = new int[capacity];
+        }
+        questions = new String[capacity];
+        answers = new String[capacity];
+    }
+
+
+    /**
+     * Creates a new storage that contains copies of the cards of the given series. The copies get
+     * new creation ids (see {@link PagedFlashcardSeries}).
+     */
+    public static @NotNull ColumnarFlashcardStorage of(@NotNull FlashcardSeries flashcards) {
+
+        int size = flashcards.getSize();
+        ColumnarFlashcardStorage storage = new ColumnarFlashcardStorage(
+                Math.max(INITIAL_CAPACITY, size));
+        // the last card of the series is stored in the first row
+        for (int i = size - 1; i >= 0; i--) {
+            storage.set(storage.rowsCount++, flashcards.getElementAt(i));
+        }
+        return storage;
+    }
+
+
+    private void checkRow(int row) throws IndexOutOfBoundsException {
+
+        if (row < 0 || row >= rowsCount)
+            throw new IndexOutOfBoundsException(row + " >= " + rowsCount);
+    }
+
+
+    private void ensureCapacity(int capacity) {
+
+        if (capacity <= questions.length)
+            return;
+
+        int newCapacity = Math.max(capacity, questions.length * 2);
+        for (int c = 0; c < columns.length; c++) {
+            if (columns[c] != null)
+                columns[c] = Arrays.copyOf(columns[c], newCapacity);
+        }
+        questions = Arrays.copyOf(questions, newCapacity);
+        answers = Arrays.copyOf(answers, newCapacity);
+    }
+
+
+    private void set(int row, @NotNull Flashcard flashcard) {
+
+        for (int c = 0; c < columns.length; c++) {
+            if (columns[c] != null)
+                columns[c][row] = FlashcardColumns.value(flashcard, c);
+        }
+        questions[row] = flashcard.getQuestion();
+        answers[row] = flashcard.getAnswer();
+    }
+
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.tud.cs.se.flashcards.model.FlashcardStorage#getRowsCount()
+     */
+    public int getRowsCount() {
+
+        return rowsCount;
+    }
+
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.tud.cs.se.flashcards.model.FlashcardStorage#load(int)
+     */
+    public @NotNull Flashcard load(int row) throws IndexOutOfBoundsException {
+
+        checkRow(row);
+        return new Flashcard(
+                row,
+                questions[row],
+                answers[row],
+                FlashcardColumns.decodeDate(columns[FlashcardColumns.CREATED][row]),
+                FlashcardColumns.decodeDate(columns[FlashcardColumns.REMEMBERED][row]),
+                FlashcardColumns.decodeDate(columns[FlashcardColumns.NOT_REMEMBERED][row]),
+                columns[FlashcardColumns.SHOWN_COUNT][row],
+                columns[FlashcardColumns.NOT_REMEMBERED_COUNT][row],
+                columns[FlashcardColumns.REMEMBERED_IN_A_ROW_COUNT][row]);
+    }
+
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.tud.cs.se.flashcards.model.FlashcardStorage#getColumnValue(int, int)
+     */
+    public int getColumnValue(int row, int column) throws IndexOutOfBoundsException {
+
+        checkRow(row);
+        if (column == FlashcardColumns.CREATION_ID)
+            return row;
+        else
+            return columns[column][row];
+    }
+
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.tud.cs.se.flashcards.model.FlashcardStorage#contains(int, java.lang.String)
+     */
+    public boolean contains(int row, @NotNull String searchTerm) throws IndexOutOfBoundsException {
+
+        checkRow(row);
+        return questions[row].contains(searchTerm) || answers[row].contains(searchTerm);
+    }
+
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.tud.cs.se.flashcards.model.FlashcardStorage#append(de.tud.cs.se.flashcards.model.
+     * Flashcard)
+     */
+    public int append(@NotNull Flashcard flashcard) {
+
+        int row = rowsCount;
+        ensureCapacity(row + 1);
+        set(row, flashcard);
+        removedRows.set(row);
+        rowsCount++;
+        return row;
+    }
+
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.tud.cs.se.flashcards.model.FlashcardStorage#update(int,
+     * de.tud.cs.se.flashcards.model.Flashcard)
+     */
+    public void update(int row, @NotNull Flashcard flashcard) throws IndexOutOfBoundsException {
+
+        checkRow(row);
+        set(row, flashcard);
+    }
+
+
+    public boolean isRemoved(int row) throws IndexOutOfBoundsException {
+
+        checkRow(row);
+        return removedRows.get(row);
+    }
+
+
+    public void setRemoved(int row, boolean removed) throws IndexOutOfBoundsException {
+
+        checkRow(row);
+        removedRows.set(row, removed);
+    }
+}
@@ -34,6 +34,8 @@ package de.tud.cs.se.flashcards.model;
 
 import java.util.Vector;
 
+import de.tud.cs.util.Arrays;
+
 
 /**
  * Manages a list of commands.
@@ -50,20 +52,29 @@ public final class CommandHistory {
     private int commandIndex = -1; // index of the last executed command
 
 
-    private CommandHistoryChangedListener listener = null;
+    private static final CommandHistoryChangedListener[] NO_LISTENERS =
+            new CommandHistoryChangedListener[0];
+
+
+    // Copy-on-write; a history may be shared by multiple windows (of the same document).
+    private CommandHistoryChangedListener[] listeners = NO_LISTENERS;
 
 
-    public void setCommandHistoryChangedListener(CommandHistoryChangedListener listener) {
+    public void addCommandHistoryChangedListener(CommandHistoryChangedListener listener) {
+
+        this.listeners = Arrays.append(this.listeners, listener);
+    }
+
 
-        assert this.listener == null;
+    public void removeCommandHistoryChangedListener(CommandHistoryChangedListener listener) {
 
-        this.listener = listener;
+        this.listeners = Arrays.remove(this.listeners, listener, NO_LISTENERS);
     }
 
 
     private void notifyListener() {
 
-        if (listener != null) {
+        for (CommandHistoryChangedListener listener : listeners) {
             listener.historyChanged(this);
         }
     }
@@ -33,6 +33,9 @@
 package de.tud.cs.se.flashcards.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 
 import de.tud.cs.st.constraints.NotNull;
@@ -77,8 +80,9 @@ public final class DefaultFlashcardSeries extends AbstractFlashcardSeries {
         // class' (public) interface.
         public void cardChanged(Flashcard flashcard) {
 
-            int index = flashcards.indexOf(flashcard);
-            fireContentsUpdated(DefaultFlashcardSeries.this, index, index);
+            int index = indexOf(flashcard);
+            if (index != -1)
+                fireContentsUpdated(DefaultFlashcardSeries.this, index, index);
         }
     };
 
@@ -87,6 +91,16 @@ public final class DefaultFlashcardSeries extends AbstractFlashcardSeries {
     private final List<Flashcard> flashcards = new ArrayList<>();
 
 
+    // The positions of the flashcards; the index of a flashcard is its position minus the origin.
+    // Adding cards at the beginning (or at the end) of the list only updates the positions of the
+    // new cards and the origin. If cards are removed (or re-inserted in the middle of the list),
+    // only the positions of the following cards are updated; i.e., the cards whose indices changed.
+    private final IdentityHashMap<Flashcard, Integer> cardPositions = new IdentityHashMap<>();
+
+
+    private int origin = 0;
+
+
     // Used to assign a flashcard series unique id with every flashcard.
     private int nextCreationID = 0;
 
@@ -100,6 +114,72 @@ public final class DefaultFlashcardSeries extends AbstractFlashcardSeries {
     public void setNextCreationID(int nextCreationID) {
 
         assert nextCreationID >= 0;
+
+        this.nextCreationID = nextCreationID;
+    }
+
+
+    /**
+     * @return The index of the given flashcard or <code>-1</code> if the flashcard is not
+     *         contained in this series.
+     */
+    private int indexOf(@NotNull Flashcard flashcard) {
+
+        Integer position = cardPositions.get(flashcard);
+        if (position == null)
+            return -1;
+        else
+            return position - origin;
+    }
+
+
+    /**
+     * Records the positions of the given number of cards that were added at the beginning of the
+     * list.
+     */
+    private void cardsAddedAtTheBeginning(int count) {
+
+        origin -= count;
+        for (int i = 0; i < count; i++) {
+            cardPositions.put(flashcards.get(i), origin + i);
+        }
+    }
+
+
+    /**
+     * Discards the positions of the given cards that were removed from the beginning of the list.
+     */
+    private void cardsRemovedFromTheBeginning(@NotNull List<Flashcard> cards) {
+
+        origin += cards.size();
+        for (Flashcard flashcard : cards) {
+            cardPositions.remove(flashcard);
+        }
+    }
+
+
+    /**
+     * Discards the positions of the given cards and updates the positions of the cards that
+     * follow the first removed card, which was stored at the given index.
+     */
+    private void cardsRemoved(@NotNull List<Flashcard> cards, int index) {
+
+        for (Flashcard flashcard : cards) {
+            cardPositions.remove(flashcard);
+        }
+        cardsMoved(index);
+    }
+
+
+    /**
+     * Updates the positions of the cards starting with the card with the given index; called
+     * after cards were inserted at or removed from the given index.
+     */
+    private void cardsMoved(int index) {
+
+        for (int i = index; i < flashcards.size(); i++) {
+            cardPositions.put(flashcards.get(i), origin + i);
+        }
     }
 
 
@@ -109,6 +189,7 @@ public final class DefaultFlashcardSeries extends AbstractFlashcardSeries {
 
         flashcards.add(flashcard);
         flashcard.addObserver(observer);
+        cardPositions.put(flashcard, origin + flashcards.size() - 1);
     }
 
 
@@ -131,6 +212,7 @@ public final class DefaultFlashcardSeries extends AbstractFlashcardSeries {
 
                 flashcards.add(0, flashcard);
                 flashcard.addObserver(observer);
+                cardsAddedAtTheBeginning(1);
 
                 fireIntervalAdded(DefaultFlashcardSeries.this, 0, 0);
             }
@@ -140,6 +222,7 @@ public final class DefaultFlashcardSeries extends AbstractFlashcardSeries {
 
                 flashcard.removeObserver(observer);
                 flashcards.remove(0);
+                cardsRemovedFromTheBeginning(Collections.singletonList(flashcard));
 
                 fireIntervalRemoved(DefaultFlashcardSeries.this, 0, 0);
             }
@@ -148,6 +231,59 @@ public final class DefaultFlashcardSeries extends AbstractFlashcardSeries {
     }
 
 
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * de.tud.cs.se.flashcards.model.FlashcardSeries#createAddCardsCommand(de.tud.cs.se.flashcards.
+     * model.Flashcard[])
+     */
+    public Command createAddCardsCommand(@NotNull final Flashcard[] newFlashcards) {
+
+        return new Command() {
+
+            private final List<Flashcard> cards = Arrays.asList(newFlashcards.clone());
+
+            { // associate the cards with this list of flashcards
+                for (Flashcard flashcard : cards) {
+                    flashcard.setCreationID(nextCreationID++);
+                }
+            }
+
+
+            public void execute() {
+
+                if (cards.isEmpty())
+                    return;
+
+                flashcards.addAll(0, cards);
+                cardsAddedAtTheBeginning(cards.size());
+                for (Flashcard flashcard : cards) {
+                    flashcard.addObserver(observer);
+                }
+
+                fireIntervalAdded(DefaultFlashcardSeries.this, 0, cards.size() - 1);
+            }
+
+
+            public void unexecute() {
+
+                if (cards.isEmpty())
+                    return;
+
+                for (Flashcard flashcard : cards) {
+                    flashcard.removeObserver(observer);
+                }
+                flashcards.subList(0, cards.size()).clear();
+                cardsRemovedFromTheBeginning(cards);
+
+                fireIntervalRemoved(DefaultFlashcardSeries.this, 0, cards.size() - 1);
+            }
+
+        };
+    }
+
+
     /*
      * (non-Javadoc)
      *
@@ -157,39 +293,69 @@ public final class DefaultFlashcardSeries extends AbstractFlashcardSeries {
 
         return new Command() {
 
-            private final Flashcard[] oldFlashcards;
+            private final List<Flashcard> oldFlashcards;
+
+
+            // The runs of consecutive indices (see AbstractFlashcardSeries#runs).
+            private final int[] runs = runs(indices);
 
             {
-                oldFlashcards = new Flashcard[indices.length];
+                Flashcard[] cards = new Flashcard[indices.length];
                 for (int i = 0; i < indices.length; i++) {
-                    oldFlashcards[i] = flashcards.get(indices[i]);
+                    cards[i] = flashcards.get(indices[i]);
                 }
+                oldFlashcards = Arrays.asList(cards);
             }
 
 
             public void execute() {
 
-                // we have to start from the end to avoid deleting "arbitrary cards"
-                for (int i = indices.length - 1; i >= 0; i--) {
-                    int index = indices[i];
-                    flashcards.get(index).removeObserver(observer);
-                    flashcards.remove(index);
-                    fireIntervalRemoved(DefaultFlashcardSeries.this, index, index);
+                if (indices.length == 0)
+                    return;
+
+                for (Flashcard flashcard : oldFlashcards) {
+                    flashcard.removeObserver(observer);
                 }
 
+                // compact the list in a single pass
+                int size = flashcards.size();
+                int target = indices[0];
+                int next = 0;
+                for (int source = indices[0]; source < size; source++) {
+                    if (next < indices.length && indices[next] == source)
+                        next++;
+                    else
+                        flashcards.set(target++, flashcards.get(source));
+                }
+                flashcards.subList(target, size).clear();
+                cardsRemoved(oldFlashcards, indices[0]);
+
+                // we have to start from the end to keep the indices of the other runs valid
+                for (int run = runs.length - 2; run >= 0; run--) {
+                    fireIntervalRemoved(
+                            DefaultFlashcardSeries.this,
+                            indices[runs[run]],
+                            indices[runs[run + 1] - 1]);
+                }
             }
 
 
             public void unexecute() {
 
-                // we have to start from the end to avoid deleting "arbitrary cards"
-                for (int i = 0; i < indices.length; i++) {
-                    int index = indices[i];
-                    oldFlashcards[i].addObserver(observer);
-                    flashcards.add(index, oldFlashcards[i]);
-                    fireIntervalAdded(DefaultFlashcardSeries.this, index, index);
+                // the listeners may access the cards of a run when they are informed about the
+                // run; hence, the runs are inserted one after another
+                for (int run = 0; run < runs.length - 1; run++) {
+                    List<Flashcard> cards = oldFlashcards.subList(runs[run], runs[run + 1]);
+                    for (Flashcard flashcard : cards) {
+                        flashcard.addObserver(observer);
+                    }
+                    flashcards.addAll(indices[runs[run]], cards);
+                    cardsMoved(indices[runs[run]]);
+                    fireIntervalAdded(
+                            DefaultFlashcardSeries.this,
+                            indices[runs[run]],
+                            indices[runs[run + 1] - 1]);
                 }
-
             }
 
         };
@@ -35,15 +35,19 @@ package de.tud.cs.se.flashcards.model;
 import java.awt.Dimension;
 import java.io.Serializable;
 import java.time.LocalDate;
-import java.util.LinkedList;
 
 import de.tud.cs.st.constraints.NotNull;
 import de.tud.cs.st.constraints.Null;
+import de.tud.cs.util.Arrays;
 
 /**
  * Every flashcard consists of two parts: (i) a question and (ii) an answer to the question.
  * Additionally, meta information is associated with each flashcard to implement different learning
  * strategies.
+ * <p>
+ * Like its series, a flashcard is confined to the Event Dispatch Thread; only the observers can be
+ * added and removed by any thread.
+ * </p>
  *
  * @author Michael Eichberg
  */
@@ -72,7 +76,10 @@ public final class Flashcard implements Serializable, Cloneable {
      */
     public static final Dimension FLASHCARD_DIMENSION = new Dimension(WIDTH, HEIGHT);
 
-    private transient LinkedList<FlashcardObserver> observers;
+    // Either null, a single observer (the common case; a card is usually only observed by its
+    // series) or an array of at least two observers. The array is never changed (copy-on-write);
+    // hence, notifying the observers neither requires a lock nor a copy.
+    private transient volatile Object observers;
 
 
     /**
@@ -89,7 +96,7 @@ public final class Flashcard implements Serializable, Cloneable {
     private int creationID = -1;
 
 
-    private final LocalDate created = LocalDate.now();
+    private final LocalDate created;
 
 
     private LocalDate remembered = null;
@@ -115,8 +122,40 @@ public final class Flashcard implements Serializable, Cloneable {
 
     public Flashcard(@NotNull String question, @NotNull String answer) {
 
-        this.question = question;
-        this.answer = answer;
+        this.question = TextPool.intern(question);
+        this.answer = TextPool.intern(answer);
+        this.created = LocalDate.now();
+    }
+
+
+    /**
+     * Recreates a flashcard with the given state.
+     * <p>
+     * This constructor is only to be used by the persistence layer to rebuild the model; it must
+     * not be called by any other class! If the creation id is <code>-1</code>, the card will get
+     * a new id when it is added to a flashcard series.
+     * </p>
+     */
+    public Flashcard(
+            int creationID,
+            @NotNull String question,
+            @NotNull String answer,
+            @NotNull LocalDate created,
+            @Null LocalDate remembered,
+            @Null LocalDate notRemembered,
+            int shownCount,
+            int notRememberedCount,
+            int rememberedInARowCount) {
+
+        this.creationID = creationID;
+        this.question = TextPool.intern(question);
+        this.answer = TextPool.intern(answer);
+        this.created = created;
+        this.remembered = remembered;
+        this.notRemembered = notRemembered;
+        this.shownCount = shownCount;
+        this.notRememberedCount = notRememberedCount;
+        this.rememberedInARowCount = rememberedInARowCount;
     }
 
 
@@ -139,7 +178,7 @@ public final class Flashcard implements Serializable, Cloneable {
     }
 
 
-    int getCreationID() {
+    public int getCreationID() {
 
         return creationID;
     }
@@ -147,31 +186,50 @@ public final class Flashcard implements Serializable, Cloneable {
 
     public synchronized void addObserver(@NotNull FlashcardObserver flashcardObserver) {
 
-        if (observers == null)
-            observers = new LinkedList<>();
-
-        observers.addFirst(flashcardObserver);
+        Object currentObservers = observers;
+        if (currentObservers == null)
+            observers = flashcardObserver;
+        else if (currentObservers instanceof FlashcardObserver)
+            observers = new FlashcardObserver[] {
+                    (FlashcardObserver) currentObservers,
+                    flashcardObserver };
+        else
+            observers = Arrays.append((FlashcardObserver[]) currentObservers, flashcardObserver);
     }
 
 
     public synchronized void removeObserver(@NotNull FlashcardObserver flashcardObserver) {
 
-        observers.remove(flashcardObserver);
+        Object currentObservers = observers;
+        if (currentObservers == flashcardObserver) {
+            observers = null;
+        } else if (currentObservers instanceof FlashcardObserver[]
+                && Arrays.hasElement((FlashcardObserver[]) currentObservers, flashcardObserver)) {
+            FlashcardObserver[] remainingObservers =
+                    Arrays.remove((FlashcardObserver[]) currentObservers, flashcardObserver, null);
+            if (remainingObservers.length == 1)
+                observers = remainingObservers[0];
+            else
+                observers = remainingObservers;
+        }
     }
 
 
     private void notifyFlashcardObservers() {
 
-        FlashcardObserver[] observers;
-        synchronized (this) {
-            if (this.observers == null)
-                return;
-
-            // required to enable an observer to remove itself from the list of observers...
-            observers = this.observers.toArray(new FlashcardObserver[0]);
-        }
-        for (FlashcardObserver observer : observers) {
-            observer.cardChanged(this);
+        // an observer may remove itself; this does not affect the observers we have read
+        Object currentObservers = observers;
+        if (currentObservers == null)
+            return;
+
+        if (currentObservers instanceof FlashcardObserver) {
+            ((FlashcardObserver) currentObservers).cardChanged(this);
+        } else {
+            // the observer that was added last is notified first
+            FlashcardObserver[] allObservers = (FlashcardObserver[]) currentObservers;
+            for (int i = allObservers.length - 1; i >= 0; i--) {
+                allObservers[i].cardChanged(this);
+            }
         }
     }
 
@@ -180,6 +238,8 @@ public final class Flashcard implements Serializable, Cloneable {
             @NotNull final String newQuestion,
             @NotNull final String newAnswer) {
 
+        final String question = TextPool.intern(newQuestion);
+        final String answer = TextPool.intern(newAnswer);
         return new Command() {
 
             private final String oldQuestion = Flashcard.this.question;
@@ -190,8 +250,8 @@ public final class Flashcard implements Serializable, Cloneable {
 
             public void execute() {
 
-                Flashcard.this.question = newQuestion;
-                Flashcard.this.answer = newAnswer;
+                Flashcard.this.question = question;
+                Flashcard.this.answer = answer;
 
                 Flashcard.this.notifyFlashcardObservers();
             }
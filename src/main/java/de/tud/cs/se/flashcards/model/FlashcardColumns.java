@@ -0,0 +1,131 @@
+/*  License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische
+ *    Universität Darmstadt nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.model;
+
+import java.time.LocalDate;
+
+import de.tud.cs.st.constraints.NotNull;
+import de.tud.cs.st.constraints.Null;
+
+
+/**
+ * The statistics of a flashcard as primitive columns; each column stores one value per card.
+ * <p>
+ * Dates are stored as epoch days; {@link #NO_DATE} is stored for dates that are not set and is
+ * smaller than all dates. The columns are used by the storages of large series and by the file
+ * formats; hence, the values can be sorted and filtered without creating flashcard objects (see
+ * {@link FlashcardSeries#getColumns(int[], int[][])}).
+ * </p>
+ *
+ * @author Michael Eichberg
+ */
+public final class FlashcardColumns {
+
+    public static final int CREATION_ID = 0;
+
+
+    public static final int CREATED = 1;
+
+
+    public static final int REMEMBERED = 2;
+
+
+    public static final int NOT_REMEMBERED = 3;
+
+
+    public static final int SHOWN_COUNT = 4;
+
+
+    public static final int NOT_REMEMBERED_COUNT = 5;
+
+
+    public static final int REMEMBERED_IN_A_ROW_COUNT = 6;
+
+
+    public static final int COLUMNS_COUNT = 7;
+
+
+    /**
+     * The value that is stored for dates that are not set.
+     */
+    public static final int NO_DATE = Integer.MIN_VALUE;
+
+
+    private FlashcardColumns() {
+        // prevent initialization
+    }
+
+
+    /**
+     * @return The value of the given column for the given card.
+     */
+    public static int value(@NotNull Flashcard flashcard, int column) {
+
+        switch (column) {
+        case CREATION_ID:
+            return flashcard.getCreationID();
+        case CREATED:
+            return encodeDate(flashcard.getCreated());
+        case REMEMBERED:
+            return encodeDate(flashcard.getRemembered());
+        case NOT_REMEMBERED:
+            return encodeDate(flashcard.getNotRemembered());
+        case SHOWN_COUNT:
+            return flashcard.getShownCount();
+        case NOT_REMEMBERED_COUNT:
+            return flashcard.getNotRememberedCount();
+        case REMEMBERED_IN_A_ROW_COUNT:
+            return flashcard.getRememberedInARowCount();
+        default:
+            throw new IllegalArgumentException("unknown column: " + column);
+        }
+    }
+
+
+    public static int encodeDate(@Null LocalDate date) {
+
+        if (date == null)
+            return NO_DATE;
+        else
+            return (int) date.toEpochDay();
+    }
+
+
+    public static @Null LocalDate decodeDate(int epochDay) {
+
+        if (epochDay == NO_DATE)
+            return null;
+        else
+            return LocalDate.ofEpochDay(epochDay);
+    }
+}
@@ -0,0 +1,69 @@
+/*  License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische
+ *    Universität Darmstadt nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.model;
+
+import de.tud.cs.st.constraints.NotNull;
+
+/**
+ * Loads the flashcards of a {@link LazyFlashcardSeries} on demand.
+ *
+ * @author Michael Eichberg
+ */
+public interface FlashcardLoader {
+
+    /**
+     * @return The number of flashcards that can be loaded.
+     */
+    int getSize();
+
+
+    /**
+     * Creates a new flashcard object for the flashcard with the given index. This method is called
+     * at most once per index.
+     *
+     * @throws java.io.UncheckedIOException
+     *            if the flashcard cannot be read.
+     */
+    @NotNull Flashcard load(int index) throws IndexOutOfBoundsException;
+
+
+    /**
+     * Stores the values of the given columns (see {@link FlashcardColumns}) of all flashcards in
+     * the given arrays without creating flashcard objects; values[c][index] is the value of the
+     * column columns[c] of the flashcard with the given index.
+     *
+     * @throws java.io.UncheckedIOException
+     *            if the columns cannot be read.
+     */
+    void loadColumns(@NotNull int[] columns, @NotNull int[][] values);
+}
@@ -39,6 +39,11 @@ import de.tud.cs.st.constraints.NotNull;
 
 /**
  * A flashcards list manages a list of flashcards.
+ * <p>
+ * A series and its cards are confined to the thread that changes them (i.e., the Event Dispatch
+ * Thread). Other threads only read snapshots that were taken on that thread (e.g., when a series
+ * is saved or exported).
+ * </p>
  *
  * @author Michael Eichberg
  */
@@ -69,6 +74,14 @@ public interface FlashcardSeries extends ListModel<Flashcard> {
     @NotNull Command createAddCardCommand(@NotNull Flashcard flashcard);
 
 
+    /**
+     * Adds the given cards to this series; the cards are added as the first cards to the core data
+     * model and keep their relative order. Listeners are informed using a single event. None of
+     * the cards must belong to any other flashcards list.
+     */
+    @NotNull Command createAddCardsCommand(@NotNull Flashcard[] flashcards);
+
+
     /**
      * Removes the flashcards with the indices.
      * <p>
@@ -105,4 +118,65 @@ public interface FlashcardSeries extends ListModel<Flashcard> {
      * @return The flashcard series that maintains the core data model.
      */
     @NotNull FlashcardSeries getSourceModel();
+
+
+    /**
+     * Stores the values of the given columns (see {@link FlashcardColumns}) of all cards in the
+     * given arrays; values[c][index] is the value of the column columns[c] of the card with the
+     * given index. Series that store their cards in columns override this method to avoid
+     * creating flashcard objects.
+     *
+     * @param values
+     *           one array per column; each array has {@link #getSize()} elements.
+     */
+    default void getColumns(@NotNull int[] columns, @NotNull int[][] values) {
+
+        for (int index = 0; index < getSize(); index++) {
+            Flashcard flashcard = getElementAt(index);
+            for (int c = 0; c < columns.length; c++) {
+                values[c][index] = FlashcardColumns.value(flashcard, columns[c]);
+            }
+        }
+    }
+
+
+    /**
+     * @return <code>true</code> if the question or the answer of the card with the given index
+     *         contains the given term (see {@link Flashcard#contains(String)}). Series that store
+     *         the texts of their cards override this method to avoid creating flashcard objects.
+     */
+    default boolean contains(int index, @NotNull String searchTerm)
+            throws IndexOutOfBoundsException {
+
+        return getElementAt(index).contains(searchTerm);
+    }
+
+
+    /**
+     * Starts a batch of changes; the listeners of this series are only informed when the
+     * (outermost) batch is ended. Batches can be nested.
+     * <p>
+     * If the changes can be described by a single event (e.g., several cards were added one after
+     * another), the listeners get this event. Otherwise, the listeners of a source model (see
+     * {@link #getSourceModel()}) get the events in the order in which the changes were made, where
+     * consecutive events that describe a run of cards are merged; hence, a batch of a source model
+     * should only contain the changes of a single command. The listeners of any other series are
+     * informed that all cards were removed and added again; i.e., a batch of many changes costs
+     * them no more than rebuilding their state once.
+     * </p>
+     * <p>
+     * During a batch, the series that are based on this series are not updated; hence, they must
+     * not be changed or queried.
+     * </p>
+     */
+    void beginBatch();
+
+
+    /**
+     * Ends the current batch; if it is the outermost batch, the listeners are informed.
+     *
+     * @throws IllegalStateException
+     *            if no batch was started.
+     */
+    void endBatch() throws IllegalStateException;
 }
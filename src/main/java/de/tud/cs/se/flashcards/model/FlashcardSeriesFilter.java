@@ -60,6 +60,9 @@ public final class FlashcardSeriesFilter extends AbstractFlashcardSeries {
     private final FlashcardSeries flashcardSeries;
 
 
+    private final ListDataListener listDataListener;
+
+
     // This array's content is always sorted in ascending order!
     private int[] flashcardIndices = Arrays.EMPTY_INT_ARRAY;
 
@@ -75,8 +78,9 @@ public final class FlashcardSeriesFilter extends AbstractFlashcardSeries {
      */
     public FlashcardSeriesFilter(@NotNull FlashcardSeries flashcardSeries) {
 
-        for (int i = 0; i < flashcardSeries.getSize(); i++)
-            flashcardIndices = Arrays.append(flashcardIndices, i);
+        flashcardIndices = new int[flashcardSeries.getSize()];
+        for (int i = 0; i < flashcardIndices.length; i++)
+            flashcardIndices[i] = i;
 
         // FlashcardSeriesFilter does not directly implement the ListDataListener interface
         // to avoid polluting the public interface. Additionally, the code to handle changes of
@@ -85,7 +89,6 @@ public final class FlashcardSeriesFilter extends AbstractFlashcardSeries {
         // Second, update the existing references; i.e., remap the indices pointing to the old
         // cards.
         // Third, let's check if we have to insert some of the newly added cards.
-        /* && endIndex >= 0 */
         // We may have to "remove / add" elements, hence we have to start filtering from the end!
         // u_ => index w.r.t. the underlying series
         // let's search for the card with the current index
@@ -97,7 +100,7 @@ public final class FlashcardSeriesFilter extends AbstractFlashcardSeries {
         // update the indices...
         /* && endIndex >= startIndex */
         // we did remove some cards...
-        ListDataListener listDataListener = new ListDataListener() {
+        this.listDataListener = new ListDataListener() {
 
             public void intervalAdded(ListDataEvent e) {
 
@@ -120,24 +123,29 @@ public final class FlashcardSeriesFilter extends AbstractFlashcardSeries {
                 }
 
                 // Third, let's check if we have to insert some of the newly added cards.
-                int startIndex = Integer.MAX_VALUE;
-                int endIndex = -1;
+                int[] acceptedIndices = new int[insertCount];
+                int acceptedCount = 0;
                 for (int uIndex = uStartIndex; uIndex <= uEndIndex; uIndex++) {
-                    if (accept(flashcardSeries.getElementAt(uIndex))) {
-                        FlashcardSeriesFilter.this.flashcardIndices = Arrays.add(
-                                flashcardIndices,
-                                uIndex,
-                                index
-                        );
-                        if (index < startIndex)
-                            startIndex = index;
-                        if (index > endIndex)
-                            endIndex = index;
-                        index++;
-                    }
+                    if (accept(uIndex))
+                        acceptedIndices[acceptedCount++] = uIndex;
+                }
+                if (acceptedCount > 0) {
+                    // all accepted cards are inserted at once
+                    int[] newFlashcardIndices = new int[flashcardIndices.length + acceptedCount];
+                    System.arraycopy(flashcardIndices, 0, newFlashcardIndices, 0, index);
+                    System.arraycopy(acceptedIndices, 0, newFlashcardIndices, index, acceptedCount);
+                    System.arraycopy(
+                            flashcardIndices,
+                            index,
+                            newFlashcardIndices,
+                            index + acceptedCount,
+                            flashcardIndices.length - index);
+                    FlashcardSeriesFilter.this.flashcardIndices = newFlashcardIndices;
+                    fireIntervalAdded(
+                            FlashcardSeriesFilter.this,
+                            index,
+                            index + acceptedCount - 1);
                 }
-                if (startIndex < Integer.MAX_VALUE /* && endIndex >= 0 */)
-                    fireIntervalAdded(FlashcardSeriesFilter.this, startIndex, endIndex);
             }
 
             public void contentsChanged(ListDataEvent e) {
@@ -150,16 +158,37 @@ public final class FlashcardSeriesFilter extends AbstractFlashcardSeries {
 
                 int index = flashcardIndices.length - 1;
 
+                // The changed cards that are still accepted are reported as one run; the run has
+                // to be reported before a card is removed or added.
+                int changedStart = -1;
+                int changedEnd = -1;
+
                 for (int uIndex = uEndIndex; uIndex >= uStartIndex; uIndex--) {
 
                     // let's search for the card with the current index
                     while (index >= 0 && flashcardIndices[index] > uIndex)
                         index--;
 
-                    if (index >= 0 && flashcardIndices[index] == uIndex) {
+                    boolean filtered = index < 0 || flashcardIndices[index] != uIndex;
+                    boolean accepted = accept(uIndex);
+                    if (filtered && !accepted)
+                        continue;
+
+                    if (!filtered && accepted && changedEnd >= 0 && changedStart == index + 1) {
+                        // the card extends the run of changed cards
+                        changedStart = index;
+                        continue;
+                    }
+
+                    if (changedEnd >= 0) {
+                        fireContentsUpdated(FlashcardSeriesFilter.this, changedStart, changedEnd);
+                        changedEnd = -1;
+                    }
+
+                    if (!filtered) {
                         // The card is not filtered (we did find the index) ...
 
-                        if (!accept(flashcardSeries.getElementAt(uIndex))) {
+                        if (!accepted) {
                             // ... but we have to filter it now.
                             FlashcardSeriesFilter.this.flashcardIndices = Arrays.remove(
                                     flashcardIndices,
@@ -167,11 +196,12 @@ public final class FlashcardSeriesFilter extends AbstractFlashcardSeries {
                             );
                             fireIntervalRemoved(FlashcardSeriesFilter.this, index, index);
                         } else {
-                            fireContentsUpdated(FlashcardSeriesFilter.this, index, index);
+                            changedStart = index;
+                            changedEnd = index;
                         }
                     } else { // also handles the case "index == -1"
                         // The card is currently filtered...
-                        if (accept(flashcardSeries.getElementAt(uIndex))) {
+                        if (accepted) {
                             // ... now we have to include it.
                             FlashcardSeriesFilter.this.flashcardIndices = Arrays.add(
                                     flashcardIndices,
@@ -182,6 +212,8 @@ public final class FlashcardSeriesFilter extends AbstractFlashcardSeries {
                         }
                     }
                 }
+                if (changedEnd >= 0)
+                    fireContentsUpdated(FlashcardSeriesFilter.this, changedStart, changedEnd);
             }
 
             public void intervalRemoved(ListDataEvent e) {
@@ -189,32 +221,31 @@ public final class FlashcardSeriesFilter extends AbstractFlashcardSeries {
                 int uStartIndex = e.getIndex0();
                 int uEndIndex = e.getIndex1();
 
-                int endIndex = -1;
-                int startIndex = flashcardIndices.length;
-
                 assert uStartIndex <= uEndIndex;
 
-                for (int index = flashcardIndices.length - 1; index >= 0; index--) {
-                    if (flashcardIndices[index] >= uStartIndex
-                            && flashcardIndices[index] <= uEndIndex) {
-
-                        if (index > endIndex)
-                            endIndex = index;
-                        if (index < startIndex)
-                            startIndex = index;
-
-                        FlashcardSeriesFilter.this.flashcardIndices =
-                                Arrays.remove(flashcardIndices, index);
-
-                        // update the indices...
-                        for (int j = index; j < flashcardIndices.length; j++) {
-                            flashcardIndices[j] = flashcardIndices[j] - 1;
-                        }
-                    }
+                // the indices of the removed cards are stored at the positions startIndex to
+                // endIndex - 1 (the indices are sorted)
+                int startIndex = java.util.Arrays.binarySearch(flashcardIndices, uStartIndex);
+                if (startIndex < 0)
+                    startIndex = -(startIndex + 1);
+                int endIndex = startIndex;
+                while (endIndex < flashcardIndices.length
+                        && flashcardIndices[endIndex] <= uEndIndex)
+                    endIndex++;
+
+                // remove the indices and update the indices of the following cards in one pass
+                int removedCount = endIndex - startIndex;
+                int count = uEndIndex - uStartIndex + 1;
+                int[] newIndices = new int[flashcardIndices.length - removedCount];
+                System.arraycopy(flashcardIndices, 0, newIndices, 0, startIndex);
+                for (int i = endIndex; i < flashcardIndices.length; i++) {
+                    newIndices[i - removedCount] = flashcardIndices[i] - count;
                 }
-                if (startIndex != flashcardIndices.length /* && endIndex >= startIndex */) {
+                FlashcardSeriesFilter.this.flashcardIndices = newIndices;
+
+                if (removedCount > 0) {
                     // we did remove some cards...
-                    fireIntervalRemoved(FlashcardSeriesFilter.this, startIndex, endIndex);
+                    fireIntervalRemoved(FlashcardSeriesFilter.this, startIndex, endIndex - 1);
                 }
             }
 
@@ -224,6 +255,16 @@ public final class FlashcardSeriesFilter extends AbstractFlashcardSeries {
     }
 
 
+    /**
+     * Stops observing the underlying series (which may be shared with other views). Afterwards,
+     * this filter must no longer be used.
+     */
+    public void dispose() {
+
+        flashcardSeries.removeListDataListener(listDataListener);
+    }
+
+
     /**
      * @return The source model of the underlying flashcards list.
      */
@@ -252,6 +293,13 @@ public final class FlashcardSeriesFilter extends AbstractFlashcardSeries {
     }
 
 
+    public Command createAddCardsCommand(@NotNull Flashcard[] flashcards) {
+
+        return flashcardSeries.createAddCardsCommand(flashcards);
+
+    }
+
+
     public Command createRemoveCardsCommand(int[] indices) {
 
         // remap indices
@@ -276,6 +324,25 @@ public final class FlashcardSeriesFilter extends AbstractFlashcardSeries {
     }
 
 
+    public boolean contains(int index, @NotNull String searchTerm)
+            throws IndexOutOfBoundsException {
+
+        return flashcardSeries.contains(flashcardIndices[index], searchTerm);
+    }
+
+
+    public void getColumns(@NotNull int[] columns, @NotNull int[][] values) {
+
+        int[][] allValues = new int[columns.length][flashcardSeries.getSize()];
+        flashcardSeries.getColumns(columns, allValues);
+        for (int c = 0; c < columns.length; c++) {
+            for (int index = 0; index < flashcardIndices.length; index++) {
+                values[c][index] = allValues[c][flashcardIndices[index]];
+            }
+        }
+    }
+
+
     public void setSearchTerm(@NotNull String searchTerm) {
 
         if (this.searchTerm.equals(searchTerm))
@@ -309,7 +376,7 @@ public final class FlashcardSeriesFilter extends AbstractFlashcardSeries {
 
                 // either index >= flashcardIndices.size() or the flashcardIndices.get(index) is
                 // referring to a later card; hence we may have to reintegrate filtered cards
-                if (accept(flashcardSeries.getElementAt(uIndex))) {
+                if (accept(uIndex)) {
                     flashcardIndices = Arrays.add(flashcardIndices, uIndex, index);
                     fireIntervalAdded(this, index, index);
                     index++;
@@ -322,7 +389,7 @@ public final class FlashcardSeriesFilter extends AbstractFlashcardSeries {
             this.searchTerm = searchTerm; // has to be done before "accept(...)" is called
 
             for (int index = flashcardIndices.length - 1; index >= 0; index--) {
-                if (!accept(flashcardSeries.getElementAt(flashcardIndices[index]))) {
+                if (!accept(flashcardIndices[index])) {
                     flashcardIndices = Arrays.remove(flashcardIndices, index);
                     fireIntervalRemoved(this, index, index);
                 }
@@ -338,14 +405,12 @@ public final class FlashcardSeriesFilter extends AbstractFlashcardSeries {
 
 
     /**
-     * @return <code>true</code>, if the card matches the search condition.
+     * @return <code>true</code>, if the card with the given index w.r.t. the underlying series
+     *         matches the search condition.
      */
-    private boolean accept(
-            @NotNull
-                    Flashcard flashcard
-    ) {
+    private boolean accept(int uIndex) {
 
-        return flashcard.contains(searchTerm);
+        return flashcardSeries.contains(uIndex, searchTerm);
     }
 
 }
@@ -0,0 +1,88 @@
+/*  License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische
+ *    Universität Darmstadt nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.model;
+
+import de.tud.cs.st.constraints.NotNull;
+
+/**
+ * Interface implemented by the keys of a {@link FlashcardSortOrder}.
+ * <p>
+ * A key maps each card to a primitive value; the value is computed once when a card is added or
+ * changed and not per comparison. The values of the predefined keys are the values of the
+ * {@link FlashcardColumns}; hence, they are computed without creating flashcard objects when a
+ * series is sorted.
+ * </p>
+ *
+ * @author Michael Eichberg
+ */
+public interface FlashcardSortKey {
+
+    /**
+     * The date when the card was created (epoch day).
+     */
+    FlashcardSortKey CREATED = new ColumnSortKey(FlashcardColumns.CREATED);
+
+
+    /**
+     * The date when the card was remembered the last time; cards that were never remembered come
+     * first.
+     */
+    FlashcardSortKey REMEMBERED = new ColumnSortKey(FlashcardColumns.REMEMBERED);
+
+
+    /**
+     * The date when the card was not remembered the last time; cards that were always remembered
+     * come first.
+     */
+    FlashcardSortKey NOT_REMEMBERED = new ColumnSortKey(FlashcardColumns.NOT_REMEMBERED);
+
+
+    FlashcardSortKey REMEMBERED_IN_A_ROW_COUNT =
+            new ColumnSortKey(FlashcardColumns.REMEMBERED_IN_A_ROW_COUNT);
+
+
+    FlashcardSortKey NOT_REMEMBERED_COUNT =
+            new ColumnSortKey(FlashcardColumns.NOT_REMEMBERED_COUNT);
+
+
+    FlashcardSortKey SHOWN_COUNT = new ColumnSortKey(FlashcardColumns.SHOWN_COUNT);
+
+
+    FlashcardSortKey CREATION_ID = new ColumnSortKey(FlashcardColumns.CREATION_ID);
+
+
+    /**
+     * @return The key of the given card.
+     */
+    long key(@NotNull Flashcard flashcard);
+}
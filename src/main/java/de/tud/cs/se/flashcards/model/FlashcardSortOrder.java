@@ -0,0 +1,195 @@
+/*  License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische
+ *    Universität Darmstadt nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.model;
+
+import java.util.Arrays;
+
+import de.tud.cs.st.constraints.NotNull;
+
+/**
+ * The order of the cards of a {@link SortedFlashcardSeries}; i.e., an ordered list of keys each
+ * of which is sorted in ascending or descending order. E.g., the order "not remembered date
+ * descending, then shown count ascending" is created using:
+ *
+ * <pre>
+ * FlashcardSortOrder.descending(FlashcardSortKey.NOT_REMEMBERED).thenAscending(
+ *         FlashcardSortKey.SHOWN_COUNT)
+ * </pre>
+ *
+ * Cards with equal keys are sorted by their creation IDs; hence, the order is total.
+ * <p>
+ * Instances of this class are immutable.
+ * </p>
+ *
+ * @author Michael Eichberg
+ */
+public final class FlashcardSortOrder {
+
+    /**
+     * The most recently created cards come first.
+     */
+    public static final FlashcardSortOrder DATE_CREATED = descending(FlashcardSortKey.CREATED);
+
+
+    /**
+     * The order is "most recent - last"; i.e. the last card is the card that was remembered most
+     * recently. Cards that were remembered a long time ago (or never) are found at the very
+     * beginning.
+     */
+    public static final FlashcardSortOrder LAST_TIME_REMEMBERED =
+            ascending(FlashcardSortKey.REMEMBERED);
+
+
+    public static final FlashcardSortOrder TIMES_REMEMBERED_IN_A_ROW =
+            ascending(FlashcardSortKey.REMEMBERED_IN_A_ROW_COUNT);
+
+
+    // The keys without the implicit creation ID.
+    private final FlashcardSortKey[] keys;
+
+
+    private final boolean[] descending;
+
+
+    private FlashcardSortOrder(@NotNull FlashcardSortKey[] keys, @NotNull boolean[] descending) {
+
+        this.keys = keys;
+        this.descending = descending;
+    }
+
+
+    public static @NotNull FlashcardSortOrder ascending(@NotNull FlashcardSortKey key) {
+
+        return new FlashcardSortOrder(new FlashcardSortKey[] { key }, new boolean[] { false });
+    }
+
+
+    public static @NotNull FlashcardSortOrder descending(@NotNull FlashcardSortKey key) {
+
+        return new FlashcardSortOrder(new FlashcardSortKey[] { key }, new boolean[] { true });
+    }
+
+
+    /**
+     * @return A new order that sorts cards that are equal w.r.t. this order by the given key in
+     *         ascending order.
+     */
+    public @NotNull FlashcardSortOrder thenAscending(@NotNull FlashcardSortKey key) {
+
+        return then(key, false);
+    }
+
+
+    /**
+     * @return A new order that sorts cards that are equal w.r.t. this order by the given key in
+     *         descending order.
+     */
+    public @NotNull FlashcardSortOrder thenDescending(@NotNull FlashcardSortKey key) {
+
+        return then(key, true);
+    }
+
+
+    private @NotNull FlashcardSortOrder then(@NotNull FlashcardSortKey key, boolean descending) {
+
+        FlashcardSortKey[] newKeys = Arrays.copyOf(keys, keys.length + 1);
+        newKeys[keys.length] = key;
+        boolean[] newDescending = Arrays.copyOf(this.descending, keys.length + 1);
+        newDescending[keys.length] = descending;
+        return new FlashcardSortOrder(newKeys, newDescending);
+    }
+
+
+    /**
+     * @return The number of keys including the creation ID.
+     */
+    int getKeysCount() {
+
+        return keys.length + 1;
+    }
+
+
+    /**
+     * @return The value of the key with the given index for the given card; the values of all
+     *         keys are sorted in ascending order.
+     */
+    long key(@NotNull Flashcard flashcard, int keyIndex) {
+
+        if (keyIndex == keys.length)
+            return flashcard.getCreationID();
+
+        return key(keys[keyIndex].key(flashcard), keyIndex);
+    }
+
+
+    /**
+     * @return The value of the key with the given index given the value of the card's column (see
+     *         {@link #getColumn(int)}).
+     */
+    long key(long value, int keyIndex) {
+
+        if (keyIndex < keys.length && descending[keyIndex])
+            return ~value; // in contrast to the negation, this also reverses Long.MIN_VALUE
+        else
+            return value;
+    }
+
+
+    /**
+     * @return The column (see {@link FlashcardColumns}) that stores the values of the key with the
+     *         given index or <code>-1</code> if the values are computed using the cards.
+     */
+    int getColumn(int keyIndex) {
+
+        if (keyIndex == keys.length)
+            return FlashcardColumns.CREATION_ID;
+
+        if (keys[keyIndex] instanceof ColumnSortKey)
+            return ((ColumnSortKey) keys[keyIndex]).column;
+        else
+            return -1;
+    }
+
+
+    /**
+     * @return The values of all keys for the given card.
+     */
+    @NotNull long[] keys(@NotNull Flashcard flashcard) {
+
+        long[] values = new long[getKeysCount()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = key(flashcard, i);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,111 @@
+/*  License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische
+ *    Universität Darmstadt nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.model;
+
+import de.tud.cs.st.constraints.NotNull;
+
+/**
+ * Stores the flashcards of a {@link PagedFlashcardSeries} in a compact form (e.g., outside of the
+ * heap; see {@link ColumnarFlashcardStorage} for an in-memory storage).
+ * <p>
+ * A storage is a list of rows; each row stores one flashcard and is identified by its (row)
+ * number. Rows are only appended; a row that is removed from the series is only marked as
+ * removed (to support undo).
+ * </p>
+ *
+ * @author Michael Eichberg
+ */
+public interface FlashcardStorage {
+
+    /**
+     * @return The number of rows (including the rows that are marked as removed).
+     */
+    int getRowsCount();
+
+
+    /**
+     * Creates a new flashcard object for the flashcard stored in the given row.
+     *
+     * @throws java.io.UncheckedIOException
+     *            if the flashcard cannot be read.
+     */
+    @NotNull Flashcard load(int row) throws IndexOutOfBoundsException;
+
+
+    /**
+     * @return The value of the given column (see {@link FlashcardColumns}) of the flashcard stored
+     *         in the given row; no flashcard object is created.
+     * @throws java.io.UncheckedIOException
+     *            if the row cannot be read.
+     */
+    int getColumnValue(int row, int column) throws IndexOutOfBoundsException;
+
+
+    /**
+     * @return <code>true</code> if the question or the answer of the flashcard stored in the given
+     *         row contains the given term (see {@link Flashcard#contains(String)}); no flashcard
+     *         object is created.
+     * @throws java.io.UncheckedIOException
+     *            if the texts cannot be read.
+     */
+    boolean contains(int row, @NotNull String searchTerm) throws IndexOutOfBoundsException;
+
+
+    /**
+     * Appends a new row that stores the given flashcard; the new row is marked as removed.
+     *
+     * @return The number of the new row.
+     * @throws java.io.UncheckedIOException
+     *            if the flashcard cannot be written.
+     */
+    int append(@NotNull Flashcard flashcard);
+
+
+    /**
+     * Stores the current state of the given flashcard in the given row.
+     *
+     * @throws java.io.UncheckedIOException
+     *            if the flashcard cannot be written.
+     */
+    void update(int row, @NotNull Flashcard flashcard) throws IndexOutOfBoundsException;
+
+
+    boolean isRemoved(int row) throws IndexOutOfBoundsException;
+
+
+    /**
+     * @throws java.io.UncheckedIOException
+     *            if the row cannot be written.
+     */
+    void setRemoved(int row, boolean removed) throws IndexOutOfBoundsException;
+}
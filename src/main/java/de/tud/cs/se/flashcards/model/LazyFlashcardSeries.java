@@ -0,0 +1,461 @@
+/*  License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische
+ *    Universität Darmstadt nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+import de.tud.cs.st.constraints.NotNull;
+import de.tud.cs.st.constraints.Null;
+
+
+/**
+ * A flashcard series that only creates the flashcard objects when they are accessed for the first
+ * time.
+ * <p>
+ * This series is used by the persistence layer to open large series almost instantly; e.g., a
+ * {@link javax.swing.JList} will only ask for those cards that are visible. W.r.t. its clients this
+ * series behaves exactly like a {@link DefaultFlashcardSeries}.
+ * </p>
+ *
+ * @author Michael Eichberg
+ */
+public final class LazyFlashcardSeries extends AbstractFlashcardSeries {
+
+    private final FlashcardObserver observer = new FlashcardObserver() {
+
+        public void cardChanged(Flashcard flashcard) {
+
+            int index = indexOf(flashcard);
+            if (index != -1)
+                fireContentsUpdated(LazyFlashcardSeries.this, index, index);
+        }
+    };
+
+
+    // The loader is set to null as soon as all flashcards are loaded.
+    private @Null FlashcardLoader loader;
+
+
+    private int loadedCount = 0;
+
+
+    // All flashcards that were ever part of this series, including those that are currently
+    // removed (to support undo). The first loader.getSize() slots are filled on demand.
+    private final ArrayList<Flashcard> cards;
+
+
+    // entries[i] is the slot (w.r.t. cards) of the flashcard with the index i.
+    private int[] entries;
+
+
+    private int size;
+
+
+    // The slots of the flashcards that were loaded or added.
+    private final IdentityHashMap<Flashcard, Integer> slots = new IdentityHashMap<>();
+
+
+    // slotIndices[slot] is the index of the flashcard stored in the slot or -1 if the flashcard is
+    // removed; computed on demand. If flashcards are added or removed, only the indices of the
+    // entries that are moved are updated.
+    private @Null int[] slotIndices = null;
+
+
+    private int nextCreationID;
+
+
+    public LazyFlashcardSeries(@NotNull FlashcardLoader loader, int nextCreationID) {
+
+        int loaderSize = loader.getSize();
+
+        this.loader = loader;
+        this.nextCreationID = nextCreationID;
+        this.cards = new ArrayList<>(loaderSize);
+        this.entries = new int[Math.max(loaderSize, 16)];
+        for (int i = 0; i < loaderSize; i++) {
+            cards.add(null);
+            entries[i] = i;
+        }
+        this.size = loaderSize;
+
+        if (loaderSize == 0)
+            this.loader = null;
+    }
+
+
+    public int getNextCreationID() {
+
+        return nextCreationID;
+    }
+
+
+    public void setNextCreationID(int nextCreationID) {
+
+        assert nextCreationID >= 0;
+
+        this.nextCreationID = nextCreationID;
+    }
+
+
+    private @NotNull Flashcard card(int slot) {
+
+        Flashcard flashcard = cards.get(slot);
+        if (flashcard == null) {
+            flashcard = loader.load(slot);
+            flashcard.addObserver(observer);
+            cards.set(slot, flashcard);
+            slots.put(flashcard, slot);
+
+            loadedCount++;
+            if (loadedCount == loader.getSize())
+                loader = null; // let's give up the resources held by the loader
+        }
+        return flashcard;
+    }
+
+
+    /**
+     * Stores the given (new) flashcard in a new slot.
+     *
+     * @return The slot.
+     */
+    private int addSlot(@NotNull Flashcard flashcard) {
+
+        int slot = cards.size();
+        cards.add(flashcard);
+        slots.put(flashcard, slot);
+        if (slotIndices != null && slot >= slotIndices.length) {
+            int length = slotIndices.length;
+            slotIndices = Arrays.copyOf(slotIndices, Math.max(length * 2, slot + 1));
+            Arrays.fill(slotIndices, length, slotIndices.length, -1);
+        }
+        return slot;
+    }
+
+
+    /**
+     * @return The index of the given flashcard or <code>-1</code> if the flashcard is not
+     *         contained in this series.
+     */
+    private int indexOf(@NotNull Flashcard flashcard) {
+
+        Integer slot = slots.get(flashcard);
+        if (slot == null)
+            return -1;
+
+        if (slotIndices == null) {
+            slotIndices = new int[cards.size()];
+            Arrays.fill(slotIndices, -1);
+            for (int index = 0; index < size; index++) {
+                slotIndices[entries[index]] = index;
+            }
+        }
+        return slotIndices[slot];
+    }
+
+
+    private void insertEntry(int index, int slot) {
+
+        insertEntries(index, new int[] { slot }, 0, 1);
+    }
+
+
+    /**
+     * Inserts the slots stored at the positions from to to - 1 of the given array at the given
+     * index.
+     */
+    private void insertEntries(int index, @NotNull int[] newEntries, int from, int to) {
+
+        int count = to - from;
+        if (size + count > entries.length)
+            entries = Arrays.copyOf(entries, Math.max(size * 2, size + count));
+        System.arraycopy(entries, index, entries, index + count, size - index);
+        System.arraycopy(newEntries, from, entries, index, count);
+        size += count;
+        entriesMoved(index);
+    }
+
+
+    private void removeEntry(int index) {
+
+        removeEntries(index, 1);
+    }
+
+
+    private void removeEntries(int index, int count) {
+
+        if (slotIndices != null) {
+            for (int i = index; i < index + count; i++) {
+                slotIndices[entries[i]] = -1;
+            }
+        }
+        size -= count;
+        System.arraycopy(entries, index + count, entries, index, size - index);
+        entriesMoved(index);
+    }
+
+
+    /**
+     * Updates the indices of the slots stored in the entries starting with the given index.
+     */
+    private void entriesMoved(int index) {
+
+        if (slotIndices == null)
+            return;
+
+        for (int i = index; i < size; i++) {
+            slotIndices[entries[i]] = i;
+        }
+    }
+
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * de.tud.cs.se.flashcards.model.FlashcardSeries#addCard(de.tud.cs.se.flashcards.model.Flashcard)
+     */
+    public Command createAddCardCommand(@NotNull final Flashcard flashcard) {
+
+        return new Command() {
+
+            private final int slot;
+
+            { // associate the card with this list of flashcards
+                flashcard.setCreationID(nextCreationID++);
+                slot = addSlot(flashcard);
+            }
+
+
+            public void execute() {
+
+                insertEntry(0, slot);
+                flashcard.addObserver(observer);
+
+                fireIntervalAdded(LazyFlashcardSeries.this, 0, 0);
+            }
+
+
+            public void unexecute() {
+
+                flashcard.removeObserver(observer);
+                removeEntry(0);
+
+                fireIntervalRemoved(LazyFlashcardSeries.this, 0, 0);
+            }
+
+        };
+    }
+
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * de.tud.cs.se.flashcards.model.FlashcardSeries#createAddCardsCommand(de.tud.cs.se.flashcards.
+     * model.Flashcard[])
+     */
+    public Command createAddCardsCommand(@NotNull final Flashcard[] newFlashcards) {
+
+        return new Command() {
+
+            private final Flashcard[] flashcards = newFlashcards.clone();
+
+
+            private final int[] newSlots = new int[flashcards.length];
+
+            { // associate the cards with this list of flashcards
+                for (int i = 0; i < flashcards.length; i++) {
+                    flashcards[i].setCreationID(nextCreationID++);
+                    newSlots[i] = addSlot(flashcards[i]);
+                }
+            }
+
+
+            public void execute() {
+
+                if (flashcards.length == 0)
+                    return;
+
+                int count = flashcards.length;
+                insertEntries(0, newSlots, 0, count);
+                for (Flashcard flashcard : flashcards) {
+                    flashcard.addObserver(observer);
+                }
+
+                fireIntervalAdded(LazyFlashcardSeries.this, 0, count - 1);
+            }
+
+
+            public void unexecute() {
+
+                if (flashcards.length == 0)
+                    return;
+
+                int count = flashcards.length;
+                for (Flashcard flashcard : flashcards) {
+                    flashcard.removeObserver(observer);
+                }
+                removeEntries(0, count);
+
+                fireIntervalRemoved(LazyFlashcardSeries.this, 0, count - 1);
+            }
+
+        };
+    }
+
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.tud.cs.se.flashcards.model.FlashcardSeries#removeCards(int[])
+     */
+    public Command createRemoveCardsCommand(@NotNull final int[] indices) {
+
+        return new Command() {
+
+            private final int[] slots;
+
+
+            // The runs of consecutive indices (see AbstractFlashcardSeries#runs).
+            private final int[] runs = runs(indices);
+
+            {
+                slots = new int[indices.length];
+                for (int i = 0; i < indices.length; i++) {
+                    slots[i] = entries[indices[i]];
+                }
+            }
+
+
+            public void execute() {
+
+                // we have to start from the end to avoid deleting "arbitrary cards"
+                for (int run = runs.length - 2; run >= 0; run--) {
+                    // cards that were not loaded so far are not observed
+                    for (int i = runs[run]; i < runs[run + 1]; i++) {
+                        Flashcard flashcard = cards.get(slots[i]);
+                        if (flashcard != null)
+                            flashcard.removeObserver(observer);
+                    }
+                    int index = indices[runs[run]];
+                    int count = runs[run + 1] - runs[run];
+                    removeEntries(index, count);
+                    fireIntervalRemoved(LazyFlashcardSeries.this, index, index + count - 1);
+                }
+            }
+
+
+            public void unexecute() {
+
+                for (int run = 0; run < runs.length - 1; run++) {
+                    // cards that were not loaded so far are observed when they are loaded
+                    for (int i = runs[run]; i < runs[run + 1]; i++) {
+                        Flashcard flashcard = cards.get(slots[i]);
+                        if (flashcard != null)
+                            flashcard.addObserver(observer);
+                    }
+                    int index = indices[runs[run]];
+                    insertEntries(index, slots, runs[run], runs[run + 1]);
+                    fireIntervalAdded(
+                            LazyFlashcardSeries.this,
+                            index,
+                            indices[runs[run + 1] - 1]);
+                }
+            }
+
+        };
+    }
+
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.tud.cs.se.flashcards.model.FlashcardSeries#getElementAt(int)
+     */
+    public @NotNull Flashcard getElementAt(int index) throws IndexOutOfBoundsException {
+
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException(index + " >= " + size);
+
+        return card(entries[index]);
+    }
+
+
+    /**
+     * Reads the columns of the cards that were not loaded so far from the loader; the cards are not
+     * loaded.
+     */
+    public void getColumns(@NotNull int[] columns, @NotNull int[][] values) {
+
+        int[][] slotValues = null;
+        if (loader != null) {
+            slotValues = new int[columns.length][loader.getSize()];
+            loader.loadColumns(columns, slotValues);
+        }
+
+        for (int index = 0; index < size; index++) {
+            int slot = entries[index];
+            Flashcard flashcard = cards.get(slot);
+            for (int c = 0; c < columns.length; c++) {
+                if (flashcard != null) // the card may have been changed
+                    values[c][index] = FlashcardColumns.value(flashcard, columns[c]);
+                else
+                    values[c][index] = slotValues[c][slot];
+            }
+        }
+    }
+
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.tud.cs.se.flashcards.model.FlashcardSeries#getSize()
+     */
+    public int getSize() {
+
+        return size;
+    }
+
+
+    /**
+     * @return <code>this</code>.
+     */
+    public FlashcardSeries getSourceModel() {
+
+        return this;
+    }
+
+}
@@ -0,0 +1,533 @@
+/*  License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische
+ *    Universität Darmstadt nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.model;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import de.tud.cs.st.constraints.NotNull;
+
+
+/**
+ * A flashcard series that keeps its flashcards in a {@link FlashcardStorage}; i.e., the size of
+ * the series is not limited by the size of the heap.
+ * <p>
+ * The creation id of a card is the number of the row that stores the card. New cards are
+ * appended to the storage; hence, the first card of the series is stored in the last row that
+ * is not removed. To map an index to a row (and vice versa) this series only maintains the number
+ * of cards per group of rows in a binary indexed tree (O(log n) per lookup); i.e., the memory
+ * required per card is a few bits. Flashcard objects are only created on demand and are kept as
+ * long as they are referenced by some other object (e.g., a window).
+ * </p>
+ * <p>
+ * W.r.t. its clients this series behaves like a {@link DefaultFlashcardSeries}; however, the
+ * cards added by a single command get their creation ids in reverse order (the first card gets
+ * the largest id) and the next creation id cannot be set.
+ * </p>
+ *
+ * @author Michael Eichberg
+ */
+public final class PagedFlashcardSeries extends AbstractFlashcardSeries {
+
+    // The number of rows per group; the binary indexed tree stores the number of cards per group.
+    private static final int GROUP_SIZE = 64;
+
+
+    private final FlashcardObserver observer = new FlashcardObserver() {
+
+        public void cardChanged(Flashcard flashcard) {
+
+            int row = flashcard.getCreationID();
+            storage.update(row, flashcard);
+            if (!storage.isRemoved(row)) {
+                int index = indexOfRow(row);
+                fireContentsUpdated(PagedFlashcardSeries.this, index, index);
+            }
+        }
+    };
+
+
+    private final FlashcardStorage storage;
+
+
+    // The number of cards per group of rows.
+    private int[] groupSizes;
+
+
+    // The binary indexed tree (1-based) over the groupSizes.
+    private int[] tree;
+
+
+    private int size;
+
+
+    // The flashcard objects that are (still) referenced by some other object.
+    private final HashMap<Integer, CardReference> cards = new HashMap<>();
+
+
+    private final ReferenceQueue<Flashcard> collectedCards = new ReferenceQueue<>();
+
+
+    public PagedFlashcardSeries(@NotNull FlashcardStorage storage) {
+
+        this.storage = storage;
+
+        int rowsCount = storage.getRowsCount();
+        int groupsCount = Integer.highestOneBit(Math.max(16, rowsCount / GROUP_SIZE + 1) - 1) * 2;
+        this.groupSizes = new int[groupsCount];
+        for (int row = 0; row < rowsCount; row++) {
+            if (!storage.isRemoved(row)) {
+                groupSizes[row / GROUP_SIZE]++;
+                size++;
+            }
+        }
+        this.tree = createTree(groupSizes);
+    }
+
+
+    private static @NotNull int[] createTree(@NotNull int[] groupSizes) {
+
+        int[] tree = new int[groupSizes.length + 1];
+        for (int i = 1; i < tree.length; i++) {
+            tree[i] += groupSizes[i - 1];
+            int parent = i + (i & -i);
+            if (parent < tree.length)
+                tree[parent] += tree[i];
+        }
+        return tree;
+    }
+
+
+    private void setRemoved(int row, boolean removed) {
+
+        storage.setRemoved(row, removed);
+
+        int group = row / GROUP_SIZE;
+        if (group >= groupSizes.length) {
+            int groupsCount = groupSizes.length;
+            while (group >= groupsCount)
+                groupsCount *= 2;
+            groupSizes = Arrays.copyOf(groupSizes, groupsCount);
+            tree = createTree(groupSizes);
+        }
+
+        int delta;
+        if (removed)
+            delta = -1;
+        else
+            delta = 1;
+        groupSizes[group] += delta;
+        for (int i = group + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+        size += delta;
+    }
+
+
+    /**
+     * @return The row of the given card, where the cards are ordered by their rows; i.e., the rank
+     *         0 denotes the card stored in the first row that is not removed.
+     */
+    private int rowOfRank(int rank) {
+
+        // find the group that contains the card
+        int group = 0;
+        int remaining = rank;
+        for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+            if (group + step < tree.length && tree[group + step] <= remaining) {
+                group += step;
+                remaining -= tree[group];
+            }
+        }
+
+        int row = group * GROUP_SIZE;
+        while (true) {
+            if (!storage.isRemoved(row)) {
+                if (remaining == 0)
+                    return row;
+                remaining--;
+            }
+            row++;
+        }
+    }
+
+
+    /**
+     * @return The number of cards stored in the rows before the given row.
+     */
+    private int rankOfRow(int row) {
+
+        int group = row / GROUP_SIZE;
+        int rank = 0;
+        for (int i = group; i > 0; i -= i & -i) {
+            rank += tree[i];
+        }
+        for (int r = group * GROUP_SIZE; r < row; r++) {
+            if (!storage.isRemoved(r))
+                rank++;
+        }
+        return rank;
+    }
+
+
+    private int rowOfIndex(int index) {
+
+        return rowOfRank(size - 1 - index);
+    }
+
+
+    private int indexOfRow(int row) {
+
+        return size - 1 - rankOfRow(row);
+    }
+
+
+    /**
+     * @return The index of the card with the given creation id or <code>-1</code> if the series
+     *         does not contain the card.
+     */
+    public int indexOfCreationID(int creationID) {
+
+        if (creationID < 0
+                || creationID >= storage.getRowsCount()
+                || storage.isRemoved(creationID))
+            return -1;
+        else
+            return indexOfRow(creationID);
+    }
+
+
+    /**
+     * @return The creation id (i.e., the row) of the card with the given index; the card is not
+     *         loaded.
+     */
+    public int getCreationIDAt(int index) throws IndexOutOfBoundsException {
+
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException(index + " >= " + size);
+
+        return rowOfIndex(index);
+    }
+
+
+    public @NotNull FlashcardStorage getStorage() {
+
+        return storage;
+    }
+
+
+    private @NotNull Flashcard card(int row) {
+
+        purgeCollectedCards();
+
+        CardReference reference = cards.get(row);
+        Flashcard flashcard = null;
+        if (reference != null)
+            flashcard = reference.get();
+        if (flashcard == null) {
+            flashcard = storage.load(row);
+            flashcard.addObserver(observer);
+            cacheCard(row, flashcard);
+        }
+        return flashcard;
+    }
+
+
+    private void cacheCard(int row, @NotNull Flashcard flashcard) {
+
+        cards.put(row, new CardReference(flashcard, row, collectedCards));
+    }
+
+
+    private void purgeCollectedCards() {
+
+        CardReference reference = (CardReference) collectedCards.poll();
+        while (reference != null) {
+            if (cards.get(reference.row) == reference)
+                cards.remove(reference.row);
+            reference = (CardReference) collectedCards.poll();
+        }
+    }
+
+
+    /**
+     * @return The number of the new row.
+     */
+    private int append(@NotNull Flashcard flashcard) {
+
+        flashcard.setCreationID(storage.getRowsCount());
+        int row = storage.append(flashcard);
+        assert row == flashcard.getCreationID();
+        return row;
+    }
+
+
+    /**
+     * The next creation id is the number of rows of the storage.
+     */
+    public int getNextCreationID() {
+
+        return storage.getRowsCount();
+    }
+
+
+    /**
+     * Does nothing; the creation id of a card is the number of its row and, hence, the next
+     * creation id is always the number of rows of the storage.
+     */
+    public void setNextCreationID(int nextCreationID) {
+
+        assert nextCreationID >= 0;
+
+        // nothing to do
+    }
+
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * de.tud.cs.se.flashcards.model.FlashcardSeries#addCard(de.tud.cs.se.flashcards.model.Flashcard)
+     */
+    public Command createAddCardCommand(@NotNull final Flashcard flashcard) {
+
+        return createAddCardsCommand(new Flashcard[] { flashcard });
+    }
+
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * de.tud.cs.se.flashcards.model.FlashcardSeries#createAddCardsCommand(de.tud.cs.se.flashcards.
+     * model.Flashcard[])
+     */
+    public Command createAddCardsCommand(@NotNull final Flashcard[] newFlashcards) {
+
+        return new Command() {
+
+            private final Flashcard[] flashcards = newFlashcards.clone();
+
+
+            // The cards are stored in the rows firstRow + flashcards.length - 1 (first card) to
+            // firstRow (last card).
+            private final int firstRow;
+
+            { // associate the cards with this list of flashcards
+                firstRow = storage.getRowsCount();
+                for (int i = flashcards.length - 1; i >= 0; i--) {
+                    append(flashcards[i]);
+                }
+            }
+
+
+            public void execute() {
+
+                if (flashcards.length == 0)
+                    return;
+
+                for (Flashcard flashcard : flashcards) {
+                    int row = flashcard.getCreationID();
+                    setRemoved(row, false);
+                    flashcard.addObserver(observer);
+                    cacheCard(row, flashcard);
+                }
+
+                int index = indexOfRow(firstRow + flashcards.length - 1);
+                int lastIndex = index + flashcards.length - 1;
+                fireIntervalAdded(PagedFlashcardSeries.this, index, lastIndex);
+            }
+
+
+            public void unexecute() {
+
+                if (flashcards.length == 0)
+                    return;
+
+                int index = indexOfRow(firstRow + flashcards.length - 1);
+                int lastIndex = index + flashcards.length - 1;
+                for (Flashcard flashcard : flashcards) {
+                    flashcard.removeObserver(observer);
+                    setRemoved(flashcard.getCreationID(), true);
+                }
+
+                fireIntervalRemoved(PagedFlashcardSeries.this, index, lastIndex);
+            }
+
+        };
+    }
+
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.tud.cs.se.flashcards.model.FlashcardSeries#removeCards(int[])
+     */
+    public Command createRemoveCardsCommand(@NotNull final int[] indices) {
+
+        return new Command() {
+
+            private final int[] rows;
+
+
+            // The runs of consecutive indices (see AbstractFlashcardSeries#runs).
+            private final int[] runs = runs(indices);
+
+            {
+                rows = new int[indices.length];
+                for (int i = 0; i < indices.length; i++) {
+                    rows[i] = rowOfIndex(indices[i]);
+                }
+            }
+
+
+            public void execute() {
+
+                // we have to start from the end to avoid deleting "arbitrary cards"
+                for (int run = runs.length - 2; run >= 0; run--) {
+                    for (int i = runs[run]; i < runs[run + 1]; i++) {
+                        setRemoved(rows[i], true);
+                    }
+                    fireIntervalRemoved(
+                            PagedFlashcardSeries.this,
+                            indices[runs[run]],
+                            indices[runs[run + 1] - 1]);
+                }
+            }
+
+
+            public void unexecute() {
+
+                for (int run = 0; run < runs.length - 1; run++) {
+                    for (int i = runs[run]; i < runs[run + 1]; i++) {
+                        setRemoved(rows[i], false);
+                    }
+                    fireIntervalAdded(
+                            PagedFlashcardSeries.this,
+                            indices[runs[run]],
+                            indices[runs[run + 1] - 1]);
+                }
+            }
+
+        };
+    }
+
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.tud.cs.se.flashcards.model.FlashcardSeries#getElementAt(int)
+     */
+    public @NotNull Flashcard getElementAt(int index) throws IndexOutOfBoundsException {
+
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException(index + " >= " + size);
+
+        return card(rowOfIndex(index));
+    }
+
+
+    /**
+     * Reads the columns from the storage; the storage is always up to date.
+     */
+    public void getColumns(@NotNull int[] columns, @NotNull int[][] values) {
+
+        // the first card is stored in the last row that is not removed
+        int index = 0;
+        for (int row = storage.getRowsCount() - 1; index < size; row--) {
+            if (storage.isRemoved(row))
+                continue;
+
+            for (int c = 0; c < columns.length; c++) {
+                values[c][index] = storage.getColumnValue(row, columns[c]);
+            }
+            index++;
+        }
+    }
+
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.tud.cs.se.flashcards.model.FlashcardSeries#contains(int, java.lang.String)
+     */
+    public boolean contains(int index, @NotNull String searchTerm)
+            throws IndexOutOfBoundsException {
+
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException(index + " >= " + size);
+
+        return storage.contains(rowOfIndex(index), searchTerm);
+    }
+
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.tud.cs.se.flashcards.model.FlashcardSeries#getSize()
+     */
+    public int getSize() {
+
+        return size;
+    }
+
+
+    /**
+     * @return <code>this</code>.
+     */
+    public FlashcardSeries getSourceModel() {
+
+        return this;
+    }
+
+
+    /**
+     * A weak reference to a flashcard that knows the row of the flashcard.
+     */
+    private static final class CardReference extends WeakReference<Flashcard> {
+
+        final int row;
+
+
+        CardReference(
+                @NotNull Flashcard flashcard,
+                int row,
+                @NotNull ReferenceQueue<Flashcard> queue) {
+
+            super(flashcard, queue);
+            this.row = row;
+        }
+    }
+}
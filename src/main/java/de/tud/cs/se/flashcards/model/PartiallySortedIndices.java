@@ -0,0 +1,233 @@
+/*  License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische
+ *    Universität Darmstadt nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.model;
+
+import java.util.BitSet;
+
+import de.tud.cs.st.constraints.NotNull;
+import de.tud.cs.util.Arrays;
+
+
+/**
+ * The indices of the cards of a series in sorted order, where only the prefix that was accessed so
+ * far is actually sorted.
+ * <p>
+ * The next cards are selected page by page using a heap that keeps the smallest cards (top-k
+ * selection); i.e., accessing the first cards of a series with n cards takes O(n log k) time
+ * instead of sorting all cards. Each page is twice as large as the previous page; hence, reading
+ * all cards in order selects O(log n) pages and takes O(n log n) time. When a large part of the
+ * cards is accessed, the remaining cards are sorted completely.
+ * </p>
+ *
+ * @author Michael Eichberg
+ */
+final class PartiallySortedIndices {
+
+    /**
+     * The minimum number of cards that are sorted when a card is accessed that is not yet
+     * sorted.
+     */
+    static final int PAGE_SIZE = 256;
+
+
+    // keys[k][uIndex] is the k-th key of the card with the index uIndex; the keys are not changed.
+    private final long[][] keys;
+
+
+    // The first sortedCount indices are sorted; the other indices are not ordered.
+    private final int[] uIndices;
+
+
+    private int sortedCount = 0;
+
+
+    // The size of the next page; doubled each time a page is selected.
+    private int pageSize = PAGE_SIZE;
+
+
+    // The cards of the current page; all bits are cleared after a page was selected.
+    private final BitSet selected;
+
+
+    PartiallySortedIndices(@NotNull long[][] keys, int size) {
+
+        this.keys = keys;
+        this.uIndices = new int[size];
+        this.selected = new BitSet(size);
+        for (int uIndex = 0; uIndex < size; uIndex++) {
+            uIndices[uIndex] = uIndex;
+        }
+    }
+
+
+    int size() {
+
+        return uIndices.length;
+    }
+
+
+    /**
+     * @return The index of the card with the given position in the sorted order.
+     */
+    int get(int position) throws IndexOutOfBoundsException {
+
+        if (position < 0 || position >= uIndices.length)
+            throw new IndexOutOfBoundsException(position + " >= " + uIndices.length);
+
+        if (position >= sortedCount)
+            sortUpTo(position);
+        return uIndices[position];
+    }
+
+
+    private void sortUpTo(int position) {
+
+        int remaining = uIndices.length - sortedCount;
+        int count = Math.min(Math.max(position + 1 - sortedCount, pageSize), remaining);
+        pageSize = (int) Math.min(2L * pageSize, Integer.MAX_VALUE);
+        if (count >= remaining / 4) {
+            // selecting the next cards would not be faster than sorting the remaining cards
+            int[] unsorted = java.util.Arrays.copyOfRange(uIndices, sortedCount, uIndices.length);
+            sort(keys, unsorted, false);
+            System.arraycopy(unsorted, 0, uIndices, sortedCount, remaining);
+            sortedCount = uIndices.length;
+            return;
+        }
+
+        // the heap contains the smallest cards seen so far; the greatest card is at the root
+        int[] heap = new int[count];
+        int heapSize = 0;
+        for (int i = sortedCount; i < uIndices.length; i++) {
+            int uIndex = uIndices[i];
+            if (heapSize < count) {
+                heap[heapSize] = uIndex;
+                siftUp(heap, heapSize++);
+            } else if (compare(uIndex, heap[0]) < 0) {
+                heap[0] = uIndex;
+                siftDown(heap, 0, heapSize);
+            }
+        }
+
+        // the greatest card is moved to the end of the heap until the heap is sorted
+        for (int uIndex : heap) {
+            selected.set(uIndex);
+        }
+        for (int end = count - 1; end > 0; end--) {
+            int greatest = heap[0];
+            heap[0] = heap[end];
+            heap[end] = greatest;
+            siftDown(heap, 0, end);
+        }
+
+        // the selected cards are moved to the front of the unsorted cards; the cards at the front
+        // that were not selected take the places of the selected cards
+        int target = sortedCount + count;
+        for (int i = sortedCount; i < sortedCount + count; i++) {
+            if (selected.get(uIndices[i]))
+                continue;
+
+            while (!selected.get(uIndices[target])) {
+                target++;
+            }
+            uIndices[target++] = uIndices[i];
+        }
+        System.arraycopy(heap, 0, uIndices, sortedCount, count);
+        sortedCount += count;
+        for (int uIndex : heap) {
+            selected.clear(uIndex);
+        }
+    }
+
+
+    private void siftUp(@NotNull int[] heap, int index) {
+
+        int uIndex = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (compare(heap[parent], uIndex) >= 0)
+                break;
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = uIndex;
+    }
+
+
+    private void siftDown(@NotNull int[] heap, int index, int heapSize) {
+
+        int uIndex = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= heapSize)
+                break;
+            if (child + 1 < heapSize && compare(heap[child + 1], heap[child]) > 0)
+                child++;
+            if (compare(uIndex, heap[child]) >= 0)
+                break;
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = uIndex;
+    }
+
+
+    private int compare(int uIndex1, int uIndex2) {
+
+        for (long[] column : keys) {
+            int v = Long.compare(column[uIndex1], column[uIndex2]);
+            if (v != 0)
+                return v;
+        }
+        return 0;
+    }
+
+
+    /**
+     * Sorts the given indices of cards by the keys of the cards (keys[k][uIndex] is the k-th key of
+     * the card with the index uIndex); since the sort is stable, the cards are first sorted by
+     * their last key, then by their second to last key etc.
+     */
+    static void sort(@NotNull long[][] keys, @NotNull int[] uIndices, boolean parallel) {
+
+        long[] column = new long[uIndices.length];
+        for (int k = keys.length - 1; k >= 0; k--) {
+            for (int i = 0; i < uIndices.length; i++) {
+                column[i] = keys[k][uIndices[i]];
+            }
+            if (parallel)
+                Arrays.parallelSort(column, uIndices);
+            else
+                Arrays.sort(column, uIndices);
+        }
+    }
+}
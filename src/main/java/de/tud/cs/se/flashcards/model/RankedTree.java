@@ -0,0 +1,347 @@
+/*  License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische
+ *    Universität Darmstadt nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.model;
+
+import de.tud.cs.st.constraints.NotNull;
+import de.tud.cs.st.constraints.Null;
+
+
+/**
+ * A balanced binary tree (a treap) that stores the size of each subtree; hence, inserting and
+ * removing a node, determining the rank of a node and getting the node with a given rank are
+ * O(log n) (expected).
+ * <p>
+ * The nodes are either ordered explicitly (see {@link #insert(int, Node)}) or by their keys (see
+ * {@link #insert(Node)}); keys are compared lexicographically.
+ * </p>
+ *
+ * @author Michael Eichberg
+ */
+final class RankedTree {
+
+    /**
+     * A node of a ranked tree; a node can only be contained in one tree.
+     */
+    static final class Node {
+
+        private Node left;
+
+
+        private Node right;
+
+
+        private Node parent;
+
+
+        private int size = 1;
+
+
+        private int priority;
+
+
+        /**
+         * The node that represents the same element in another tree.
+         */
+        Node partner;
+
+
+        /**
+         * The keys of the node; only relevant if the tree is ordered by the keys.
+         */
+        long[] keys;
+    }
+
+
+    private @Null Node root = null;
+
+
+    // The state of the (xorshift) random number generator that computes the priorities.
+    private int seed = 0x2545F491;
+
+
+    private int nextPriority() {
+
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+
+
+    private static int size(@Null Node node) {
+
+        if (node == null)
+            return 0;
+        else
+            return node.size;
+    }
+
+
+    private static void update(@NotNull Node node) {
+
+        node.size = 1 + size(node.left) + size(node.right);
+        if (node.left != null)
+            node.left.parent = node;
+        if (node.right != null)
+            node.right.parent = node;
+    }
+
+
+    private static @Null Node merge(@Null Node a, @Null Node b) {
+
+        if (a == null)
+            return b;
+        if (b == null)
+            return a;
+
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            update(a);
+            return a;
+        } else {
+            b.left = merge(a, b.left);
+            update(b);
+            return b;
+        }
+    }
+
+
+    /**
+     * Splits the given tree into the nodes with a rank smaller than the given rank (stored in
+     * trees[0]) and all other nodes (stored in trees[1]).
+     */
+    private static void split(@Null Node node, int rank, @NotNull Node[] trees) {
+
+        if (node == null) {
+            trees[0] = null;
+            trees[1] = null;
+        } else if (size(node.left) < rank) {
+            split(node.right, rank - size(node.left) - 1, trees);
+            node.right = trees[0];
+            update(node);
+            trees[0] = node;
+        } else {
+            split(node.left, rank, trees);
+            node.left = trees[1];
+            update(node);
+            trees[1] = node;
+        }
+    }
+
+
+    private void setRoot(@Null Node node) {
+
+        root = node;
+        if (node != null)
+            node.parent = null;
+    }
+
+
+    int size() {
+
+        return size(root);
+    }
+
+
+    /**
+     * @return The node with the given rank.
+     */
+    @NotNull Node get(int rank) throws IndexOutOfBoundsException {
+
+        if (rank < 0 || rank >= size())
+            throw new IndexOutOfBoundsException(rank + " >= " + size());
+
+        Node node = root;
+        int remaining = rank;
+        while (true) {
+            int leftSize = size(node.left);
+            if (remaining < leftSize) {
+                node = node.left;
+            } else if (remaining == leftSize) {
+                return node;
+            } else {
+                remaining -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+
+    /**
+     * @return The rank of the given node, which has to be contained in this tree.
+     */
+    int rank(@NotNull Node node) {
+
+        int rank = size(node.left);
+        Node child = node;
+        while (child.parent != null) {
+            if (child == child.parent.right)
+                rank += size(child.parent.left) + 1;
+            child = child.parent;
+        }
+        return rank;
+    }
+
+
+    /**
+     * Inserts the given node such that it gets the given rank.
+     */
+    void insert(int rank, @NotNull Node node) {
+
+        node.left = null;
+        node.right = null;
+        node.size = 1;
+        node.priority = nextPriority();
+
+        Node[] trees = new Node[2];
+        split(root, rank, trees);
+        setRoot(merge(merge(trees[0], node), trees[1]));
+    }
+
+
+    /**
+     * Inserts the given node after all nodes with keys that are not greater than the node's keys.
+     *
+     * @return The rank of the inserted node.
+     */
+    int insert(@NotNull Node node) {
+
+        int rank = 0;
+        Node current = root;
+        while (current != null) {
+            if (compare(node.keys, current.keys) < 0) {
+                current = current.left;
+            } else {
+                rank += size(current.left) + 1;
+                current = current.right;
+            }
+        }
+        insert(rank, node);
+        return rank;
+    }
+
+
+    private static int compare(@NotNull long[] keys1, @NotNull long[] keys2) {
+
+        for (int i = 0; i < keys1.length; i++) {
+            int v = Long.compare(keys1[i], keys2[i]);
+            if (v != 0)
+                return v;
+        }
+        return 0;
+    }
+
+
+    /**
+     * Removes the given node, which has to be contained in this tree.
+     */
+    void remove(@NotNull Node node) {
+
+        Node[] trees = new Node[2];
+        split(root, rank(node), trees);
+        Node smallerNodes = trees[0];
+        split(trees[1], 1, trees);
+        setRoot(merge(smallerNodes, trees[1]));
+
+        node.left = null;
+        node.right = null;
+        node.parent = null;
+        node.size = 1;
+    }
+
+
+    /**
+     * Replaces the nodes of this tree by the given nodes, which are stored in the given order;
+     * takes O(n) time.
+     */
+    void build(@NotNull Node[] nodes) {
+
+        // the nodes on the right spine of the tree built so far
+        Node[] spine = new Node[nodes.length];
+        int top = -1;
+        for (Node node : nodes) {
+            node.left = null;
+            node.right = null;
+            node.parent = null;
+            node.priority = nextPriority();
+
+            Node last = null;
+            while (top >= 0 && spine[top].priority < node.priority) {
+                last = spine[top--];
+            }
+            node.left = last;
+            if (top >= 0)
+                spine[top].right = node;
+            spine[++top] = node;
+        }
+
+        if (top >= 0) {
+            updateSizes(spine[0]);
+            setRoot(spine[0]);
+        } else {
+            setRoot(null);
+        }
+    }
+
+
+    private static void updateSizes(@NotNull Node node) {
+
+        if (node.left != null)
+            updateSizes(node.left);
+        if (node.right != null)
+            updateSizes(node.right);
+        update(node);
+    }
+
+
+    /**
+     * @return The nodes of this tree ordered by their ranks.
+     */
+    @NotNull Node[] toArray() {
+
+        Node[] nodes = new Node[size()];
+        collect(root, nodes, 0);
+        return nodes;
+    }
+
+
+    private static int collect(@Null Node node, @NotNull Node[] nodes, int index) {
+
+        if (node == null)
+            return index;
+
+        int nextIndex = collect(node.left, nodes, index);
+        nodes[nextIndex] = node;
+        return collect(node.right, nodes, nextIndex + 1);
+    }
+}
@@ -32,16 +32,16 @@
  */
 package de.tud.cs.se.flashcards.model;
 
-import java.time.LocalDate;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
+import javax.swing.SwingUtilities;
 import javax.swing.event.ListDataEvent;
 import javax.swing.event.ListDataListener;
 
 import de.tud.cs.st.constraints.NotNull;
+import de.tud.cs.st.constraints.Null;
 
 /**
  * Implementation of a flashcard list that is sorted.
@@ -53,111 +53,102 @@ import de.tud.cs.st.constraints.NotNull;
  */
 public final class SortedFlashcardSeries extends AbstractFlashcardSeries {
 
-    private final Comparator<Integer> timesRememberedInARow = new Comparator<Integer>() {
+    public FlashcardSortOrder timesRememberedInARowStrategy() {
+        return FlashcardSortOrder.TIMES_REMEMBERED_IN_A_ROW;
+    }
 
-        public int compare(Integer f1, Integer f2) {
 
-            int v = flashcardSeries.getElementAt(f1).getRememberedInARowCount()
-                    - flashcardSeries.getElementAt(f2).getRememberedInARowCount();
-            if (v != 0) {
-                return v;
-            } else {
-                return flashcardSeries.getElementAt(f1).getCreationID()
-                        - flashcardSeries.getElementAt(f2).getCreationID();
-            }
-        }
-    };
+    public FlashcardSortOrder lastTimeRememberedStrategy() {
+        return FlashcardSortOrder.LAST_TIME_REMEMBERED;
+    }
+
 
-    public Comparator<Integer> timesRememberedInARowStrategy() {
-        return timesRememberedInARow;
+    public FlashcardSortOrder dateCreatedStrategy() {
+        return FlashcardSortOrder.DATE_CREATED;
     }
 
+
     /**
-     * The order is "most recent - last"; i.e. the last card is the card that was remembered most
-     * recently. Cards that were remembered a long time ago (or never) are found at the very
-     * beginning.
+     * The underlying flashcard series.
      */
-    private final Comparator<Integer> lastTimeRemembered = new Comparator<Integer>() {
-
-        public int compare(Integer f1, Integer f2) {
-
-            LocalDate f1d = flashcardSeries.getElementAt(f1).getRemembered();
-            LocalDate f2d = flashcardSeries.getElementAt(f2).getRemembered();
-            if (f1d == null && f2d == null)
-                return flashcardSeries.getElementAt(f1).getCreationID()
-                        - flashcardSeries.getElementAt(f2).getCreationID();
-            if (f1d == null)
-                return -1;
-            if (f2d == null)
-                return Integer.MAX_VALUE;
-
-            int v = f1d.compareTo(f2d);
-            if (v != 0) {
-                return v;
-            } else {
-                return flashcardSeries.getElementAt(f1).getCreationID()
-                        - flashcardSeries.getElementAt(f2).getCreationID();
-            }
-        }
-    };
+    private final FlashcardSeries flashcardSeries;
 
-    public Comparator<Integer> lastTimeRememberedStrategy() {
-        return timesRememberedInARow;
-    }
 
+    // The cards of the underlying series in the order of the underlying series; the rank of a node
+    // is the index of the card in the underlying series. The partner of a node is the node that
+    // represents the same card in the sorted order.
+    private final RankedTree underlyingOrder = new RankedTree();
 
-    private final Comparator<Integer> dateCreated = new Comparator<Integer>() {
 
-        public int compare(Integer f1, Integer f2) {
+    // The cards of the underlying series in sorted order; the rank of a node is the index of the
+    // card in this series and the keys of a node are the sort keys of the card.
+    private final RankedTree sortedOrder = new RankedTree();
 
-            LocalDate f1d = flashcardSeries.getElementAt(f1).getCreated();
-            LocalDate f2d = flashcardSeries.getElementAt(f2).getCreated();
 
-            int v = f2d.compareTo(f1d);
-            if (v != 0) {
-                return v;
-            } else {
-                return flashcardSeries.getElementAt(f1).getCreationID()
-                        - flashcardSeries.getElementAt(f2).getCreationID();
-            }
-        }
-    };
+    private @NotNull FlashcardSortOrder sortingStrategy;
 
-    public Comparator<Integer> dateCreatedStrategy() {
-        return dateCreated;
-    }
+
+    /**
+     * Series with at least this number of cards are sorted in the background (see
+     * {@link #setSortingStrategy(FlashcardSortOrder)}).
+     */
+    static final int BACKGROUND_SORT_THRESHOLD = 1 << 17;
 
 
     /**
-     * The underlying flashcard series.
+     * The state of a sort that is done in the background (see
+     * {@link SortedFlashcardSeries#setSortingStrategy(FlashcardSortOrder)}).
      */
-    private final FlashcardSeries flashcardSeries;
+    private static final class BackgroundSort {
+
+        final @NotNull FlashcardSortOrder sortingStrategy;
+
+
+        // keys[k][uIndex] is the k-th key of the card with the index uIndex.
+        final @NotNull long[][] keys;
+
 
+        // The indices of the cards; sorted in the background.
+        final @NotNull int[] uIndices;
 
-    private final ArrayList<Integer> flashcardReferences = new ArrayList<>();
 
+        // The order of the cards that is shown while the cards are sorted.
+        final @NotNull PartiallySortedIndices preview;
+
+
+        @Null ForkJoinTask<?> task = null;
+
+
+        BackgroundSort(
+                @NotNull FlashcardSortOrder sortingStrategy,
+                @NotNull long[][] keys,
+                @NotNull int[] uIndices) {
+
+            this.sortingStrategy = sortingStrategy;
+            this.keys = keys;
+            this.uIndices = uIndices;
+            this.preview = new PartiallySortedIndices(keys, uIndices.length);
+        }
+    }
+
+
+    // The sort that is done in the background; null if the sorted order is up to date.
+    private @Null BackgroundSort backgroundSort = null;
 
-    private @NotNull Comparator<Integer> sortingStrategy;
 
     public SortedFlashcardSeries(@NotNull FlashcardSeries flashcardSeries) {
 
-        this.sortingStrategy = dateCreated;
+        this.sortingStrategy = FlashcardSortOrder.DATE_CREATED;
 
         this.flashcardSeries = flashcardSeries;
 
-        for (int i = 0; i < flashcardSeries.getSize(); i++)
-            flashcardReferences.add(i);
-        flashcardReferences.sort(sortingStrategy);
-
-        // u_ => underlying
-        // remap existing indices
-        // insert new references...
-        // u_ => underlying
-        // the position may have changed...
-        // negative if not included...
-        // u_ => underlying
-        // find indexes of references that we need to remove and remap the other indices
-        // let's updated this model
+        RankedTree.Node[] nodes = new RankedTree.Node[flashcardSeries.getSize()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = newNode();
+        }
+        underlyingOrder.build(nodes);
+        sort();
+
         ListDataListener listDataListener = new ListDataListener() {
 
             public void intervalAdded(ListDataEvent e) {
@@ -165,26 +156,19 @@ public final class SortedFlashcardSeries extends AbstractFlashcardSeries {
                 // u_ => underlying
                 int uStartIndex = e.getIndex0();
                 int uEndIndex = e.getIndex1();
-                int count = uEndIndex - uStartIndex + 1;
 
-                // remap existing indices
-                for (int i = 0; i < flashcardReferences.size(); i++) {
-                    if (flashcardReferences.get(i) >= uStartIndex)
-                        flashcardReferences.set(i, flashcardReferences.get(i) + count);
+                if (backgroundSort != null) {
+                    previewIntervalAdded(uStartIndex, uEndIndex);
+                    return;
                 }
-
-                // insert new references...
-                for (int uIndex = uStartIndex; uIndex <= uEndIndex; uIndex++) {
-                    int position = Collections.binarySearch(
-                            flashcardReferences,
-                            uIndex,
-                            SortedFlashcardSeries.this.sortingStrategy
-                    );
-                    if (position < 0)
-                        position = -position - 1;
-                    flashcardReferences.add(position, uIndex);
-                    fireIntervalAdded(SortedFlashcardSeries.this, position, position);
+                RankedTree.Node[] nodes = new RankedTree.Node[uEndIndex - uStartIndex + 1];
+                for (int i = 0; i < nodes.length; i++) {
+                    RankedTree.Node node = newNode();
+                    underlyingOrder.insert(uStartIndex + i, node);
+                    nodes[i] = node.partner;
+                    nodes[i].keys = keys(uStartIndex + i);
                 }
+                insertNodes(nodes);
             }
 
             public void contentsChanged(ListDataEvent e) {
@@ -193,26 +177,43 @@ public final class SortedFlashcardSeries extends AbstractFlashcardSeries {
                 int uStartIndex = e.getIndex0();
                 int uEndIndex = e.getIndex1();
 
-                for (int uIndex = uStartIndex; uIndex <= uEndIndex; uIndex++) {
-
-                    // the position may have changed...
-                    for (int index = 0; index < flashcardReferences.size(); index++) {
-                        if (flashcardReferences.get(index) >= uStartIndex
-                                && flashcardReferences.get(index) <= uEndIndex) {
-
-                            flashcardReferences.remove(index);
-                            fireIntervalRemoved(SortedFlashcardSeries.this, index, index);
-
-                            int position = Collections.binarySearch(
-                                    flashcardReferences,
-                                    uIndex,
-                                    SortedFlashcardSeries.this.sortingStrategy
-                            ); // negative if not included...
-                            if (position < 0)
-                                position = -position - 1;
-                            flashcardReferences.add(position, uIndex);
-                            fireIntervalAdded(SortedFlashcardSeries.this, position, position);
-                        }
+                if (backgroundSort != null) {
+                    previewContentsChanged(uStartIndex, uEndIndex);
+                    return;
+                }
+
+                // the positions of the cards with new keys may have changed; hence, we first remove
+                // these cards (the search for the new positions must only see cards that are in
+                // order)
+                int count = uEndIndex - uStartIndex + 1;
+                RankedTree.Node[] nodes = new RankedTree.Node[count];
+                long[][] keys = new long[count][];
+                boolean[] moved = new boolean[count];
+                int movedCount = 0;
+                for (int i = 0; i < count; i++) {
+                    RankedTree.Node node = underlyingOrder.get(uStartIndex + i).partner;
+                    long[] key = keys(uStartIndex + i);
+                    if (!Arrays.equals(key, node.keys)) {
+                        moved[i] = true;
+                        nodes[movedCount] = node;
+                        keys[movedCount++] = key;
+                    }
+                }
+                if (movedCount > 0) {
+                    RankedTree.Node[] movedNodes = Arrays.copyOf(nodes, movedCount);
+                    removeNodes(movedNodes);
+                    for (int i = 0; i < movedCount; i++) {
+                        movedNodes[i].keys = keys[i];
+                    }
+                    insertNodes(movedNodes);
+                }
+
+                // the cards with unchanged keys keep their positions
+                for (int i = 0; i < count; i++) {
+                    if (!moved[i]) {
+                        RankedTree.Node node = underlyingOrder.get(uStartIndex + i).partner;
+                        int position = sortedOrder.rank(node);
+                        fireContentsUpdated(SortedFlashcardSeries.this, position, position);
                     }
                 }
             }
@@ -222,30 +223,21 @@ public final class SortedFlashcardSeries extends AbstractFlashcardSeries {
                 // u_ => underlying
                 int uStartIndex = e.getIndex0();
                 int uEndIndex = e.getIndex1();
-                int count = uEndIndex - uStartIndex + 1;
 
-                // find indexes of references that we need to remove and remap the other indices
-                int[] indices = new int[count];
-                int j = 0;
-                for (int i = 0; i < flashcardReferences.size(); i++) {
-                    if (flashcardReferences.get(i) >= uStartIndex) {
-                        if (flashcardReferences.get(i) <= uEndIndex)
-                            indices[j++] = i;
-                        else
-                            flashcardReferences.set(i, flashcardReferences.get(i) - count);
-                    }
+                if (backgroundSort != null) {
+                    previewIntervalRemoved(uStartIndex, uEndIndex);
+                    return;
                 }
-                // let's updated this model
-                Arrays.sort(indices);
-                for (int i = indices.length - 1; i >= 0; i--) {
-                    flashcardReferences.remove(indices[i]);
+
+                // the underlying order has to reflect the underlying series before the events are
+                // fired; the listeners may access the cards that were not removed
+                RankedTree.Node[] nodes = new RankedTree.Node[uEndIndex - uStartIndex + 1];
+                for (int i = 0; i < nodes.length; i++) {
+                    RankedTree.Node node = underlyingOrder.get(uStartIndex);
+                    underlyingOrder.remove(node);
+                    nodes[i] = node.partner;
                 }
-                if (indices[indices.length - 1] - indices[0] + 1 == indices.length)
-                    fireIntervalRemoved(SortedFlashcardSeries.this, indices[0],
-                            indices[indices.length - 1]
-                    );
-                else
-                    fireContentsUpdated(SortedFlashcardSeries.this, 0, flashcardReferences.size());
+                removeNodes(nodes);
             }
         };
         flashcardSeries.addListDataListener(listDataListener);
@@ -253,6 +245,368 @@ public final class SortedFlashcardSeries extends AbstractFlashcardSeries {
     }
 
 
+    /**
+     * @return A new node for the underlying order, which is associated with a new node for the
+     *         sorted order.
+     */
+    private static @NotNull RankedTree.Node newNode() {
+
+        RankedTree.Node node = new RankedTree.Node();
+        node.partner = new RankedTree.Node();
+        node.partner.partner = node;
+        return node;
+    }
+
+
+    /**
+     * @return The index of the card represented by the given node of the sorted order w.r.t. the
+     *         underlying series.
+     */
+    private int underlyingIndex(@NotNull RankedTree.Node node) {
+
+        return underlyingOrder.rank(node.partner);
+    }
+
+
+    /**
+     * @return The index of the card with the given index w.r.t. the underlying series.
+     */
+    private int underlyingIndex(int index) throws IndexOutOfBoundsException {
+
+        if (backgroundSort != null)
+            return backgroundSort.preview.get(index);
+        else
+            return underlyingIndex(sortedOrder.get(index));
+    }
+
+
+    /**
+     * Handles cards that were added to the underlying series while a preview is shown. The sort
+     * in the background is restarted with the keys of the added cards; hence, the Event Dispatch
+     * Thread never waits for the background sort. The new cards are added at the end and the
+     * whole (new) preview is reported as changed.
+     */
+    private void previewIntervalAdded(int uStartIndex, int uEndIndex) {
+
+        BackgroundSort backgroundSort = this.backgroundSort;
+        int size = getSize();
+        int count = uEndIndex - uStartIndex + 1;
+        for (int i = 0; i < count; i++) {
+            RankedTree.Node node = newNode();
+            underlyingOrder.insert(uStartIndex + i, node);
+            // the sorted order is rebuilt when the sorted order is published
+            sortedOrder.insert(sortedOrder.size(), node.partner);
+        }
+
+        long[][] keys = new long[backgroundSort.keys.length][size + count];
+        for (int k = 0; k < keys.length; k++) {
+            System.arraycopy(backgroundSort.keys[k], 0, keys[k], 0, uStartIndex);
+            System.arraycopy(
+                    backgroundSort.keys[k],
+                    uStartIndex,
+                    keys[k],
+                    uEndIndex + 1,
+                    size - uStartIndex);
+        }
+        setKeys(backgroundSort.sortingStrategy, keys, uStartIndex, uEndIndex);
+        sortInBackground(backgroundSort.sortingStrategy, keys);
+
+        fireIntervalAdded(this, size, size + count - 1);
+        fireContentsUpdated(this, 0, size + count - 1);
+    }
+
+
+    /**
+     * Handles changed cards of the underlying series while a preview is shown; the sort in the
+     * background is only restarted if the keys of a card have changed.
+     */
+    private void previewContentsChanged(int uStartIndex, int uEndIndex) {
+
+        BackgroundSort backgroundSort = this.backgroundSort;
+        FlashcardSortOrder sortOrder = backgroundSort.sortingStrategy;
+        boolean keysChanged = false;
+        for (int uIndex = uStartIndex; uIndex <= uEndIndex && !keysChanged; uIndex++) {
+            long[] key = sortOrder.keys(flashcardSeries.getElementAt(uIndex));
+            for (int k = 0; k < key.length; k++) {
+                keysChanged |= key[k] != backgroundSort.keys[k][uIndex];
+            }
+        }
+        if (keysChanged) {
+            // the keys are read by the background sort; hence, they are copied
+            long[][] keys = new long[backgroundSort.keys.length][];
+            for (int k = 0; k < keys.length; k++) {
+                keys[k] = backgroundSort.keys[k].clone();
+            }
+            setKeys(sortOrder, keys, uStartIndex, uEndIndex);
+            sortInBackground(sortOrder, keys);
+        }
+
+        // the positions of the changed cards in the preview are not known
+        fireContentsUpdated(this, 0, getSize() - 1);
+    }
+
+
+    /**
+     * Handles cards that were removed from the underlying series while a preview is shown; the
+     * sort in the background is restarted without the removed cards.
+     */
+    private void previewIntervalRemoved(int uStartIndex, int uEndIndex) {
+
+        BackgroundSort backgroundSort = this.backgroundSort;
+        int size = getSize();
+        int count = uEndIndex - uStartIndex + 1;
+        for (int i = 0; i < count; i++) {
+            RankedTree.Node node = underlyingOrder.get(uStartIndex);
+            underlyingOrder.remove(node);
+            sortedOrder.remove(node.partner);
+        }
+
+        long[][] keys = new long[backgroundSort.keys.length][size - count];
+        for (int k = 0; k < keys.length; k++) {
+            System.arraycopy(backgroundSort.keys[k], 0, keys[k], 0, uStartIndex);
+            System.arraycopy(
+                    backgroundSort.keys[k],
+                    uEndIndex + 1,
+                    keys[k],
+                    uStartIndex,
+                    size - uEndIndex - 1);
+        }
+        sortInBackground(backgroundSort.sortingStrategy, keys);
+
+        fireIntervalRemoved(this, size - count, size - 1);
+        if (size > count)
+            fireContentsUpdated(this, 0, size - count - 1);
+    }
+
+
+    /**
+     * Stores the keys of the cards with the given indices w.r.t. the underlying series in keys.
+     */
+    private void setKeys(
+            @NotNull FlashcardSortOrder sortOrder,
+            @NotNull long[][] keys,
+            int uStartIndex,
+            int uEndIndex) {
+
+        for (int uIndex = uStartIndex; uIndex <= uEndIndex; uIndex++) {
+            long[] key = sortOrder.keys(flashcardSeries.getElementAt(uIndex));
+            for (int k = 0; k < keys.length; k++) {
+                keys[k][uIndex] = key[k];
+            }
+        }
+    }
+
+
+    /**
+     * Sorts the cards with the given keys (keys[k][uIndex] is the k-th key of the card with the
+     * index uIndex) in the background and shows a preview of the new order; a sort that is still
+     * running is abandoned. No event is fired.
+     */
+    private void sortInBackground(
+            @NotNull FlashcardSortOrder sortingStrategy,
+            @NotNull long[][] keys) {
+
+        if (this.backgroundSort != null)
+            this.backgroundSort.task.cancel(false);
+
+        int[] uIndices = new int[underlyingOrder.size()];
+        for (int uIndex = 0; uIndex < uIndices.length; uIndex++) {
+            uIndices[uIndex] = uIndex;
+        }
+        BackgroundSort backgroundSort = new BackgroundSort(sortingStrategy, keys, uIndices);
+        backgroundSort.task = ForkJoinPool.commonPool().submit(() -> {
+            PartiallySortedIndices.sort(keys, uIndices, true);
+            SwingUtilities.invokeLater(() -> publish(backgroundSort));
+        });
+        this.backgroundSort = backgroundSort;
+    }
+
+
+    /**
+     * Publishes the order that was computed in the background unless the sorting strategy was set
+     * again in the meantime or the order was already published. The cards that were shown in the
+     * preview already have their final positions; hence, no event is necessary.
+     */
+    private void publish(@NotNull BackgroundSort backgroundSort) {
+
+        if (this.backgroundSort != backgroundSort)
+            return;
+
+        sortingStrategy = backgroundSort.sortingStrategy;
+        build(backgroundSort.keys, backgroundSort.uIndices);
+        this.backgroundSort = null;
+    }
+
+
+    /**
+     * @return The sort keys of the card with the given index w.r.t. the underlying series.
+     */
+    private @NotNull long[] keys(int uIndex) {
+
+        return sortingStrategy.keys(flashcardSeries.getElementAt(uIndex));
+    }
+
+
+    /**
+     * Computes the keys of all cards and sorts the cards; takes O(n) time.
+     */
+    private void sort() {
+
+        long[][] keys = new long[sortingStrategy.getKeysCount()][underlyingOrder.size()];
+        int[] uIndices = new int[underlyingOrder.size()];
+        computeKeys(sortingStrategy, keys, uIndices);
+        PartiallySortedIndices.sort(keys, uIndices, false);
+        build(keys, uIndices);
+    }
+
+
+    /**
+     * Stores the keys of the cards of the underlying series w.r.t. the given sort order in keys
+     * (keys[k][uIndex] is the k-th key of the card with the index uIndex) and the index of each
+     * card in uIndices. The keys that are stored in columns are read using
+     * {@link FlashcardSeries#getColumns(int[], int[][])}; hence, the cards of a lazily loaded
+     * series are not loaded.
+     */
+    private void computeKeys(
+            @NotNull FlashcardSortOrder sortOrder,
+            @NotNull long[][] keys,
+            @NotNull int[] uIndices) {
+
+        int[] columns = new int[keys.length];
+        int columnsCount = 0;
+        for (int k = 0; k < keys.length; k++) {
+            if (sortOrder.getColumn(k) != -1)
+                columns[columnsCount++] = sortOrder.getColumn(k);
+        }
+        int[][] values = new int[columnsCount][uIndices.length];
+        flashcardSeries.getColumns(Arrays.copyOf(columns, columnsCount), values);
+
+        int c = 0;
+        for (int k = 0; k < keys.length; k++) {
+            if (sortOrder.getColumn(k) != -1) {
+                int[] column = values[c++];
+                for (int uIndex = 0; uIndex < uIndices.length; uIndex++) {
+                    keys[k][uIndex] = sortOrder.key(column[uIndex], k);
+                }
+            } else {
+                for (int uIndex = 0; uIndex < uIndices.length; uIndex++) {
+                    keys[k][uIndex] = sortOrder.key(flashcardSeries.getElementAt(uIndex), k);
+                }
+            }
+        }
+        for (int uIndex = 0; uIndex < uIndices.length; uIndex++) {
+            uIndices[uIndex] = uIndex;
+        }
+    }
+
+
+    /**
+     * Rebuilds the sorted order given the keys and the sorted indices of the cards of the
+     * underlying series.
+     */
+    private void build(@NotNull long[][] keys, @NotNull int[] uIndices) {
+
+        RankedTree.Node[] nodes = underlyingOrder.toArray();
+        RankedTree.Node[] sortedNodes = new RankedTree.Node[nodes.length];
+        for (int i = 0; i < sortedNodes.length; i++) {
+            int uIndex = uIndices[i];
+            RankedTree.Node node = nodes[uIndex].partner;
+            node.keys = new long[keys.length];
+            for (int k = 0; k < keys.length; k++) {
+                node.keys[k] = keys[k][uIndex];
+            }
+            sortedNodes[i] = node;
+        }
+        sortedOrder.build(sortedNodes);
+    }
+
+
+    /**
+     * @return The ranks of the given nodes (of the sorted order) in ascending order; a rank is
+     *         stored in the upper 32 bits and the index of the node in the lower 32 bits.
+     */
+    private @NotNull long[] sortedRanks(@NotNull RankedTree.Node[] nodes) {
+
+        long[] ranks = new long[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            ranks[i] = ((long) sortedOrder.rank(nodes[i]) << 32) | i;
+        }
+        Arrays.sort(ranks);
+        return ranks;
+    }
+
+
+    /**
+     * @return The runs of consecutive ranks (see AbstractFlashcardSeries#runs).
+     */
+    private static @NotNull int[] runs(@NotNull long[] ranks) {
+
+        int[] positions = new int[ranks.length];
+        for (int i = 0; i < ranks.length; i++) {
+            positions[i] = (int) (ranks[i] >>> 32);
+        }
+        return runs(positions);
+    }
+
+
+    /**
+     * Inserts the given nodes into the sorted order; one event is fired per run of consecutive
+     * positions and each event reflects the state of this series when it is fired.
+     */
+    private void insertNodes(@NotNull RankedTree.Node[] nodes) {
+
+        if (nodes.length == 1) {
+            int position = sortedOrder.insert(nodes[0]);
+            fireIntervalAdded(this, position, position);
+            return;
+        }
+
+        // to determine the runs, we have to know the final positions of all nodes
+        for (RankedTree.Node node : nodes) {
+            sortedOrder.insert(node);
+        }
+        long[] ranks = sortedRanks(nodes);
+        for (RankedTree.Node node : nodes) {
+            sortedOrder.remove(node);
+        }
+
+        // the nodes of the lower runs precede the nodes of the higher runs; hence, inserting the
+        // runs in ascending order yields the final positions
+        int[] runs = runs(ranks);
+        for (int run = 0; run < runs.length - 1; run++) {
+            for (int i = runs[run]; i < runs[run + 1]; i++) {
+                sortedOrder.insert((int) (ranks[i] >>> 32), nodes[(int) ranks[i]]);
+            }
+            fireIntervalAdded(
+                    this,
+                    (int) (ranks[runs[run]] >>> 32),
+                    (int) (ranks[runs[run + 1] - 1] >>> 32));
+        }
+    }
+
+
+    /**
+     * Removes the given nodes from the sorted order; one event is fired per run of consecutive
+     * positions.
+     */
+    private void removeNodes(@NotNull RankedTree.Node[] nodes) {
+
+        long[] ranks = sortedRanks(nodes);
+
+        // we have to start from the end to keep the positions of the other runs valid
+        int[] runs = runs(ranks);
+        for (int run = runs.length - 2; run >= 0; run--) {
+            for (int i = runs[run]; i < runs[run + 1]; i++) {
+                sortedOrder.remove(nodes[(int) ranks[i]]);
+            }
+            fireIntervalRemoved(
+                    this,
+                    (int) (ranks[runs[run]] >>> 32),
+                    (int) (ranks[runs[run + 1] - 1] >>> 32));
+        }
+    }
+
+
     public int getNextCreationID() {
 
         return flashcardSeries.getNextCreationID();
@@ -265,12 +619,49 @@ public final class SortedFlashcardSeries extends AbstractFlashcardSeries {
     }
 
 
-    public void setSortingStrategy(Comparator<Integer> sortingStrategy) {
+    /**
+     * Sorts the cards using the given strategy; one <code>contentsChanged</code> event is fired
+     * when the cards are sorted.
+     * <p>
+     * Series with at least {@link #BACKGROUND_SORT_THRESHOLD} cards are sorted in the background
+     * by all available processors. Until the sorted order is published (on the Event Dispatch
+     * Thread) this series shows a preview of the new order where only those cards are sorted
+     * that are accessed (see {@link PartiallySortedIndices}); hence, the first cards are available
+     * immediately. Only the keys are computed by the calling thread, because the cards are
+     * confined to the Event Dispatch Thread. If the underlying series is changed before the
+     * sorted order is published, the sort is restarted with the changed keys; the calling thread
+     * never waits for the background sort.
+     * </p>
+     */
+    public void setSortingStrategy(@NotNull FlashcardSortOrder sortingStrategy) {
+
+        int size = getSize();
+        if (size < BACKGROUND_SORT_THRESHOLD) {
+            this.sortingStrategy = sortingStrategy;
+            sort();
+            backgroundSort = null;
+
+            fireContentsUpdated(this, 0, size - 1);
+            return;
+        }
 
-        this.sortingStrategy = sortingStrategy;
-        flashcardReferences.sort(sortingStrategy);
+        long[][] keys = new long[sortingStrategy.getKeysCount()][size];
+        computeKeys(sortingStrategy, keys, new int[size]);
 
-        fireContentsUpdated(this, 0, flashcardReferences.size() - 1);
+        // the cards are shown in the new order while they are sorted; only the accessed cards are
+        // actually sorted
+        sortInBackground(sortingStrategy, keys);
+        fireContentsUpdated(this, 0, size - 1);
+    }
+
+
+    /**
+     * @return <code>true</code> if the cards are sorted in the background and a preview of the
+     *         new order is shown.
+     */
+    boolean showsPreview() {
+
+        return backgroundSort != null;
     }
 
 
@@ -283,6 +674,7 @@ public final class SortedFlashcardSeries extends AbstractFlashcardSeries {
     }
 
 
+
     public Command createAddCardCommand(@NotNull Flashcard flashcard) {
 
         return flashcardSeries.createAddCardCommand(flashcard);
@@ -290,12 +682,19 @@ public final class SortedFlashcardSeries extends AbstractFlashcardSeries {
     }
 
 
+    public Command createAddCardsCommand(@NotNull Flashcard[] flashcards) {
+
+        return flashcardSeries.createAddCardsCommand(flashcards);
+
+    }
+
+
     public Command createRemoveCardsCommand(int[] indices) {
 
         // remap indices
         int[] realIndices = new int[indices.length];
         for (int i = indices.length - 1; i >= 0; i--) {
-            realIndices[i] = flashcardReferences.get(indices[i]);
+            realIndices[i] = underlyingIndex(indices[i]);
         }
 
         Arrays.sort(realIndices);
@@ -307,12 +706,12 @@ public final class SortedFlashcardSeries extends AbstractFlashcardSeries {
 
     public Flashcard getElementAt(int index) throws IndexOutOfBoundsException {
 
-        return flashcardSeries.getElementAt(flashcardReferences.get(index));
+        return flashcardSeries.getElementAt(underlyingIndex(index));
     }
 
 
     public int getSize() {
 
-        return flashcardReferences.size();
+        return sortedOrder.size();
     }
 }
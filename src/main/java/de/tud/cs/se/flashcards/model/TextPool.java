@@ -0,0 +1,89 @@
+/*  License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische
+ *    Universität Darmstadt nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.model;
+
+import de.tud.cs.st.constraints.NotNull;
+
+
+/**
+ * A pool of the (short) texts of the flashcards; ensures that most equal texts – e.g., the
+ * answer "dog" of several cards – are represented by the same string object.
+ * <p>
+ * The pool is a fixed size table of strings that is indexed by the hash codes of the strings. If
+ * two texts are mapped to the same entry, the older text is replaced; i.e., the pool never grows
+ * and does not require any memory per text. The pool can be used by multiple threads without
+ * synchronization: strings are immutable and, in the worst case, a race causes a text to not be
+ * shared.
+ * </p>
+ *
+ * @author Michael Eichberg
+ */
+final class TextPool {
+
+    /**
+     * Longer texts are not pooled; they are rarely equal and comparing them is expensive.
+     */
+    static final int MAX_LENGTH = 64;
+
+
+    // The capacity has to be a power of two.
+    private static final int CAPACITY = 1 << 14;
+
+
+    private static final String[] texts = new String[CAPACITY];
+
+
+    private TextPool() {
+
+        // nothing to do
+    }
+
+
+    /**
+     * @return A string that is equal to the given text; if possible, the pooled string.
+     */
+    static @NotNull String intern(@NotNull String text) {
+
+        if (text.length() > MAX_LENGTH)
+            return text;
+
+        int hash = text.hashCode();
+        int entry = (hash ^ (hash >>> 16)) & (CAPACITY - 1);
+        String pooledText = texts[entry];
+        if (text.equals(pooledText))
+            return pooledText;
+
+        texts[entry] = text;
+        return text;
+    }
+}
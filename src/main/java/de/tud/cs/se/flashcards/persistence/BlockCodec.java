@@ -0,0 +1,84 @@
+/*  License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische
+ *    Universität Darmstadt nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import de.tud.cs.st.constraints.NotNull;
+
+
+/**
+ * Encodes (e.g., compresses) the blocks of a deck file. Each block is encoded independently;
+ * hence, blocks can be decoded in any order and in parallel.
+ * <p>
+ * Implementations have to be thread-safe. To be able to read files that use a custom codec, the
+ * codec has to be {@link BlockCodecs#register(BlockCodec) registered}.
+ * </p>
+ *
+ * @author Michael Eichberg
+ */
+public interface BlockCodec {
+
+    /**
+     * @return The id that is stored in a file to identify the codec; the ids 0 to 15 are reserved.
+     */
+    int getID();
+
+
+    /**
+     * @return The name of the codec.
+     */
+    @NotNull String getName();
+
+
+    /**
+     * Encodes the first <code>length</code> bytes of the given block.
+     *
+     * @return The encoded block; the array is completely used.
+     */
+    @NotNull byte[] encode(@NotNull byte[] block, int length) throws IOException;
+
+
+    /**
+     * Decodes the remaining bytes of the given buffer.
+     *
+     * @param decodedLength
+     *           the length of the decoded block.
+     * @return A buffer with position 0 and limit <code>decodedLength</code> that contains the
+     *         decoded block; the buffer may share its content with the given buffer.
+     * @throws IOException
+     *            if the encoded block is corrupt.
+     */
+    @NotNull ByteBuffer decode(@NotNull ByteBuffer encoded, int decodedLength) throws IOException;
+}
@@ -0,0 +1,205 @@
+/*  License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische
+ *    Universität Darmstadt nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import de.tud.cs.st.constraints.NotNull;
+import de.tud.cs.st.constraints.Null;
+
+
+/**
+ * The registry of all block codecs; the codecs {@link #NONE} and {@link #DEFLATE} are always
+ * available.
+ *
+ * @author Michael Eichberg
+ */
+public final class BlockCodecs {
+
+    /**
+     * Stores the blocks as is; uncompressed blocks of memory-mapped files can be decoded without
+     * copying them.
+     */
+    public static final @NotNull BlockCodec NONE = new BlockCodec() {
+
+        public int getID() {
+
+            return 0;
+        }
+
+
+        public String getName() {
+
+            return "None";
+        }
+
+
+        public byte[] encode(byte[] block, int length) {
+
+            return Arrays.copyOf(block, length);
+        }
+
+
+        public ByteBuffer decode(ByteBuffer encoded, int decodedLength) throws IOException {
+
+            if (encoded.remaining() != decodedLength)
+                throw new IOException("invalid block length: " + encoded.remaining());
+
+            return encoded.slice();
+        }
+    };
+
+
+    /**
+     * Compresses the blocks using the Deflate algorithm and the zlib format (see {@link Deflater}).
+     */
+    public static final @NotNull BlockCodec DEFLATE = new BlockCodec() {
+
+        public int getID() {
+
+            return 1;
+        }
+
+
+        public String getName() {
+
+            return "Deflate";
+        }
+
+
+        public byte[] encode(byte[] block, int length) {
+
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+            try {
+                deflater.setInput(block, 0, length);
+                deflater.finish();
+                // natural-language text is usually compressed to less than half of its size
+                byte[] encoded = new byte[length / 2 + 64];
+                int encodedLength = 0;
+                while (!deflater.finished()) {
+                    if (encodedLength == encoded.length)
+                        encoded = Arrays.copyOf(encoded, encoded.length * 2);
+                    encodedLength += deflater.deflate(
+                            encoded,
+                            encodedLength,
+                            encoded.length - encodedLength);
+                }
+                return Arrays.copyOf(encoded, encodedLength);
+            } finally {
+                deflater.end();
+            }
+        }
+
+
+        public ByteBuffer decode(ByteBuffer encoded, int decodedLength) throws IOException {
+
+            byte[] input;
+            int offset;
+            int length = encoded.remaining();
+            if (encoded.hasArray()) {
+                input = encoded.array();
+                offset = encoded.arrayOffset() + encoded.position();
+            } else {
+                input = new byte[length];
+                encoded.duplicate().get(input);
+                offset = 0;
+            }
+
+            // the zlib format includes a checksum of the decoded block
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(input, offset, length);
+                // the extra byte is used to detect blocks that are longer than expected
+                byte[] decoded = new byte[decodedLength + 1];
+                int decodedCount = 0;
+                while (!inflater.finished()) {
+                    int count = inflater.inflate(
+                            decoded,
+                            decodedCount,
+                            decoded.length - decodedCount);
+                    decodedCount += count;
+                    if (decodedCount > decodedLength
+                            || (count == 0 && (inflater.needsInput() || inflater.needsDictionary())))
+                        throw new IOException("the compressed block is corrupt");
+                }
+                if (decodedCount != decodedLength || inflater.getRemaining() > 0)
+                    throw new IOException("the compressed block is corrupt");
+                return ByteBuffer.wrap(decoded, 0, decodedLength);
+            } catch (DataFormatException e) {
+                throw new IOException("the compressed block is corrupt", e);
+            } finally {
+                inflater.end();
+            }
+        }
+    };
+
+
+    private static final Map<Integer, BlockCodec> CODECS = new ConcurrentHashMap<>();
+
+    static {
+        register(NONE);
+        register(DEFLATE);
+    }
+
+
+    private BlockCodecs() {
+        // prevent initialization
+    }
+
+
+    /**
+     * Registers the given codec; a codec with the same id must not be registered.
+     */
+    public static void register(@NotNull BlockCodec codec) {
+
+        if (CODECS.putIfAbsent(codec.getID(), codec) != null)
+            throw new IllegalArgumentException("a codec with the id " + codec.getID()
+                    + " is already registered");
+    }
+
+
+    /**
+     * @return The codec with the given id or <code>null</code> if no such codec is registered.
+     */
+    public static @Null BlockCodec forID(int id) {
+
+        return CODECS.get(id);
+    }
+}
@@ -0,0 +1,641 @@
+/*  License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische
+ *    Universität Darmstadt nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.persistence;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import de.tud.cs.se.flashcards.model.Flashcard;
+import de.tud.cs.se.flashcards.model.FlashcardColumns;
+import de.tud.cs.st.constraints.NotNull;
+
+
+/**
+ * Encoding and decoding of the binary, column oriented file format of flashcard series.
+ * <p>
+ * A file starts with a fixed-size header: the magic number, the format version, the next
+ * creation id, the number of cards, the id of the {@link BlockCodec} that was used to encode
+ * the blocks, the length and a checksum (CRC-32) of the rest of the file (the body) and a
+ * checksum of the preceding header fields. Hence, a corrupt header or a truncated file is
+ * detected before any card is decoded (see {@link #readHeader(ByteBuffer, long)}); the checksum
+ * of the body is verified when the file is read completely. The header is followed by the
+ * blocks; each block stores the cards of a contiguous range and starts with the number of cards,
+ * the length of the encoded block and the length of the decoded block. The decoded block is a
+ * segment (see {@link DeckSegment}): one column per statistic of the cards (each column stores
+ * one int per card; dates are stored as epoch days) followed by the questions and answers of the
+ * cards which are stored as length prefixed UTF-8 byte sequences. All values are stored using
+ * big-endian byte order.
+ * </p>
+ *
+ * @author Michael Eichberg
+ */
+final class DeckFormat {
+
+    /**
+     * The first four bytes of every file ("FLCD").
+     */
+    static final int MAGIC = 0x464C4344;
+
+
+    static final int VERSION = 1;
+
+
+    /**
+     * Encodes a missing date (e.g., if a card was never remembered).
+     */
+    static final int NO_DATE = FlashcardColumns.NO_DATE;
+
+
+    /**
+     * The size of the header in bytes.
+     */
+    static final int HEADER_SIZE = 36;
+
+
+    private static final int BODY_LENGTH_OFFSET = 20;
+
+
+    private static final int BODY_CHECKSUM_OFFSET = 28;
+
+
+    private static final int HEADER_CHECKSUM_OFFSET = 32;
+
+
+    /**
+     * The size of the header of each block in bytes.
+     */
+    static final int BLOCK_HEADER_SIZE = 12;
+
+
+    /**
+     * The (minimum) size of a decoded block; a block contains all cards that fit into this size,
+     * but at least one card.
+     */
+    static final int BLOCK_SIZE = 64 * 1024;
+
+
+    /**
+     * The maximum size of a decoded block; i.e., of a block that stores a single card with very
+     * long texts. Larger blocks are not written and are considered to be corrupt when read.
+     */
+    static final int MAX_BLOCK_SIZE = 64 * 1024 * 1024;
+
+
+    // The indices of the columns (the columns of a file are the FlashcardColumns):
+
+    static final int CREATION_ID = FlashcardColumns.CREATION_ID;
+
+
+    static final int CREATED = FlashcardColumns.CREATED;
+
+
+    static final int REMEMBERED = FlashcardColumns.REMEMBERED;
+
+
+    static final int NOT_REMEMBERED = FlashcardColumns.NOT_REMEMBERED;
+
+
+    static final int SHOWN_COUNT = FlashcardColumns.SHOWN_COUNT;
+
+
+    static final int NOT_REMEMBERED_COUNT = FlashcardColumns.NOT_REMEMBERED_COUNT;
+
+
+    static final int REMEMBERED_IN_A_ROW_COUNT = FlashcardColumns.REMEMBERED_IN_A_ROW_COUNT;
+
+
+    static final int COLUMNS_COUNT = FlashcardColumns.COLUMNS_COUNT;
+
+
+    /**
+     * The minimum number of bytes required per card: its columns and the lengths of its texts.
+     */
+    private static final int MIN_CARD_SIZE = COLUMNS_COUNT * 4 + 8;
+
+
+    private DeckFormat() {
+        // prevent initialization
+    }
+
+
+    /**
+     * The validated header of a file.
+     */
+    static final class Header {
+
+        final int nextCreationID;
+
+
+        final int size;
+
+
+        final @NotNull BlockCodec codec;
+
+
+        /**
+         * The length of the rest of the file in bytes.
+         */
+        final long bodyLength;
+
+
+        /**
+         * The checksum (CRC-32) of the rest of the file.
+         */
+        final int bodyChecksum;
+
+
+        Header(
+                int nextCreationID,
+                int size,
+                @NotNull BlockCodec codec,
+                long bodyLength,
+                int bodyChecksum) {
+
+            this.nextCreationID = nextCreationID;
+            this.size = size;
+            this.codec = codec;
+            this.bodyLength = bodyLength;
+            this.bodyChecksum = bodyChecksum;
+        }
+    }
+
+
+    /**
+     * Reads and validates the header of a file; the buffer has to start with the first byte of
+     * the file and has to contain the first {@link #HEADER_SIZE} bytes (or the complete file, if
+     * the file is smaller).
+     * <p>
+     * Only the header is inspected; hence, the costs are independent of the size of the file.
+     * </p>
+     *
+     * @param fileSize
+     *           the size of the complete file.
+     * @throws IOException
+     *            if the file is not a flashcards file, uses an unsupported version, is truncated
+     *            or the header is corrupt.
+     */
+    static @NotNull Header readHeader(@NotNull ByteBuffer buffer, long fileSize)
+            throws IOException {
+
+        if (fileSize < 8 || buffer.limit() < 8)
+            throw new IOException("the file is truncated");
+        if (buffer.getInt(0) != MAGIC)
+            throw new IOException("unknown file format");
+
+        int version = buffer.getInt(4);
+        if (version != VERSION)
+            throw new IOException("unsupported file format version: " + version);
+        if (fileSize < HEADER_SIZE || buffer.limit() < HEADER_SIZE)
+            throw new IOException("the file is truncated");
+        if (buffer.getInt(HEADER_CHECKSUM_OFFSET) != checksum(buffer, HEADER_CHECKSUM_OFFSET))
+            throw new IOException("the file is corrupt (invalid header checksum)");
+
+        int nextCreationID = buffer.getInt(8);
+        if (nextCreationID < 0)
+            throw new IOException("the file is corrupt (invalid next creation id: "
+                    + nextCreationID + ")");
+        int size = buffer.getInt(12);
+        BlockCodec codec = codec(size, buffer.getInt(16));
+
+        long bodyLength = fileSize - HEADER_SIZE;
+        if (buffer.getLong(BODY_LENGTH_OFFSET) > bodyLength)
+            throw new IOException("the file is truncated");
+        if (buffer.getLong(BODY_LENGTH_OFFSET) < bodyLength)
+            throw new IOException("the file is corrupt (unexpected trailing data)");
+        // every block stores at least one card
+        if (size > 0 && bodyLength < BLOCK_HEADER_SIZE)
+            throw new IOException("the file is truncated");
+
+        return new Header(
+                nextCreationID,
+                size,
+                codec,
+                bodyLength,
+                buffer.getInt(BODY_CHECKSUM_OFFSET));
+    }
+
+
+    /**
+     * @return A fingerprint of the content of a file or -1 if the buffer does not start with a
+     *         valid header (e.g., because the file was stored using Java Serialization). The
+     *         fingerprint consists of the checksum of the body and of the header's checksum,
+     *         which also covers the body's length.
+     */
+    static long fingerprint(@NotNull ByteBuffer buffer) {
+
+        if (buffer.limit() < HEADER_SIZE
+                || buffer.getInt(0) != MAGIC
+                || buffer.getInt(4) != VERSION)
+            return -1L;
+
+        int headerChecksum = buffer.getInt(HEADER_CHECKSUM_OFFSET);
+        if (headerChecksum != checksum(buffer, HEADER_CHECKSUM_OFFSET))
+            return -1L;
+        return (long) buffer.getInt(BODY_CHECKSUM_OFFSET) << 32 | headerChecksum & 0xFFFFFFFFL;
+    }
+
+
+    /**
+     * @return The checksum of the first <code>length</code> bytes of the header.
+     */
+    private static int checksum(@NotNull ByteBuffer header, int length) {
+
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < length; i++) {
+            crc.update(header.get(i));
+        }
+        return (int) crc.getValue();
+    }
+
+
+    /**
+     * Writes the snapshot to the given channel, which has to be positioned at the beginning of an
+     * empty file.
+     * <p>
+     * Each block is written as soon as it is encoded; afterwards, the header (which contains the
+     * length and the checksum of the blocks) is written at the beginning of the file. Hence, only
+     * one block is kept in memory.
+     * </p>
+     *
+     * @throws IOException
+     *            if writing fails or a card is too large (see {@link #MAX_BLOCK_SIZE}).
+     */
+    static void write(
+            @NotNull DeckSnapshot snapshot,
+            @NotNull BlockCodec codec,
+            @NotNull FileChannel channel) throws IOException {
+
+        int size = snapshot.getSize();
+
+        long headerPosition = channel.position();
+        channel.position(headerPosition + HEADER_SIZE);
+        CRC32 bodyChecksum = new CRC32();
+        DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                new ChannelOutputStream(channel),
+                bodyChecksum));
+
+        TextBuffer texts = new TextBuffer();
+        DataOutputStream textsOut = new DataOutputStream(texts);
+        int rowSize = COLUMNS_COUNT * 4;
+        int first = 0;
+        while (first < size) {
+            texts.reset();
+            int end = first;
+            while (end < size && (end - first) * rowSize + texts.size() < BLOCK_SIZE) {
+                writeText(snapshot.questions[end], textsOut);
+                writeText(snapshot.answers[end], textsOut);
+                end++;
+            }
+
+            int count = end - first;
+            long blockSize = (long) count * rowSize + texts.size();
+            if (blockSize > MAX_BLOCK_SIZE)
+                throw new IOException("the card " + first + " is too large (" + blockSize
+                        + " bytes)");
+
+            byte[] block = new byte[(int) blockSize];
+            IntBuffer values = ByteBuffer.wrap(block).asIntBuffer();
+            for (int c = 0; c < COLUMNS_COUNT; c++) {
+                values.put(snapshot.columns[c], first, count);
+            }
+            System.arraycopy(texts.array(), 0, block, count * rowSize, texts.size());
+
+            byte[] encodedBlock = codec.encode(block, block.length);
+            out.writeInt(count);
+            out.writeInt(encodedBlock.length);
+            out.writeInt(block.length);
+            out.write(encodedBlock);
+
+            first = end;
+        }
+        out.flush();
+        long bodySize = channel.position() - headerPosition - HEADER_SIZE;
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(snapshot.nextCreationID);
+        header.putInt(size);
+        header.putInt(codec.getID());
+        header.putLong(bodySize);
+        header.putInt((int) bodyChecksum.getValue());
+        header.putInt(checksum(header, HEADER_CHECKSUM_OFFSET));
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header, headerPosition + header.position());
+        }
+    }
+
+
+    /**
+     * A byte array output stream that gives access to its buffer.
+     */
+    private static final class TextBuffer extends ByteArrayOutputStream {
+
+        TextBuffer() {
+
+            super(BLOCK_SIZE);
+        }
+
+
+        byte[] array() {
+
+            return buf;
+        }
+    }
+
+
+    static int columnValue(@NotNull Flashcard flashcard, int column) {
+
+        return FlashcardColumns.value(flashcard, column);
+    }
+
+
+    static void writeText(@NotNull String text, @NotNull DataOutputStream out)
+            throws IOException {
+
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+
+    /**
+     * Reads the flashcards stored in a file and adds them to the given list; the header has to be
+     * already consumed.
+     */
+    static void read(
+            @NotNull DataInputStream in,
+            @NotNull Header header,
+            @NotNull List<Flashcard> flashcards) throws IOException {
+
+        int size = header.size;
+        BlockCodec codec = header.codec;
+
+        // The blocks are read one after another, but they are decoded in parallel while the
+        // following blocks are read.
+        List<ForkJoinTask<List<Flashcard>>> decodedBlocks = new ArrayList<>();
+        try {
+            CRC32 bodyChecksum = new CRC32();
+            ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+            long remainingBytes = header.bodyLength;
+            int remaining = size;
+            while (remaining > 0) {
+                if (remainingBytes < BLOCK_HEADER_SIZE)
+                    throw new IOException("the file is truncated");
+                in.readFully(blockHeader.array());
+                int count = blockHeader.getInt(0);
+                int encodedLength = blockHeader.getInt(4);
+                int decodedLength = blockHeader.getInt(8);
+                remainingBytes -= BLOCK_HEADER_SIZE;
+                checkBlockHeader(count, encodedLength, decodedLength, remaining, remainingBytes);
+
+                byte[] encodedBlock = new byte[encodedLength];
+                in.readFully(encodedBlock);
+                bodyChecksum.update(blockHeader.array());
+                bodyChecksum.update(encodedBlock);
+                decodedBlocks.add(ForkJoinPool.commonPool().submit(
+                        () -> decodeBlock(codec, encodedBlock, decodedLength, count)));
+                remaining -= count;
+                remainingBytes -= encodedLength;
+            }
+            if (header.bodyChecksum != (int) bodyChecksum.getValue())
+                throw new IOException("the file is corrupt (invalid checksum)");
+
+            // the cards are added in their original order
+            if (flashcards instanceof ArrayList)
+                ((ArrayList<Flashcard>) flashcards).ensureCapacity(flashcards.size() + size);
+            for (ForkJoinTask<List<Flashcard>> decodedBlock : decodedBlocks) {
+                flashcards.addAll(join(decodedBlock));
+            }
+        } finally {
+            for (ForkJoinTask<List<Flashcard>> decodedBlock : decodedBlocks) {
+                decodedBlock.cancel(false);
+            }
+        }
+    }
+
+
+    /**
+     * @throws UncheckedIOException
+     *            if the block is corrupt.
+     */
+    private static @NotNull List<Flashcard> decodeBlock(
+            @NotNull BlockCodec codec,
+            @NotNull byte[] encodedBlock,
+            int decodedLength,
+            int count) {
+
+        try {
+            ByteBuffer block = codec.decode(ByteBuffer.wrap(encodedBlock), decodedLength);
+            List<Flashcard> flashcards = new ArrayList<>(count);
+            new DeckSegment(block, count).loadAll(flashcards);
+            return flashcards;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    private static <T> T join(@NotNull ForkJoinTask<T> task) throws IOException {
+
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("reading the file was interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException)
+                throw ((UncheckedIOException) cause).getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new IOException(cause);
+        }
+    }
+
+
+    /**
+     * @return The codec with the given id.
+     * @throws IOException
+     *            if the number of cards is invalid or the codec is unknown.
+     */
+    static @NotNull BlockCodec codec(int size, int codecID) throws IOException {
+
+        if (size < 0)
+            throw new IOException("invalid number of flashcards: " + size);
+
+        BlockCodec codec = BlockCodecs.forID(codecID);
+        if (codec == null)
+            throw new IOException("unknown codec: " + codecID);
+        return codec;
+    }
+
+
+    /**
+     * Checks the header of a block before any memory is allocated for the block.
+     *
+     * @param remaining
+     *            The number of cards that are not yet read.
+     * @param remainingBytes
+     *            The number of bytes that follow the block's header in the file.
+     * @throws IOException
+     *            if the number of cards or the lengths of the block are invalid.
+     */
+    static void checkBlockHeader(
+            int count,
+            int encodedLength,
+            int decodedLength,
+            int remaining,
+            long remainingBytes) throws IOException {
+
+        if (count <= 0 || count > remaining)
+            throw new IOException("the file is corrupt (invalid number of cards in block: "
+                    + count + ")");
+        if (encodedLength < 0 || encodedLength > remainingBytes)
+            throw new IOException("the file is corrupt (invalid block length: " + encodedLength
+                    + ")");
+        if (decodedLength < (long) count * MIN_CARD_SIZE || decodedLength > MAX_BLOCK_SIZE)
+            throw new IOException("the file is corrupt (invalid decoded block length: "
+                    + decodedLength + ")");
+    }
+
+
+    /**
+     * Writes all statistics of the given card followed by its question and answer.
+     */
+    static void writeFlashcard(@NotNull Flashcard flashcard, @NotNull DataOutputStream out)
+            throws IOException {
+
+        for (int c = 0; c < COLUMNS_COUNT; c++) {
+            out.writeInt(columnValue(flashcard, c));
+        }
+        writeText(flashcard.getQuestion(), out);
+        writeText(flashcard.getAnswer(), out);
+    }
+
+
+    /**
+     * Reads a card that was written using {@link #writeFlashcard(Flashcard, DataOutputStream)}.
+     *
+     * @param remainingBytes
+     *            The number of bytes that can be read from the stream; the lengths of the texts
+     *            are validated against this number before any memory is allocated.
+     * @throws EOFException
+     *            if the card is truncated.
+     * @throws IOException
+     *            if the card is corrupt.
+     */
+    static @NotNull Flashcard readFlashcard(@NotNull DataInputStream in, long remainingBytes)
+            throws IOException {
+
+        int[] row = new int[COLUMNS_COUNT];
+        for (int c = 0; c < COLUMNS_COUNT; c++) {
+            row[c] = in.readInt();
+        }
+        remainingBytes -= COLUMNS_COUNT * 4;
+        byte[] buffer = new byte[256];
+        String question = readText(in, buffer, remainingBytes);
+        // the answer is (at least) validated against the bytes that follow the columns
+        String answer = readText(in, buffer, remainingBytes - 4);
+        return newFlashcard(row, question, answer);
+    }
+
+
+    /**
+     * Creates a new flashcard using the given column values.
+     */
+    static @NotNull Flashcard newFlashcard(
+            @NotNull int[] row,
+            @NotNull String question,
+            @NotNull String answer) {
+
+        return new Flashcard(
+                row[CREATION_ID],
+                question,
+                answer,
+                FlashcardColumns.decodeDate(row[CREATED]),
+                FlashcardColumns.decodeDate(row[REMEMBERED]),
+                FlashcardColumns.decodeDate(row[NOT_REMEMBERED]),
+                row[SHOWN_COUNT],
+                row[NOT_REMEMBERED_COUNT],
+                row[REMEMBERED_IN_A_ROW_COUNT]);
+    }
+
+
+    /**
+     * Reads a length prefixed text.
+     *
+     * @param remainingBytes
+     *            The number of bytes that can be read from the stream (including the length).
+     * @throws EOFException
+     *            if the text is truncated.
+     * @throws IOException
+     *            if the length is invalid.
+     */
+    private static @NotNull String readText(
+            @NotNull DataInputStream in,
+            @NotNull byte[] buffer,
+            long remainingBytes) throws IOException {
+
+        int length = in.readInt();
+        if (length < 0 || length > MAX_BLOCK_SIZE)
+            throw new IOException("invalid text length: " + length);
+        if (length > remainingBytes - 4)
+            throw new EOFException("the text is truncated (length: " + length + ")");
+
+        byte[] bytes = buffer;
+        if (length > buffer.length) // only very long texts do not fit into the column buffer
+            bytes = new byte[length];
+        in.readFully(bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+}
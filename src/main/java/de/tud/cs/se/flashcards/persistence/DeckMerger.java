@@ -0,0 +1,251 @@
+/*  License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische
+ *    Universität Darmstadt nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.persistence;
+
+import static de.tud.cs.se.flashcards.persistence.DeckFormat.CREATED;
+import static de.tud.cs.se.flashcards.persistence.DeckFormat.CREATION_ID;
+import static de.tud.cs.se.flashcards.persistence.DeckFormat.NOT_REMEMBERED;
+import static de.tud.cs.se.flashcards.persistence.DeckFormat.NOT_REMEMBERED_COUNT;
+import static de.tud.cs.se.flashcards.persistence.DeckFormat.REMEMBERED;
+import static de.tud.cs.se.flashcards.persistence.DeckFormat.REMEMBERED_IN_A_ROW_COUNT;
+import static de.tud.cs.se.flashcards.persistence.DeckFormat.SHOWN_COUNT;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import de.tud.cs.se.flashcards.model.FlashcardSeries;
+import de.tud.cs.st.constraints.NotNull;
+
+
+/**
+ * Merges two copies of a flashcard series (e.g., two copies of the same file that were edited on
+ * different computers); cards are identified by their creation ids.
+ * <p>
+ * The merged series contains all cards of both series. The statistics of a card that is contained
+ * in both series are combined: the latest dates and the highest counts are taken; the number of
+ * times the card was remembered in a row is taken from the series in which the card was reviewed
+ * last. If the texts of such a card differ, "our" texts are kept and a
+ * {@link MergeResult.Conflict} is reported. Two cards with the same id but different creation
+ * dates are different cards; "their" card gets a new id.
+ * </p>
+ * <p>
+ * Both series are sorted by the creation ids of their cards and are then merged in one linear
+ * pass; hence, merging takes O(n log n) time and does not create any objects per card.
+ * </p>
+ *
+ * @author Michael Eichberg
+ */
+public final class DeckMerger {
+
+    private DeckMerger() {
+
+        // nothing to do
+    }
+
+
+    /**
+     * Merges the flashcard series stored in the given files.
+     */
+    public static @NotNull MergeResult merge(@NotNull File ours, @NotNull File theirs)
+            throws IOException {
+
+        return merge(Store.openSeries(ours), Store.openSeries(theirs));
+    }
+
+
+    /**
+     * Merges the given series; has to be called by the thread that changes the series (i.e., the
+     * Event Dispatch Thread).
+     */
+    public static @NotNull MergeResult merge(
+            @NotNull FlashcardSeries ours,
+            @NotNull FlashcardSeries theirs) {
+
+        return merge(DeckSnapshot.capture(ours), DeckSnapshot.capture(theirs));
+    }
+
+
+    static @NotNull MergeResult merge(@NotNull DeckSnapshot ours, @NotNull DeckSnapshot theirs) {
+
+        long[] ourKeys = sortedKeys(ours);
+        long[] theirKeys = sortedKeys(theirs);
+
+        // the indexes of the merged cards in "our" and "their" series (-1 if the card is not
+        // contained in the series) in ascending order of the (new) creation ids
+        int capacity = ourKeys.length + theirKeys.length;
+        int[] ourIndexes = new int[capacity];
+        int[] theirIndexes = new int[capacity];
+        int[] ids = new int[capacity];
+        int count = 0;
+        int mergedCount = 0;
+
+        // the indexes of "their" cards that need a new id
+        int[] renumbered = new int[theirKeys.length];
+        int renumberedCount = 0;
+
+        int o = 0;
+        int t = 0;
+        while (o < ourKeys.length || t < theirKeys.length) {
+            long ourID = Long.MAX_VALUE;
+            if (o < ourKeys.length)
+                ourID = ourKeys[o] >> 32;
+            long theirID = Long.MAX_VALUE;
+            if (t < theirKeys.length)
+                theirID = theirKeys[t] >> 32;
+
+            int ourIndex = -1;
+            int theirIndex = -1;
+            if (ourID <= theirID)
+                ourIndex = (int) ourKeys[o++];
+            if (theirID <= ourID)
+                theirIndex = (int) theirKeys[t++];
+
+            if (ourIndex != -1 && theirIndex != -1) {
+                if (ours.columns[CREATED][ourIndex] == theirs.columns[CREATED][theirIndex]) {
+                    mergedCount++;
+                } else {
+                    renumbered[renumberedCount++] = theirIndex;
+                    theirIndex = -1;
+                }
+            }
+
+            ourIndexes[count] = ourIndex;
+            theirIndexes[count] = theirIndex;
+            ids[count] = (int) Math.min(ourID, theirID);
+            count++;
+        }
+
+        int nextCreationID = Math.max(ours.nextCreationID, theirs.nextCreationID);
+        if (count > 0)
+            nextCreationID = Math.max(nextCreationID, ids[count - 1] + 1);
+
+        // the renumbered cards get ids that are larger than all other ids
+        for (int i = 0; i < renumberedCount; i++) {
+            ourIndexes[count] = -1;
+            theirIndexes[count] = renumbered[i];
+            ids[count] = nextCreationID++;
+            count++;
+        }
+
+        List<MergeResult.Conflict> conflicts = new ArrayList<MergeResult.Conflict>();
+        DeckSnapshot merged = new DeckSnapshot(nextCreationID, count);
+        for (int k = 0; k < count; k++) {
+            // the newest card is the first card
+            int index = count - 1 - k;
+            int ourIndex = ourIndexes[k];
+            int theirIndex = theirIndexes[k];
+            if (theirIndex == -1) {
+                copy(ours, ourIndex, merged, index);
+            } else if (ourIndex == -1) {
+                copy(theirs, theirIndex, merged, index);
+            } else {
+                copy(ours, ourIndex, merged, index);
+                combineStatistics(theirs, theirIndex, merged, index);
+                if (!ours.questions[ourIndex].equals(theirs.questions[theirIndex])
+                        || !ours.answers[ourIndex].equals(theirs.answers[theirIndex])) {
+                    conflicts.add(new MergeResult.Conflict(
+                            ids[k],
+                            ours.questions[ourIndex],
+                            ours.answers[ourIndex],
+                            theirs.questions[theirIndex],
+                            theirs.answers[theirIndex]));
+                }
+            }
+            merged.columns[CREATION_ID][index] = ids[k];
+        }
+
+        return new MergeResult(merged, conflicts, mergedCount, renumberedCount);
+    }
+
+
+    /**
+     * @return The creation ids (upper 32 bits) and the indexes (lower 32 bits) of the cards of the
+     *         given snapshot in ascending order of the ids.
+     */
+    private static @NotNull long[] sortedKeys(@NotNull DeckSnapshot snapshot) {
+
+        int[] creationIDs = snapshot.columns[CREATION_ID];
+        long[] keys = new long[creationIDs.length];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = ((long) creationIDs[i] << 32) | i;
+        }
+        Arrays.sort(keys);
+        return keys;
+    }
+
+
+    private static void copy(
+            @NotNull DeckSnapshot source,
+            int sourceIndex,
+            @NotNull DeckSnapshot target,
+            int targetIndex) {
+
+        for (int c = 0; c < DeckFormat.COLUMNS_COUNT; c++) {
+            target.columns[c][targetIndex] = source.columns[c][sourceIndex];
+        }
+        target.questions[targetIndex] = source.questions[sourceIndex];
+        target.answers[targetIndex] = source.answers[sourceIndex];
+    }
+
+
+    /**
+     * Combines the statistics of the target card with those of the source card.
+     */
+    private static void combineStatistics(
+            @NotNull DeckSnapshot source,
+            int sourceIndex,
+            @NotNull DeckSnapshot target,
+            int targetIndex) {
+
+        int[][] s = source.columns;
+        int[][] t = target.columns;
+
+        int sourceReviewed = Math.max(s[REMEMBERED][sourceIndex], s[NOT_REMEMBERED][sourceIndex]);
+        int targetReviewed = Math.max(t[REMEMBERED][targetIndex], t[NOT_REMEMBERED][targetIndex]);
+        if (sourceReviewed > targetReviewed) {
+            t[REMEMBERED_IN_A_ROW_COUNT][targetIndex] = s[REMEMBERED_IN_A_ROW_COUNT][sourceIndex];
+        } else if (sourceReviewed == targetReviewed) {
+            t[REMEMBERED_IN_A_ROW_COUNT][targetIndex] = Math.max(
+                    t[REMEMBERED_IN_A_ROW_COUNT][targetIndex],
+                    s[REMEMBERED_IN_A_ROW_COUNT][sourceIndex]);
+        }
+
+        // DeckFormat.NO_DATE is smaller than all dates
+        for (int c : new int[] { REMEMBERED, NOT_REMEMBERED, SHOWN_COUNT, NOT_REMEMBERED_COUNT }) {
+            t[c][targetIndex] = Math.max(t[c][targetIndex], s[c][sourceIndex]);
+        }
+    }
+}
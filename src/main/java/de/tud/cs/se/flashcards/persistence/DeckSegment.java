@@ -0,0 +1,164 @@
+/*  License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische
+ *    Universität Darmstadt nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import de.tud.cs.se.flashcards.model.Flashcard;
+import de.tud.cs.st.constraints.NotNull;
+
+
+/**
+ * Decodes the flashcards of a (decoded) block; i.e., the statistics columns followed by the
+ * texts of the cards (see {@link DeckFormat}).
+ * <p>
+ * When a segment is created, the buffer is validated and the start of each card's texts is
+ * determined; the cards are decoded on demand.
+ * </p>
+ *
+ * @author Michael Eichberg
+ */
+final class DeckSegment {
+
+    private final ByteBuffer buffer;
+
+
+    private final int size;
+
+
+    // textOffsets[i] is the position of the question of the flashcard with the index i.
+    private final int[] textOffsets;
+
+
+    /**
+     * @param buffer
+     *           the segment; starts at position 0 and ends at the buffer's limit.
+     * @param size
+     *           the number of cards stored in the segment.
+     */
+    DeckSegment(@NotNull ByteBuffer buffer, int size) throws IOException {
+
+        this.buffer = buffer;
+        this.size = size;
+        this.textOffsets = new int[size];
+
+        long position = (long) DeckFormat.COLUMNS_COUNT * size * 4;
+        for (int i = 0; i < size; i++) {
+            textOffsets[i] = (int) position;
+            position = skipText(position);
+            position = skipText(position);
+        }
+        if (position != buffer.limit())
+            throw new IOException("the file is corrupt (unexpected data after the last card)");
+    }
+
+
+    private long skipText(long position) throws IOException {
+
+        if (position + 4 > buffer.limit())
+            throw new IOException("the file is truncated");
+
+        int length = buffer.getInt((int) position);
+        if (length < 0 || position + 4 + length > buffer.limit())
+            throw new IOException("the file is corrupt (invalid text length: " + length + ")");
+
+        return position + 4 + length;
+    }
+
+
+    int getSize() {
+
+        return size;
+    }
+
+
+    @NotNull Flashcard load(int index) {
+
+        int[] row = new int[DeckFormat.COLUMNS_COUNT];
+        for (int c = 0; c < DeckFormat.COLUMNS_COUNT; c++) {
+            row[c] = buffer.getInt((c * size + index) * 4);
+        }
+
+        int questionOffset = textOffsets[index];
+        String question = decodeText(questionOffset);
+        String answer = decodeText(questionOffset + 4 + buffer.getInt(questionOffset));
+        return DeckFormat.newFlashcard(row, question, answer);
+    }
+
+
+    /**
+     * Stores the values of the given columns of all cards of this segment in the given arrays;
+     * the value of the card with the index i is stored at the index offset + i.
+     */
+    void loadColumns(@NotNull int[] columns, @NotNull int[][] values, int offset) {
+
+        for (int c = 0; c < columns.length; c++) {
+            int columnOffset = columns[c] * size * 4;
+            for (int i = 0; i < size; i++) {
+                values[c][offset + i] = buffer.getInt(columnOffset + i * 4);
+            }
+        }
+    }
+
+
+    /**
+     * Decodes all cards and adds them to the given list.
+     */
+    void loadAll(@NotNull List<Flashcard> flashcards) {
+
+        for (int i = 0; i < size; i++) {
+            flashcards.add(load(i));
+        }
+    }
+
+
+    private @NotNull String decodeText(int position) {
+
+        int length = buffer.getInt(position);
+        if (buffer.hasArray())
+            return new String(
+                    buffer.array(),
+                    buffer.arrayOffset() + position + 4,
+                    length,
+                    StandardCharsets.UTF_8);
+
+        byte[] bytes = new byte[length];
+        ByteBuffer text = buffer.duplicate();
+        text.position(position + 4);
+        text.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,132 @@
+/*  License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische
+ *    Universität Darmstadt nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.persistence;
+
+import java.util.List;
+
+import de.tud.cs.se.flashcards.model.Flashcard;
+import de.tud.cs.se.flashcards.model.FlashcardSeries;
+import de.tud.cs.st.constraints.NotNull;
+
+
+/**
+ * An immutable, column oriented copy of the state of a flashcard series.
+ * <p>
+ * Taking a snapshot only copies the (primitive) statistics and the references to the (immutable)
+ * texts of the cards; hence, it is cheap enough to be done on the Event Dispatch Thread. The
+ * snapshot can then be encoded and written by any other thread while the series is changed.
+ * </p>
+ *
+ * @author Michael Eichberg
+ */
+final class DeckSnapshot {
+
+    final int nextCreationID;
+
+
+    /**
+     * The values of the columns (see {@link DeckFormat#CREATION_ID} etc.); the i-th value of each
+     * column belongs to the i-th card.
+     */
+    final int[][] columns;
+
+
+    final String[] questions;
+
+
+    final String[] answers;
+
+
+    DeckSnapshot(int nextCreationID, int size) {
+
+        this.nextCreationID = nextCreationID;
+        this.columns = new int[DeckFormat.COLUMNS_COUNT][size];
+        this.questions = new String[size];
+        this.answers = new String[size];
+    }
+
+
+    /**
+     * Takes a snapshot of the given series; has to be called by the thread that changes the series
+     * (i.e., the Event Dispatch Thread).
+     */
+    static @NotNull DeckSnapshot capture(@NotNull FlashcardSeries series) {
+
+        FlashcardSeries fs = series.getSourceModel();
+        DeckSnapshot snapshot = new DeckSnapshot(fs.getNextCreationID(), fs.getSize());
+        for (int i = 0; i < snapshot.getSize(); i++) {
+            snapshot.set(i, fs.getElementAt(i));
+        }
+        return snapshot;
+    }
+
+
+    static @NotNull DeckSnapshot of(@NotNull List<Flashcard> flashcards, int nextCreationID) {
+
+        DeckSnapshot snapshot = new DeckSnapshot(nextCreationID, flashcards.size());
+        int i = 0;
+        for (Flashcard flashcard : flashcards) {
+            snapshot.set(i++, flashcard);
+        }
+        return snapshot;
+    }
+
+
+    private void set(int index, @NotNull Flashcard flashcard) {
+
+        for (int c = 0; c < DeckFormat.COLUMNS_COUNT; c++) {
+            columns[c][index] = DeckFormat.columnValue(flashcard, c);
+        }
+        questions[index] = flashcard.getQuestion();
+        answers[index] = flashcard.getAnswer();
+    }
+
+
+    int getSize() {
+
+        return questions.length;
+    }
+
+
+    /**
+     * @return A new flashcard object for the card with the given index.
+     */
+    @NotNull Flashcard flashcard(int index) {
+
+        int[] row = new int[DeckFormat.COLUMNS_COUNT];
+        for (int c = 0; c < DeckFormat.COLUMNS_COUNT; c++) {
+            row[c] = columns[c][index];
+        }
+        return DeckFormat.newFlashcard(row, questions[index], answers[index]);
+    }
+}
@@ -0,0 +1,171 @@
+/*  License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische
+ *    Universität Darmstadt nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+import de.tud.cs.st.constraints.NotNull;
+
+
+/**
+ * Reads the records of a delimiter-separated text file (CSV as described by RFC 4180, or TSV)
+ * using a buffer of constant size; i.e., the memory required to read a file does not depend on
+ * the size of the file, but only on the size of the largest record.
+ * <p>
+ * Fields can be enclosed in double quotes; in this case they can contain delimiters and line
+ * breaks and a double quote is escaped by another double quote. Records are separated by
+ * <code>LF</code>, <code>CR LF</code> or <code>CR</code>.
+ * </p>
+ *
+ * @author Michael Eichberg
+ */
+final class DelimitedTextReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+
+    private final Reader in;
+
+
+    private final char delimiter;
+
+
+    private final char[] buffer = new char[BUFFER_SIZE];
+
+
+    private int position = 0;
+
+
+    private int limit = 0;
+
+
+    // The field that is currently read; reused for all fields.
+    private final StringBuilder field = new StringBuilder();
+
+
+    private int lineNumber = 1;
+
+
+    DelimitedTextReader(@NotNull Reader in, char delimiter) {
+
+        this.in = in;
+        this.delimiter = delimiter;
+    }
+
+
+    /**
+     * @return The number of the line in which the next record starts.
+     */
+    int getLineNumber() {
+
+        return lineNumber;
+    }
+
+
+    private int read() throws IOException {
+
+        if (position == limit) {
+            int read = in.read(buffer, 0, buffer.length);
+            if (read <= 0)
+                return -1;
+            position = 0;
+            limit = read;
+        }
+        return buffer[position++];
+    }
+
+
+    /**
+     * Reads the next record; the given list is cleared before the fields are added.
+     *
+     * @return <code>false</code> if the end of the file is reached.
+     */
+    boolean readRecord(@NotNull List<String> fields) throws IOException {
+
+        fields.clear();
+        int c = read();
+        if (c < 0)
+            return false;
+
+        while (true) {
+            field.setLength(0);
+            if (c == '"') {
+                while (true) {
+                    c = read();
+                    if (c < 0)
+                        throw new IOException("unterminated quoted field (line " + lineNumber
+                                + ")");
+                    if (c == '"') {
+                        c = read();
+                        if (c != '"')
+                            break;
+                    } else if (c == '\n') {
+                        lineNumber++;
+                    }
+                    field.append((char) c);
+                }
+                if (c >= 0 && c != delimiter && c != '\n' && c != '\r')
+                    throw new IOException("unexpected character after quoted field (line "
+                            + lineNumber + ")");
+            } else {
+                while (c >= 0 && c != delimiter && c != '\n' && c != '\r') {
+                    field.append((char) c);
+                    c = read();
+                }
+            }
+            fields.add(field.toString());
+
+            if (c != delimiter)
+                break;
+            c = read();
+        }
+
+        if (c == '\r') {
+            c = read();
+            if (c >= 0 && c != '\n')
+                position--; // the character belongs to the next record
+        }
+        if (c >= 0)
+            lineNumber++;
+        return true;
+    }
+
+
+    public void close() throws IOException {
+
+        in.close();
+    }
+}
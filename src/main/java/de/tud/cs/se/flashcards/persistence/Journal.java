@@ -0,0 +1,730 @@
+/*  License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische
+ *    Universität Darmstadt nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+
+import javax.swing.SwingUtilities;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+
+import de.tud.cs.se.flashcards.model.Flashcard;
+import de.tud.cs.se.flashcards.model.FlashcardSeries;
+import de.tud.cs.st.constraints.NotNull;
+import de.tud.cs.st.constraints.Null;
+
+
+/**
+ * An append-only log of the changes of a flashcard series that was saved to a file.
+ * <p>
+ * A journal observes the source model of a flashcard series and records every added, removed
+ * and changed card; i.e., all effects of executed (and undone) commands as well as all changes of
+ * individual cards (e.g., learning outcomes). The recorded changes are appended to the journal
+ * file when the journal is {@link #commit() committed}; hence, saving a series only costs
+ * O(changes). {@link Store#openSeries(File)} applies all committed changes when the file is opened
+ * again.
+ * </p>
+ * <p>
+ * The journal file starts with a fingerprint of the file (the snapshot) the changes apply to; the
+ * fingerprint consists of the checksums stored in the header of the snapshot. A journal that does
+ * not belong to the current snapshot (e.g., because the snapshot was saved completely afterwards)
+ * is ignored. If the journal grows beyond a threshold, the changes are integrated into a new
+ * snapshot in the background. The snapshot and the journal are only replaced while the
+ * {@link Store#fileLock(File) lock of the file} is held; failures are reported to the
+ * {@link CompactionListener}.
+ * </p>
+ *
+ * @author Michael Eichberg
+ */
+public final class Journal {
+
+    public static final @NotNull String FILE_ENDING = ".journal";
+
+
+    /**
+     * The first four bytes of every journal ("FLCJ").
+     */
+    private static final int MAGIC = 0x464C434A;
+
+
+    private static final int VERSION = 1;
+
+
+    private static final int HEADER_SIZE = 20;
+
+
+    // The record types:
+
+    private static final byte ADDED = 1;
+
+
+    private static final byte REMOVED = 2;
+
+
+    private static final byte CHANGED = 3;
+
+
+    private static final byte COMMIT = 4;
+
+
+    /**
+     * The size of the buffer used to compute the fingerprint of a snapshot that does not store a
+     * checksum of its content.
+     */
+    private static final int FINGERPRINT_BUFFER_SIZE = 64 * 1024;
+
+
+    /**
+     * The journal is compacted if it is larger than this threshold and larger than a quarter of
+     * the snapshot.
+     */
+    private static final long COMPACTION_THRESHOLD = 1024 * 1024;
+
+
+    private static final ExecutorService COMPACTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Journal Compaction");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+
+    private final FlashcardSeries flashcardSeries;
+
+
+    private final File file;
+
+
+    private final File journalFile;
+
+
+    private final ListDataListener listDataListener = new ListDataListener() {
+
+        public void intervalAdded(ListDataEvent e) {
+
+            record(ADDED, e.getIndex0(), e.getIndex1());
+        }
+
+
+        public void intervalRemoved(ListDataEvent e) {
+
+            record(REMOVED, e.getIndex0(), e.getIndex1());
+        }
+
+
+        public void contentsChanged(ListDataEvent e) {
+
+            record(CHANGED, e.getIndex0(), e.getIndex1());
+        }
+    };
+
+
+    // The changes that are not yet committed.
+    private final ByteArrayOutputStream changes = new ByteArrayOutputStream();
+
+
+    private final DataOutputStream changesOut = new DataOutputStream(changes);
+
+
+    // Guards the journal file and the following fields (which are also used by the compaction);
+    // the lock is shared by all journals of the file and by Store.saveSnapshot.
+    private final Object lock;
+
+
+    private long journalLength;
+
+
+    private long snapshotLength;
+
+
+    private boolean compacting = false;
+
+
+    private boolean opened = false;
+
+
+    private volatile @Null CompactionListener compactionListener = null;
+
+
+    private Journal(@NotNull FlashcardSeries flashcardSeries, @NotNull File file) {
+
+        this.flashcardSeries = flashcardSeries.getSourceModel();
+        this.file = file;
+        this.journalFile = journalFile(file);
+        this.lock = Store.fileLock(file);
+    }
+
+
+    /**
+     * Creates a journal that records all changes of the given series. The series must be equal to
+     * the series stored in the given file; i.e., the series was just opened or saved.
+     */
+    public static @NotNull Journal attach(@NotNull FlashcardSeries series, @NotNull File file)
+            throws IOException {
+
+        Journal journal = record(series, file);
+        try {
+            journal.open();
+        } catch (IOException e) {
+            journal.detach();
+            throw e;
+        }
+        return journal;
+    }
+
+
+    /**
+     * Creates a journal that immediately starts recording the changes of the given series, but
+     * which will only be written after it was {@link #open() opened}. This enables to start
+     * recording when a snapshot of the series is taken and to open the journal after the snapshot
+     * was (asynchronously) saved to the given file.
+     */
+    public static @NotNull Journal record(@NotNull FlashcardSeries series, @NotNull File file) {
+
+        Journal journal = new Journal(series, file);
+        journal.flashcardSeries.addListDataListener(journal.listDataListener);
+        return journal;
+    }
+
+
+    /**
+     * Opens (or creates) the journal file; the file the series was saved to has to exist. Can be
+     * called by any thread.
+     */
+    public void open() throws IOException {
+
+        synchronized (lock) {
+            snapshotLength = file.length();
+            long fingerprint = fingerprint(file);
+            long validLength = scan(journalFile, fingerprint, null);
+            try (FileChannel channel = FileChannel.open(
+                    journalFile.toPath(),
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE)) {
+                if (validLength < 0) {
+                    channel.truncate(0);
+                    channel.write(header(fingerprint));
+                    validLength = HEADER_SIZE;
+                } else {
+                    // let's get rid of a partially written commit
+                    channel.truncate(validLength);
+                }
+                channel.force(true);
+            }
+            journalLength = validLength;
+            opened = true;
+        }
+    }
+
+
+    /**
+     * Stops recording changes; uncommitted changes are discarded.
+     */
+    public void detach() {
+
+        flashcardSeries.removeListDataListener(listDataListener);
+        changes.reset();
+    }
+
+
+    /**
+     * Sets the listener that is informed if a compaction of this journal fails.
+     */
+    public void setCompactionListener(@Null CompactionListener compactionListener) {
+
+        this.compactionListener = compactionListener;
+    }
+
+
+    /**
+     * @return The file the journaled series was saved to.
+     */
+    public @NotNull File getFile() {
+
+        return file;
+    }
+
+
+    static @NotNull File journalFile(@NotNull File file) {
+
+        return new File(file.getPath() + FILE_ENDING);
+    }
+
+
+    private void record(byte type, int index0, int index1) {
+
+        try {
+            changesOut.writeByte(type);
+            changesOut.writeInt(index0);
+            changesOut.writeInt(index1);
+            if (type != REMOVED) {
+                for (int i = index0; i <= index1; i++) {
+                    DeckFormat.writeFlashcard(flashcardSeries.getElementAt(i), changesOut);
+                }
+            }
+        } catch (IOException e) {
+            // we are writing to memory...
+            throw new Error(e);
+        }
+    }
+
+
+    /**
+     * Appends all changes that were made since the last commit to the journal file.
+     */
+    public void commit() throws IOException {
+
+        byte[] commit = takeChanges();
+        if (commit != null)
+            append(commit);
+    }
+
+
+    /**
+     * Takes all changes that were made since the last commit; has to be called by the thread that
+     * changes the series (i.e., the Event Dispatch Thread).
+     *
+     * @return The encoded commit that has to be {@link #append(byte[]) appended} or
+     *         <code>null</code> if nothing has changed.
+     */
+    public @Null byte[] takeChanges() {
+
+        if (changes.size() == 0)
+            return null;
+
+        try {
+            changesOut.writeByte(COMMIT);
+            changesOut.writeInt(flashcardSeries.getNextCreationID());
+        } catch (IOException e) {
+            // we are writing to memory...
+            throw new Error(e);
+        }
+        byte[] commit = changes.toByteArray();
+        changes.reset();
+        return commit;
+    }
+
+
+    /**
+     * Appends a commit that was taken using {@link #takeChanges()} to the journal file. Can be
+     * called by any thread; commits have to be appended in the order in which they were taken.
+     */
+    public void append(@NotNull byte[] commit) throws IOException {
+
+        synchronized (lock) {
+            if (!opened)
+                throw new IOException("the journal " + journalFile + " is not open");
+
+            try (FileChannel channel = FileChannel.open(
+                    journalFile.toPath(),
+                    StandardOpenOption.WRITE)) {
+                channel.position(journalLength);
+                ByteBuffer buffer = ByteBuffer.wrap(commit);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+                journalLength += commit.length;
+            }
+
+            if (!compacting
+                    && journalLength > COMPACTION_THRESHOLD
+                    && journalLength > snapshotLength / 4) {
+                compacting = true;
+                COMPACTOR.execute(this::compact);
+            }
+        }
+    }
+
+
+    /**
+     * Integrates the journal into a new snapshot. The journal is only read from disk; hence, the
+     * model can be changed (and the journal can be committed) while the compaction is running. If
+     * the file is replaced in the meantime (e.g., because the series was saved completely), the
+     * compaction is abandoned.
+     */
+    private void compact() {
+
+        File snapshot = null;
+        try {
+            long length;
+            long fingerprint;
+            synchronized (lock) {
+                length = journalLength;
+                fingerprint = fingerprint(file);
+            }
+
+            List<Flashcard> flashcards = new ArrayList<>();
+            int nextCreationID = Store.readFlashcards(file, flashcards);
+            nextCreationID = Math.max(
+                    nextCreationID,
+                    replay(journalFile, fingerprint, length, flashcards));
+
+            snapshot = Store.createTempFile(file);
+            Store.writeSnapshot(DeckSnapshot.of(flashcards, nextCreationID), snapshot);
+
+            synchronized (lock) {
+                if (!journalFile.exists() || fingerprint(file) != fingerprint) {
+                    // the file was replaced; the new snapshot is obsolete
+                    Files.delete(snapshot.toPath());
+                    return;
+                }
+
+                // the changes committed while the snapshot was written remain in the journal
+                byte[] tail = new byte[(int) (journalLength - length)];
+                try (RandomAccessFile journal = new RandomAccessFile(journalFile, "r")) {
+                    journal.seek(length);
+                    journal.readFully(tail);
+                }
+
+                File newJournal = journalFile(snapshot);
+                try (FileChannel channel = FileChannel.open(
+                        newJournal.toPath(),
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                    channel.write(header(fingerprint(snapshot)));
+                    channel.write(ByteBuffer.wrap(tail));
+                    channel.force(true);
+                }
+
+                // If we crash between the two moves, the old journal will be ignored, because it
+                // does not belong to the new snapshot.
+                snapshotLength = snapshot.length();
+                Store.replaceFile(snapshot, file);
+                Store.replaceFile(newJournal, journalFile);
+                journalLength = HEADER_SIZE + tail.length;
+            }
+        } catch (IOException e) {
+            if (snapshot != null && !snapshot.delete())
+                snapshot.deleteOnExit();
+            CompactionListener listener = compactionListener;
+            if (listener != null)
+                SwingUtilities.invokeLater(() -> listener.compactionFailed(file, e));
+        } finally {
+            synchronized (lock) {
+                compacting = false;
+            }
+        }
+    }
+
+
+    /**
+     * Applies the changes recorded by the journal of the given file (if any) to the list of
+     * flashcards.
+     *
+     * @return The next creation id stored in the journal or -1 if there is no (valid) journal.
+     */
+    static int replay(@NotNull File file, @NotNull List<Flashcard> flashcards) throws IOException {
+
+        File journalFile = journalFile(file);
+        if (!journalFile.exists())
+            return -1;
+
+        return replay(journalFile, fingerprint(file), Long.MAX_VALUE, flashcards);
+    }
+
+
+    private static int replay(
+            @NotNull File journalFile,
+            long fingerprint,
+            long length,
+            @NotNull List<Flashcard> flashcards) throws IOException {
+
+        int[] nextCreationID = { -1 };
+        long validLength = scan(journalFile, fingerprint, new Replay() {
+
+            public void apply(byte type, int index0, int index1, List<Flashcard> changed) {
+
+                switch (type) {
+                case ADDED:
+                    flashcards.addAll(index0, changed);
+                    break;
+                case REMOVED:
+                    flashcards.subList(index0, index1 + 1).clear();
+                    break;
+                default:
+                    for (int i = index0; i <= index1; i++) {
+                        flashcards.set(i, changed.get(i - index0));
+                    }
+                }
+            }
+
+
+            public boolean commit(long position, int newNextCreationID) {
+
+                nextCreationID[0] = newNextCreationID;
+                return position < length;
+            }
+        });
+        if (validLength < 0)
+            return -1;
+        else
+            return nextCreationID[0];
+    }
+
+
+    /**
+     * Callback used by {@link Journal#scan(File, long, Replay)}.
+     */
+    private interface Replay {
+
+        /**
+         * Applies a committed change.
+         */
+        void apply(byte type, int index0, int index1, @NotNull List<Flashcard> changed);
+
+
+        /**
+         * Called after all changes of a commit were applied.
+         *
+         * @return <code>true</code> if the following commits should also be applied.
+         */
+        boolean commit(long position, int nextCreationID);
+    }
+
+
+    private static final class Change {
+
+        final byte type;
+
+
+        final int index0;
+
+
+        final int index1;
+
+
+        final List<Flashcard> flashcards;
+
+
+        Change(byte type, int index0, int index1, List<Flashcard> flashcards) {
+
+            this.type = type;
+            this.index0 = index0;
+            this.index1 = index1;
+            this.flashcards = flashcards;
+        }
+    }
+
+
+    /**
+     * Reads the committed changes of the given journal.
+     *
+     * @return The position after the last complete commit or -1 if the journal does not exist or
+     *         does not belong to the snapshot with the given fingerprint.
+     */
+    private static long scan(@NotNull File journalFile, long fingerprint, Replay replay)
+            throws IOException {
+
+        if (!journalFile.exists())
+            return -1;
+
+        long journalLength = journalFile.length();
+        CountingInputStream counter = new CountingInputStream(new BufferedInputStream(
+                new FileInputStream(journalFile)));
+        try (DataInputStream in = new DataInputStream(counter)) {
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != fingerprint)
+                    return -1;
+                in.readInt(); // reserved
+            } catch (EOFException e) {
+                return -1;
+            }
+
+            long validPosition = HEADER_SIZE;
+            List<Change> pending = new ArrayList<>();
+            try {
+                while (true) {
+                    byte type = in.readByte();
+                    if (type == COMMIT) {
+                        int nextCreationID = in.readInt();
+                        validPosition = counter.getCount();
+                        if (replay != null) {
+                            for (Change change : pending) {
+                                replay.apply(
+                                        change.type,
+                                        change.index0,
+                                        change.index1,
+                                        change.flashcards);
+                            }
+                            if (!replay.commit(validPosition, nextCreationID))
+                                break;
+                        }
+                        pending.clear();
+                        continue;
+                    }
+
+                    int index0 = in.readInt();
+                    int index1 = in.readInt();
+                    if ((type != ADDED && type != REMOVED && type != CHANGED) || index1 < index0)
+                        break; // the journal is corrupt; we ignore the rest
+
+                    List<Flashcard> flashcards = new ArrayList<>();
+                    if (type != REMOVED) {
+                        for (int i = index0; i <= index1; i++) {
+                            flashcards.add(DeckFormat.readFlashcard(
+                                    in,
+                                    journalLength - counter.getCount()));
+                        }
+                    }
+                    pending.add(new Change(type, index0, index1, flashcards));
+                }
+            } catch (EOFException e) {
+                // the last commit was not written completely
+            }
+            return validPosition;
+        }
+    }
+
+
+    /**
+     * Counts the number of bytes that were read.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long count = 0;
+
+
+        CountingInputStream(@NotNull InputStream in) {
+
+            super(in);
+        }
+
+
+        long getCount() {
+
+            return count;
+        }
+
+
+        @Override public int read() throws IOException {
+
+            int b = super.read();
+            if (b >= 0)
+                count++;
+            return b;
+        }
+
+
+        @Override public int read(byte[] bytes, int offset, int length) throws IOException {
+
+            int read = super.read(bytes, offset, length);
+            if (read > 0)
+                count += read;
+            return read;
+        }
+
+
+        @Override public long skip(long n) throws IOException {
+
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+
+    /**
+     * Computes a fingerprint of the given file. The fingerprint of a file that uses the binary
+     * file format is read from its header (see {@link DeckFormat#fingerprint(ByteBuffer)}); the
+     * fingerprint of a file that was stored using Java Serialization consists of its length and a
+     * checksum of its complete content.
+     */
+    private static long fingerprint(@NotNull File file) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(DeckFormat.HEADER_SIZE);
+            readFully(channel, header, 0);
+            header.flip();
+            long fingerprint = DeckFormat.fingerprint(header);
+            if (fingerprint != -1L)
+                return fingerprint;
+
+            long size = channel.size();
+            CRC32 crc = new CRC32();
+            ByteBuffer buffer = ByteBuffer.allocate(FINGERPRINT_BUFFER_SIZE);
+            for (long position = 0L; position < size; position += buffer.position()) {
+                buffer.clear();
+                readFully(channel, buffer, position);
+                if (buffer.position() == 0)
+                    break;
+                crc.update(buffer.array(), 0, buffer.position());
+            }
+            return size << 32 ^ crc.getValue();
+        }
+    }
+
+
+    private static void readFully(
+            @NotNull FileChannel channel,
+            @NotNull ByteBuffer buffer,
+            long position) throws IOException {
+
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0)
+                return;
+        }
+    }
+
+
+    private static @NotNull ByteBuffer header(long fingerprint) {
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putLong(fingerprint);
+        header.putInt(0); // reserved
+        header.flip();
+        return header;
+    }
+}
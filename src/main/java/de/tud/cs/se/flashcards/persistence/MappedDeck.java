@@ -0,0 +1,300 @@
+/*  License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische
+ *    Universität Darmstadt nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import de.tud.cs.se.flashcards.model.Flashcard;
+import de.tud.cs.se.flashcards.model.FlashcardLoader;
+import de.tud.cs.se.flashcards.model.LazyFlashcardSeries;
+import de.tud.cs.st.constraints.NotNull;
+import de.tud.cs.st.constraints.Null;
+
+
+/**
+ * Loads the flashcards of a memory-mapped file (see {@link DeckFormat}) on demand.
+ * <p>
+ * When the file is opened only the header and the headers of the blocks are validated. A block
+ * is decoded and validated when the first of its cards is loaded; the decoded block is released
+ * when all of its cards are loaded. Uncompressed blocks are directly accessed.
+ * </p>
+ * <p>
+ * Like {@link DeckFormat#read(java.io.DataInputStream, DeckFormat.Header, java.util.List)} this
+ * deck decodes blocks in parallel: when a block is decoded, the next block is decoded in the
+ * background (cards are usually loaded in order; e.g., when the series is saved) and the columns
+ * of all cards (e.g., to sort the cards) are read from all blocks in parallel without keeping
+ * the decoded blocks.
+ * </p>
+ *
+ * @author Michael Eichberg
+ */
+final class MappedDeck implements FlashcardLoader {
+
+    private final BlockCodec codec;
+
+
+    private final int size;
+
+
+    // The i-th block stores the cards with the indices firstIndices[i] to firstIndices[i+1]-1.
+    private final int[] firstIndices;
+
+
+    private final ByteBuffer[] encodedBlocks;
+
+
+    private final int[] decodedLengths;
+
+
+    // The decoded blocks; null if the block is not (no longer) decoded.
+    private final DeckSegment[] segments;
+
+
+    private final int[] loadedCounts;
+
+
+    // The blocks that are decoded in the background; null if the block is not decoded in advance.
+    private final ForkJoinTask<DeckSegment>[] decodedSegments;
+
+
+    private MappedDeck(
+            @NotNull BlockCodec codec,
+            int size,
+            @NotNull int[] firstIndices,
+            @NotNull ByteBuffer[] encodedBlocks,
+            @NotNull int[] decodedLengths) {
+
+        this.codec = codec;
+        this.size = size;
+        this.firstIndices = firstIndices;
+        this.encodedBlocks = encodedBlocks;
+        this.decodedLengths = decodedLengths;
+        this.segments = new DeckSegment[encodedBlocks.length];
+        this.loadedCounts = new int[encodedBlocks.length];
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        ForkJoinTask<DeckSegment>[] decodedSegments = new ForkJoinTask[encodedBlocks.length];
+        this.decodedSegments = decodedSegments;
+    }
+
+
+    /**
+     * Maps the given file and creates a flashcard series that loads the cards on demand.
+     *
+     * @return <code>null</code> if the file cannot be mapped; e.g., because it does not use the
+     *         binary file format or is too large.
+     */
+    static @Null LazyFlashcardSeries map(@NotNull File file) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < DeckFormat.HEADER_SIZE || fileSize > Integer.MAX_VALUE)
+                return null;
+
+            // The mapping remains valid after the channel is closed.
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            if (buffer.getInt(0) != DeckFormat.MAGIC)
+                return null;
+
+            DeckFormat.Header header = DeckFormat.readHeader(buffer, fileSize);
+            return new LazyFlashcardSeries(mapBlocks(buffer, header), header.nextCreationID);
+        }
+    }
+
+
+    private static @NotNull MappedDeck mapBlocks(
+            @NotNull ByteBuffer buffer,
+            @NotNull DeckFormat.Header header) throws IOException {
+
+        int size = header.size;
+
+        int[] firstIndices = new int[16];
+        ByteBuffer[] encodedBlocks = new ByteBuffer[16];
+        int[] decodedLengths = new int[16];
+        int blocksCount = 0;
+        int position = DeckFormat.HEADER_SIZE;
+        int loadedCount = 0;
+        while (loadedCount < size) {
+            if (position + DeckFormat.BLOCK_HEADER_SIZE > buffer.limit())
+                throw new IOException("the file is truncated");
+
+            int count = buffer.getInt(position);
+            int encodedLength = buffer.getInt(position + 4);
+            int decodedLength = buffer.getInt(position + 8);
+            position += DeckFormat.BLOCK_HEADER_SIZE;
+            DeckFormat.checkBlockHeader(
+                    count,
+                    encodedLength,
+                    decodedLength,
+                    size - loadedCount,
+                    buffer.limit() - position);
+
+            if (blocksCount + 1 == firstIndices.length) {
+                firstIndices = Arrays.copyOf(firstIndices, blocksCount * 2);
+                encodedBlocks = Arrays.copyOf(encodedBlocks, blocksCount * 2);
+                decodedLengths = Arrays.copyOf(decodedLengths, blocksCount * 2);
+            }
+            firstIndices[blocksCount] = loadedCount;
+            encodedBlocks[blocksCount] = slice(buffer, position, position + encodedLength);
+            decodedLengths[blocksCount] = decodedLength;
+            blocksCount++;
+
+            position += encodedLength;
+            loadedCount += count;
+        }
+        firstIndices[blocksCount] = size;
+        if (position != buffer.limit())
+            throw new IOException("the file is corrupt (unexpected trailing data)");
+
+        return new MappedDeck(
+                header.codec,
+                size,
+                Arrays.copyOf(firstIndices, blocksCount + 1),
+                Arrays.copyOf(encodedBlocks, blocksCount),
+                Arrays.copyOf(decodedLengths, blocksCount));
+    }
+
+
+    private static @NotNull ByteBuffer slice(@NotNull ByteBuffer buffer, int start, int end) {
+
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(start);
+        slice.limit(end);
+        return slice.slice();
+    }
+
+
+    /**
+     * @throws UncheckedIOException
+     *            if the block is corrupt.
+     */
+    private @NotNull DeckSegment decode(int block) {
+
+        try {
+            ByteBuffer decodedBlock = codec.decode(
+                    encodedBlocks[block].duplicate(),
+                    decodedLengths[block]);
+            return new DeckSegment(decodedBlock, firstIndices[block + 1] - firstIndices[block]);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    public int getSize() {
+
+        return size;
+    }
+
+
+    /**
+     * @throws UncheckedIOException
+     *            if the block that contains the card is corrupt.
+     */
+    public @NotNull Flashcard load(int index) throws IndexOutOfBoundsException {
+
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException(index + " >= " + size);
+
+        int block = Arrays.binarySearch(firstIndices, index);
+        if (block < 0)
+            block = -block - 2;
+
+        DeckSegment segment = segments[block];
+        if (segment == null) {
+            if (decodedSegments[block] != null) {
+                segment = decodedSegments[block].join();
+                decodedSegments[block] = null;
+            } else {
+                segment = decode(block);
+            }
+            segments[block] = segment;
+
+            int nextBlock = block + 1;
+            if (nextBlock < segments.length
+                    && segments[nextBlock] == null
+                    && decodedSegments[nextBlock] == null
+                    && loadedCounts[nextBlock] == 0)
+                decodedSegments[nextBlock] = ForkJoinPool.commonPool().submit(
+                        () -> decode(nextBlock));
+        }
+        Flashcard flashcard = segment.load(index - firstIndices[block]);
+
+        loadedCounts[block]++;
+        if (loadedCounts[block] == segment.getSize())
+            segments[block] = null; // every card is loaded only once
+        return flashcard;
+    }
+
+
+    /**
+     * @throws UncheckedIOException
+     *            if a block is corrupt.
+     */
+    public void loadColumns(@NotNull int[] columns, @NotNull int[][] values) {
+
+        // each block stores the columns of different cards; hence, the blocks can be processed
+        // in parallel
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[segments.length];
+        for (int block = 0; block < segments.length; block++) {
+            DeckSegment segment = segments[block];
+            int firstIndex = firstIndices[block];
+            if (segment != null) {
+                segment.loadColumns(columns, values, firstIndex);
+            } else {
+                int b = block;
+                tasks[block] = ForkJoinPool.commonPool().submit(
+                        () -> decode(b).loadColumns(columns, values, firstIndex));
+            }
+        }
+        try {
+            for (ForkJoinTask<?> task : tasks) {
+                if (task != null)
+                    task.join();
+            }
+        } finally {
+            for (ForkJoinTask<?> task : tasks) {
+                if (task != null)
+                    task.cancel(false);
+            }
+        }
+    }
+}
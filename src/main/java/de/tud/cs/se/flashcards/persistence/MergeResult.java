@@ -0,0 +1,202 @@
+/*  License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische
+ *    Universität Darmstadt nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import de.tud.cs.se.flashcards.model.DefaultFlashcardSeries;
+import de.tud.cs.st.constraints.NotNull;
+
+
+/**
+ * The result of merging two flashcard series (see {@link DeckMerger}).
+ *
+ * @author Michael Eichberg
+ */
+public final class MergeResult {
+
+    /**
+     * A card whose question or answer was changed differently in both series; the merged series
+     * contains "our" version of the card.
+     */
+    public static final class Conflict {
+
+        private final int creationID;
+
+
+        private final String ourQuestion;
+
+
+        private final String ourAnswer;
+
+
+        private final String theirQuestion;
+
+
+        private final String theirAnswer;
+
+
+        Conflict(
+                int creationID,
+                @NotNull String ourQuestion,
+                @NotNull String ourAnswer,
+                @NotNull String theirQuestion,
+                @NotNull String theirAnswer) {
+
+            this.creationID = creationID;
+            this.ourQuestion = ourQuestion;
+            this.ourAnswer = ourAnswer;
+            this.theirQuestion = theirQuestion;
+            this.theirAnswer = theirAnswer;
+        }
+
+
+        public int getCreationID() {
+
+            return creationID;
+        }
+
+
+        public @NotNull String getOurQuestion() {
+
+            return ourQuestion;
+        }
+
+
+        public @NotNull String getOurAnswer() {
+
+            return ourAnswer;
+        }
+
+
+        public @NotNull String getTheirQuestion() {
+
+            return theirQuestion;
+        }
+
+
+        public @NotNull String getTheirAnswer() {
+
+            return theirAnswer;
+        }
+    }
+
+
+    private final DeckSnapshot snapshot;
+
+
+    private final List<Conflict> conflicts;
+
+
+    private final int mergedCount;
+
+
+    private final int renumberedCount;
+
+
+    MergeResult(
+            @NotNull DeckSnapshot snapshot,
+            @NotNull List<Conflict> conflicts,
+            int mergedCount,
+            int renumberedCount) {
+
+        this.snapshot = snapshot;
+        this.conflicts = Collections.unmodifiableList(conflicts);
+        this.mergedCount = mergedCount;
+        this.renumberedCount = renumberedCount;
+    }
+
+
+    /**
+     * @return The number of cards of the merged series.
+     */
+    public int getSize() {
+
+        return snapshot.getSize();
+    }
+
+
+    /**
+     * @return The number of cards that are contained in both series.
+     */
+    public int getMergedCount() {
+
+        return mergedCount;
+    }
+
+
+    /**
+     * @return The number of cards of "their" series that got a new creation id, because "our"
+     *         series contains a different card with the same id.
+     */
+    public int getRenumberedCount() {
+
+        return renumberedCount;
+    }
+
+
+    /**
+     * @return The cards whose texts were changed differently in both series.
+     */
+    public @NotNull List<Conflict> getConflicts() {
+
+        return conflicts;
+    }
+
+
+    /**
+     * @return A new series that contains the merged cards; the cards are ordered by their creation
+     *         ids (the newest card first).
+     */
+    public @NotNull DefaultFlashcardSeries createSeries() {
+
+        DefaultFlashcardSeries series = new DefaultFlashcardSeries();
+        series.setNextCreationID(snapshot.nextCreationID);
+        for (int i = 0; i < snapshot.getSize(); i++) {
+            series.addCard(snapshot.flashcard(i));
+        }
+        return series;
+    }
+
+
+    /**
+     * Saves the merged series (see {@link Store#saveSeries}).
+     */
+    public void save(@NotNull File file) throws IOException {
+
+        Store.saveSnapshot(snapshot, file);
+    }
+}
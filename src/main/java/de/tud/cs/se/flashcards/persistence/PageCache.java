@@ -0,0 +1,186 @@
+/*  License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische
+ *    Universität Darmstadt nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import de.tud.cs.st.constraints.NotNull;
+
+
+/**
+ * Caches a bounded number of fixed-size pages of a file.
+ * <p>
+ * Pages are read when they are accessed the first time and are kept until the cache is full;
+ * then, the least recently used page is evicted. Changed pages are written back when they are
+ * evicted or when the cache is flushed. Pages after the end of the file are read as zeros.
+ * </p>
+ * <p>
+ * A page cache is not thread-safe. The buffer of a page must not be used after the next call of
+ * {@link #read(long)} or {@link #write(long)}, because the page may have been evicted.
+ * </p>
+ *
+ * @author Michael Eichberg
+ */
+final class PageCache {
+
+    private final FileChannel channel;
+
+
+    private final int pageSize;
+
+
+    private final int capacity;
+
+
+    private final LinkedHashMap<Long, Page> pages;
+
+
+    PageCache(@NotNull FileChannel channel, int pageSize, int capacity) {
+
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity: " + capacity);
+
+        this.channel = channel;
+        this.pageSize = pageSize;
+        this.capacity = capacity;
+        this.pages = new LinkedHashMap<>(capacity * 4 / 3 + 1, 0.75f, true);
+    }
+
+
+    int getPageSize() {
+
+        return pageSize;
+    }
+
+
+    int getCachedPagesCount() {
+
+        return pages.size();
+    }
+
+
+    /**
+     * @return The buffer of the given page; the buffer must only be read.
+     */
+    @NotNull ByteBuffer read(long pageNumber) throws IOException {
+
+        return page(pageNumber).buffer;
+    }
+
+
+    /**
+     * @return The buffer of the given page; the page will be written back to the file.
+     */
+    @NotNull ByteBuffer write(long pageNumber) throws IOException {
+
+        Page page = page(pageNumber);
+        page.dirty = true;
+        return page.buffer;
+    }
+
+
+    private @NotNull Page page(long pageNumber) throws IOException {
+
+        Page page = pages.get(pageNumber);
+        if (page == null) {
+            if (pages.size() == capacity)
+                evict();
+
+            page = new Page(ByteBuffer.allocate(pageSize));
+            ByteBuffer buffer = page.buffer.duplicate();
+            long position = pageNumber * pageSize;
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position + buffer.position());
+                if (read < 0)
+                    break;
+            }
+            pages.put(pageNumber, page);
+        }
+        return page;
+    }
+
+
+    private void evict() throws IOException {
+
+        Iterator<Map.Entry<Long, Page>> iterator = pages.entrySet().iterator();
+        Map.Entry<Long, Page> eldest = iterator.next();
+        writeBack(eldest.getKey(), eldest.getValue());
+        iterator.remove();
+    }
+
+
+    private void writeBack(long pageNumber, @NotNull Page page) throws IOException {
+
+        if (!page.dirty)
+            return;
+
+        ByteBuffer buffer = page.buffer.duplicate();
+        buffer.clear();
+        long position = pageNumber * pageSize;
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+        page.dirty = false;
+    }
+
+
+    /**
+     * Writes all changed pages back to the file; the pages remain cached.
+     */
+    void flush() throws IOException {
+
+        for (Map.Entry<Long, Page> entry : pages.entrySet()) {
+            writeBack(entry.getKey(), entry.getValue());
+        }
+    }
+
+
+    private static final class Page {
+
+        final ByteBuffer buffer;
+
+
+        boolean dirty = false;
+
+
+        Page(@NotNull ByteBuffer buffer) {
+
+            this.buffer = buffer;
+        }
+    }
+}
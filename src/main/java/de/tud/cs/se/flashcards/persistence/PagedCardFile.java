@@ -0,0 +1,716 @@
+/*  License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische
+ *    Universität Darmstadt nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.persistence;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.zip.CRC32;
+
+import de.tud.cs.se.flashcards.model.Flashcard;
+import de.tud.cs.se.flashcards.model.FlashcardSeries;
+import de.tud.cs.se.flashcards.model.FlashcardStorage;
+import de.tud.cs.se.flashcards.model.PagedFlashcardSeries;
+import de.tud.cs.st.constraints.NotNull;
+
+
+/**
+ * An embedded, paged card store for flashcard series that are larger than the heap.
+ * <p>
+ * The store consists of two files. The cards file starts with a header page followed by the
+ * rows; each row has a fixed size and stores the statistics of one card (see {@link DeckFormat}),
+ * a flag whether the card is removed, and the position and the lengths of the card's question and
+ * answer. The questions and answers are appended to the texts file (see
+ * {@link #textsFile(File)}). Both files are accessed through a {@link PageCache} of bounded size;
+ * hence, the memory required by an open store is independent of the number of cards, except for
+ * one bit per card that stores whether the card is removed.
+ * </p>
+ * <p>
+ * When the store is closed, the removed flags are written as a bitmap after the last row. If a
+ * store was not closed properly, the flags are restored by scanning the rows; changes made after
+ * the last {@link #flush()} are lost in this case.
+ * </p>
+ * <p>
+ * A store is not thread-safe; it has to be used by the Event Dispatch Thread only.
+ * </p>
+ *
+ * @author Michael Eichberg
+ */
+public final class PagedCardFile implements FlashcardStorage, Closeable {
+
+    public static final @NotNull String TEXTS_FILE_ENDING = ".texts";
+
+
+    /**
+     * The default number of pages that are cached per file.
+     */
+    public static final int DEFAULT_CACHE_CAPACITY = 1024;
+
+
+    /**
+     * The first four bytes of every cards file ("FLCP").
+     */
+    private static final int MAGIC = 0x464C4350;
+
+
+    private static final int VERSION = 1;
+
+
+    static final int PAGE_SIZE = 8 * 1024;
+
+
+    private static final int ROW_SIZE = 64;
+
+
+    private static final int ROWS_PER_PAGE = PAGE_SIZE / ROW_SIZE;
+
+
+    // The layout of the header:
+
+    private static final int ROWS_COUNT_OFFSET = 12;
+
+
+    private static final int TEXTS_LENGTH_OFFSET = 16;
+
+
+    private static final int CLOSED_OFFSET = 24;
+
+
+    private static final int HEADER_CHECKSUM_OFFSET = 28;
+
+
+    // The layout of a row (the columns are stored first):
+
+    private static final int FLAGS_OFFSET = DeckFormat.COLUMNS_COUNT * 4;
+
+
+    private static final int TEXT_POSITION_OFFSET = FLAGS_OFFSET + 4;
+
+
+    private static final int QUESTION_LENGTH_OFFSET = TEXT_POSITION_OFFSET + 8;
+
+
+    private static final int ANSWER_LENGTH_OFFSET = QUESTION_LENGTH_OFFSET + 4;
+
+
+    private static final int REMOVED = 1;
+
+
+    private final FileChannel cardsChannel;
+
+
+    private final FileChannel textsChannel;
+
+
+    private final PageCache rows;
+
+
+    private final PageCache texts;
+
+
+    private final BitSet removedRows;
+
+
+    private int rowsCount;
+
+
+    private long textsLength;
+
+
+    // Created on demand (after all rows of a new store are created).
+    private PagedFlashcardSeries series;
+
+
+    private PagedCardFile(
+            @NotNull FileChannel cardsChannel,
+            @NotNull FileChannel textsChannel,
+            int cacheCapacity,
+            int rowsCount,
+            long textsLength,
+            @NotNull BitSet removedRows) throws IOException {
+
+        this.cardsChannel = cardsChannel;
+        this.textsChannel = textsChannel;
+        this.rows = new PageCache(cardsChannel, PAGE_SIZE, cacheCapacity);
+        this.texts = new PageCache(textsChannel, PAGE_SIZE, cacheCapacity);
+        this.rowsCount = rowsCount;
+        this.textsLength = textsLength;
+        this.removedRows = removedRows;
+
+        // the bitmap becomes invalid as soon as the store is changed
+        writeHeader(false);
+        cardsChannel.force(false);
+    }
+
+
+    /**
+     * @return The file that stores the questions and answers of the given cards file.
+     */
+    public static @NotNull File textsFile(@NotNull File file) {
+
+        return new File(file.getPath() + TEXTS_FILE_ENDING);
+    }
+
+
+    /**
+     * Creates a new store that contains copies of the cards of the given series; existing files
+     * are replaced. The copies get new creation ids (see {@link PagedFlashcardSeries}).
+     *
+     * @param cacheCapacity
+     *           the number of pages that are cached per file.
+     */
+    public static @NotNull PagedCardFile create(
+            @NotNull File file,
+            @NotNull FlashcardSeries flashcards,
+            int cacheCapacity) throws IOException {
+
+        PagedCardFile store = open(file, cacheCapacity, true);
+        try {
+            // the last card of the series is stored in the first row
+            for (int i = flashcards.getSize() - 1; i >= 0; i--) {
+                store.appendRow(store.rowsCount, flashcards.getElementAt(i), false);
+            }
+            store.flush();
+            return store;
+        } catch (IOException | RuntimeException e) {
+            store.closeChannels();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Opens an existing store.
+     *
+     * @param cacheCapacity
+     *           the number of pages that are cached per file.
+     * @throws IOException
+     *            if the files cannot be read or are corrupt.
+     */
+    public static @NotNull PagedCardFile open(@NotNull File file, int cacheCapacity)
+            throws IOException {
+
+        return open(file, cacheCapacity, false);
+    }
+
+
+    private static @NotNull PagedCardFile open(
+            @NotNull File file,
+            int cacheCapacity,
+            boolean create) throws IOException {
+
+        FileChannel cardsChannel = null;
+        FileChannel textsChannel = null;
+        try {
+            if (create) {
+                cardsChannel = FileChannel.open(
+                        file.toPath(),
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.READ,
+                        StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+                textsChannel = FileChannel.open(
+                        textsFile(file).toPath(),
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.READ,
+                        StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+                return new PagedCardFile(
+                        cardsChannel,
+                        textsChannel,
+                        cacheCapacity,
+                        0,
+                        0L,
+                        new BitSet());
+            }
+
+            cardsChannel = FileChannel.open(
+                    file.toPath(),
+                    StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            textsChannel = FileChannel.open(
+                    textsFile(file).toPath(),
+                    StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+
+            // the header is validated before any row is read
+            ByteBuffer header = ByteBuffer.allocate(HEADER_CHECKSUM_OFFSET + 4);
+            while (header.hasRemaining()) {
+                if (cardsChannel.read(header, header.position()) < 0)
+                    throw new IOException("the file is truncated");
+            }
+            if (header.getInt(0) != MAGIC)
+                throw new IOException("unknown file format");
+            if (header.getInt(4) != VERSION)
+                throw new IOException("unsupported file format version: " + header.getInt(4));
+            if (header.getInt(HEADER_CHECKSUM_OFFSET) != checksum(header))
+                throw new IOException("the file is corrupt (invalid header checksum)");
+            int rowsCount = header.getInt(ROWS_COUNT_OFFSET);
+            long textsLength = header.getLong(TEXTS_LENGTH_OFFSET);
+            if (header.getInt(8) != PAGE_SIZE || rowsCount < 0 || textsLength < 0L)
+                throw new IOException("the file is corrupt (invalid header)");
+            long rowsEnd = rowOffset(rowsCount);
+            if (cardsChannel.size() < rowsEnd || textsChannel.size() < textsLength)
+                throw new IOException("the file is truncated");
+
+            BitSet removedRows = null;
+            if (header.getInt(CLOSED_OFFSET) != 0) {
+                ByteBuffer bitmap = ByteBuffer.allocate((rowsCount + 7) / 8);
+                while (bitmap.hasRemaining()) {
+                    if (cardsChannel.read(bitmap, rowsEnd + bitmap.position()) < 0)
+                        break;
+                }
+                if (!bitmap.hasRemaining()) {
+                    bitmap.flip();
+                    removedRows = BitSet.valueOf(bitmap);
+                }
+            }
+            if (removedRows == null)
+                removedRows = scanRemovedRows(cardsChannel, rowsCount);
+
+            return new PagedCardFile(
+                    cardsChannel,
+                    textsChannel,
+                    cacheCapacity,
+                    rowsCount,
+                    textsLength,
+                    removedRows);
+        } catch (IOException | RuntimeException e) {
+            if (cardsChannel != null)
+                cardsChannel.close();
+            if (textsChannel != null)
+                textsChannel.close();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Restores the removed flags of a store that was not closed properly.
+     */
+    private static @NotNull BitSet scanRemovedRows(@NotNull FileChannel channel, int rowsCount)
+            throws IOException {
+
+        BitSet removedRows = new BitSet(rowsCount);
+        ByteBuffer page = ByteBuffer.allocate(PAGE_SIZE);
+        for (int row = 0; row < rowsCount; row++) {
+            int offset = (row % ROWS_PER_PAGE) * ROW_SIZE;
+            if (offset == 0) {
+                page.clear();
+                while (page.hasRemaining()) {
+                    if (channel.read(page, rowOffset(row) + page.position()) < 0)
+                        break;
+                }
+            }
+            if ((page.getInt(offset + FLAGS_OFFSET) & REMOVED) != 0)
+                removedRows.set(row);
+        }
+        return removedRows;
+    }
+
+
+    private static int checksum(@NotNull ByteBuffer header) {
+
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < HEADER_CHECKSUM_OFFSET; i++) {
+            crc.update(header.get(i));
+        }
+        return (int) crc.getValue();
+    }
+
+
+    private void writeHeader(boolean closed) throws IOException {
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_CHECKSUM_OFFSET + 4);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(PAGE_SIZE);
+        header.putInt(rowsCount);
+        header.putLong(textsLength);
+        if (closed)
+            header.putInt(1);
+        else
+            header.putInt(0);
+        header.putInt(checksum(header));
+        header.flip();
+        while (header.hasRemaining()) {
+            cardsChannel.write(header, header.position());
+        }
+    }
+
+
+    /**
+     * @return The position of the row in the cards file; the first page stores the header.
+     */
+    private static long rowOffset(int row) {
+
+        return PAGE_SIZE + (long) row * ROW_SIZE;
+    }
+
+
+    /**
+     * @return The series that is stored by this store.
+     */
+    public @NotNull PagedFlashcardSeries getSeries() {
+
+        if (series == null)
+            series = new PagedFlashcardSeries(this);
+        return series;
+    }
+
+
+    public int getRowsCount() {
+
+        return rowsCount;
+    }
+
+
+    private void checkRow(int row) throws IndexOutOfBoundsException {
+
+        if (row < 0 || row >= rowsCount)
+            throw new IndexOutOfBoundsException(row + " >= " + rowsCount);
+    }
+
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.tud.cs.se.flashcards.model.FlashcardStorage#load(int)
+     */
+    public @NotNull Flashcard load(int row) throws IndexOutOfBoundsException {
+
+        checkRow(row);
+        try {
+            ByteBuffer page = rows.read(rowOffset(row) / PAGE_SIZE);
+            int offset = (int) (rowOffset(row) % PAGE_SIZE);
+            int[] columns = new int[DeckFormat.COLUMNS_COUNT];
+            for (int c = 0; c < DeckFormat.COLUMNS_COUNT; c++) {
+                columns[c] = page.getInt(offset + c * 4);
+            }
+            String[] texts = readTexts(row, page, offset);
+            return DeckFormat.newFlashcard(columns, texts[0], texts[1]);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.tud.cs.se.flashcards.model.FlashcardStorage#getColumnValue(int, int)
+     */
+    public int getColumnValue(int row, int column) throws IndexOutOfBoundsException {
+
+        checkRow(row);
+        try {
+            ByteBuffer page = rows.read(rowOffset(row) / PAGE_SIZE);
+            return page.getInt((int) (rowOffset(row) % PAGE_SIZE) + column * 4);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.tud.cs.se.flashcards.model.FlashcardStorage#contains(int, java.lang.String)
+     */
+    public boolean contains(int row, @NotNull String searchTerm) throws IndexOutOfBoundsException {
+
+        checkRow(row);
+        try {
+            ByteBuffer page = rows.read(rowOffset(row) / PAGE_SIZE);
+            String[] texts = readTexts(row, page, (int) (rowOffset(row) % PAGE_SIZE));
+            return texts[0].contains(searchTerm) || texts[1].contains(searchTerm);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    /**
+     * @return The question and the answer of the card stored in the given row.
+     */
+    private @NotNull String[] readTexts(int row, @NotNull ByteBuffer page, int offset)
+            throws IOException {
+
+        long textPosition = page.getLong(offset + TEXT_POSITION_OFFSET);
+        int questionLength = page.getInt(offset + QUESTION_LENGTH_OFFSET);
+        int answerLength = page.getInt(offset + ANSWER_LENGTH_OFFSET);
+        if (questionLength < 0
+                || answerLength < 0
+                || textPosition < 0L
+                || textPosition + questionLength + answerLength > textsLength)
+            throw new IOException("the file is corrupt (invalid row: " + row + ")");
+
+        return new String[] {
+                readText(textPosition, questionLength),
+                readText(textPosition + questionLength, answerLength) };
+    }
+
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.tud.cs.se.flashcards.model.FlashcardStorage#append(de.tud.cs.se.flashcards.model.
+     * Flashcard)
+     */
+    public int append(@NotNull Flashcard flashcard) {
+
+        int row = rowsCount;
+        try {
+            appendRow(row, flashcard, true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return row;
+    }
+
+
+    private void appendRow(int row, @NotNull Flashcard flashcard, boolean removed)
+            throws IOException {
+
+        rowsCount++;
+        removedRows.set(row, removed);
+        byte[] question = flashcard.getQuestion().getBytes(StandardCharsets.UTF_8);
+        byte[] answer = flashcard.getAnswer().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer page = rows.write(rowOffset(row) / PAGE_SIZE);
+        int offset = (int) (rowOffset(row) % PAGE_SIZE);
+        writeColumns(page, offset, row, flashcard);
+        writeTexts(page, offset, question, answer);
+        if (removed)
+            page.putInt(offset + FLAGS_OFFSET, REMOVED);
+        else
+            page.putInt(offset + FLAGS_OFFSET, 0);
+    }
+
+
+    private static void writeColumns(
+            @NotNull ByteBuffer page,
+            int offset,
+            int row,
+            @NotNull Flashcard flashcard) {
+
+        for (int c = 0; c < DeckFormat.COLUMNS_COUNT; c++) {
+            page.putInt(offset + c * 4, DeckFormat.columnValue(flashcard, c));
+        }
+        // the creation id is the number of the row
+        page.putInt(offset + DeckFormat.CREATION_ID * 4, row);
+    }
+
+
+    private void writeTexts(
+            @NotNull ByteBuffer page,
+            int offset,
+            @NotNull byte[] question,
+            @NotNull byte[] answer) throws IOException {
+
+        // the page of the row is updated before the texts are appended; appending the texts does
+        // not affect the cache of the rows
+        page.putLong(offset + TEXT_POSITION_OFFSET, textsLength);
+        page.putInt(offset + QUESTION_LENGTH_OFFSET, question.length);
+        page.putInt(offset + ANSWER_LENGTH_OFFSET, answer.length);
+        appendText(question);
+        appendText(answer);
+    }
+
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.tud.cs.se.flashcards.model.FlashcardStorage#update(int,
+     * de.tud.cs.se.flashcards.model.Flashcard)
+     */
+    public void update(int row, @NotNull Flashcard flashcard) throws IndexOutOfBoundsException {
+
+        checkRow(row);
+        try {
+            ByteBuffer page = rows.write(rowOffset(row) / PAGE_SIZE);
+            int offset = (int) (rowOffset(row) % PAGE_SIZE);
+            writeColumns(page, offset, row, flashcard);
+
+            // the texts are only appended again if they were changed; the stored texts are
+            // compared byte by byte and are not decoded
+            byte[] question = flashcard.getQuestion().getBytes(StandardCharsets.UTF_8);
+            byte[] answer = flashcard.getAnswer().getBytes(StandardCharsets.UTF_8);
+            long textPosition = page.getLong(offset + TEXT_POSITION_OFFSET);
+            if (page.getInt(offset + QUESTION_LENGTH_OFFSET) != question.length
+                    || page.getInt(offset + ANSWER_LENGTH_OFFSET) != answer.length
+                    || !isStoredText(textPosition, question)
+                    || !isStoredText(textPosition + question.length, answer)) {
+                writeTexts(page, offset, question, answer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    public boolean isRemoved(int row) throws IndexOutOfBoundsException {
+
+        checkRow(row);
+        return removedRows.get(row);
+    }
+
+
+    public void setRemoved(int row, boolean removed) throws IndexOutOfBoundsException {
+
+        checkRow(row);
+        removedRows.set(row, removed);
+        try {
+            ByteBuffer page = rows.write(rowOffset(row) / PAGE_SIZE);
+            int offset = (int) (rowOffset(row) % PAGE_SIZE);
+            if (removed)
+                page.putInt(offset + FLAGS_OFFSET, REMOVED);
+            else
+                page.putInt(offset + FLAGS_OFFSET, 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    private void appendText(@NotNull byte[] text) throws IOException {
+
+        int written = 0;
+        while (written < text.length) {
+            ByteBuffer page = texts.write(textsLength / PAGE_SIZE);
+            int offset = (int) (textsLength % PAGE_SIZE);
+            int length = Math.min(text.length - written, PAGE_SIZE - offset);
+            ByteBuffer target = page.duplicate();
+            target.position(offset);
+            target.put(text, written, length);
+            written += length;
+            textsLength += length;
+        }
+    }
+
+
+    /**
+     * @return <code>true</code> if the given text is stored at the given position.
+     */
+    private boolean isStoredText(long position, @NotNull byte[] text) throws IOException {
+
+        if (position < 0L || position + text.length > textsLength)
+            return false;
+
+        int compared = 0;
+        while (compared < text.length) {
+            long textPosition = position + compared;
+            ByteBuffer page = texts.read(textPosition / PAGE_SIZE);
+            int pageOffset = (int) (textPosition % PAGE_SIZE);
+            int count = Math.min(text.length - compared, PAGE_SIZE - pageOffset);
+            for (int i = 0; i < count; i++) {
+                if (page.get(pageOffset + i) != text[compared + i])
+                    return false;
+            }
+            compared += count;
+        }
+        return true;
+    }
+
+
+    private @NotNull String readText(long position, int length) throws IOException {
+
+        byte[] text = new byte[length];
+        int read = 0;
+        while (read < length) {
+            long textPosition = position + read;
+            ByteBuffer page = texts.read(textPosition / PAGE_SIZE).duplicate();
+            page.position((int) (textPosition % PAGE_SIZE));
+            int count = Math.min(length - read, page.remaining());
+            page.get(text, read, count);
+            read += count;
+        }
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Writes all changes to the files.
+     */
+    public void flush() throws IOException {
+
+        rows.flush();
+        texts.flush();
+        textsChannel.force(false);
+        writeHeader(false);
+        cardsChannel.force(false);
+    }
+
+
+    /**
+     * Writes all changes to the files and closes them.
+     */
+    public void close() throws IOException {
+
+        try {
+            rows.flush();
+            texts.flush();
+            textsChannel.force(false);
+
+            ByteBuffer bitmap = ByteBuffer.wrap(Arrays.copyOf(
+                    removedRows.toByteArray(),
+                    (rowsCount + 7) / 8));
+            long position = rowOffset(rowsCount);
+            while (bitmap.hasRemaining()) {
+                cardsChannel.write(bitmap, position + bitmap.position());
+            }
+            cardsChannel.truncate(position + bitmap.capacity());
+            cardsChannel.force(false);
+            writeHeader(true);
+            cardsChannel.force(false);
+        } finally {
+            closeChannels();
+        }
+    }
+
+
+    private void closeChannels() throws IOException {
+
+        try {
+            cardsChannel.close();
+        } finally {
+            textsChannel.close();
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/*  License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische
+ *    Universität Darmstadt nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.persistence;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+import de.tud.cs.st.constraints.NotNull;
+
+
+/**
+ * An append-only log of all reviews (learning outcomes) of the cards of a flashcard series.
+ * <p>
+ * The log file (see {@link #reviewLogFile(File)}) starts with the magic number and the format
+ * version followed by fixed-width records: the creation id of the card, the day of the review
+ * (epoch day), the outcome and the response time (in milliseconds); each value is stored as a
+ * big-endian int. The records are collected in a buffer and are written when the buffer is full
+ * or when the log is flushed. An incomplete record at the end of the file (e.g., due to a crash)
+ * is ignored and overwritten by the next record.
+ * </p>
+ * <p>
+ * The log is only stored on disk; i.e., the flashcards are not affected. To analyze the reviews
+ * the log is {@link #scan(File, ReviewVisitor) scanned}.
+ * </p>
+ *
+ * @author Michael Eichberg
+ */
+public final class ReviewLog implements Closeable {
+
+    public static final @NotNull String FILE_ENDING = ".reviews";
+
+
+    /**
+     * The first four bytes of every review log ("FLCR").
+     */
+    private static final int MAGIC = 0x464C4352;
+
+
+    private static final int VERSION = 1;
+
+
+    static final int HEADER_SIZE = 8;
+
+
+    static final int RECORD_SIZE = 16;
+
+
+    private static final int BUFFER_SIZE = 4096 * RECORD_SIZE;
+
+
+    /**
+     * The number of records that are mapped at once while the log is scanned.
+     */
+    private static final int SCAN_WINDOW = 4 * 1024 * 1024;
+
+
+    private final FileChannel channel;
+
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+
+    // The position of the next record in the file.
+    private long position;
+
+
+    private ReviewLog(@NotNull FileChannel channel, long position) {
+
+        this.channel = channel;
+        this.position = position;
+    }
+
+
+    /**
+     * @return The review log of the given file.
+     */
+    public static @NotNull File reviewLogFile(@NotNull File file) {
+
+        return new File(file.getPath() + FILE_ENDING);
+    }
+
+
+    /**
+     * Opens the review log of the given file; if the log does not exist, it is created.
+     */
+    public static @NotNull ReviewLog open(@NotNull File file) throws IOException {
+
+        FileChannel channel = FileChannel.open(
+                reviewLogFile(file).toPath(),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            long size = channel.size();
+            if (size == 0L) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC);
+                header.putInt(VERSION);
+                header.flip();
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                return new ReviewLog(channel, HEADER_SIZE);
+            }
+
+            return new ReviewLog(channel, HEADER_SIZE + recordsCount(channel) * RECORD_SIZE);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Validates the header of the log.
+     *
+     * @return The number of (complete) records.
+     */
+    private static long recordsCount(@NotNull FileChannel channel) throws IOException {
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0)
+                throw new IOException("the review log is truncated");
+        }
+        if (header.getInt(0) != MAGIC)
+            throw new IOException("unknown file format");
+        if (header.getInt(4) != VERSION)
+            throw new IOException("unsupported review log version: " + header.getInt(4));
+
+        return (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+    }
+
+
+    /**
+     * Appends a review to the log.
+     *
+     * @param responseTime
+     *           the time (in milliseconds) the user needed to answer the question.
+     */
+    public void record(
+            int creationID,
+            @NotNull LocalDate day,
+            boolean remembered,
+            int responseTime) throws IOException {
+
+        if (buffer.remaining() < RECORD_SIZE)
+            flush();
+
+        buffer.putInt(creationID);
+        buffer.putInt((int) day.toEpochDay());
+        if (remembered)
+            buffer.putInt(1);
+        else
+            buffer.putInt(0);
+        buffer.putInt(responseTime);
+    }
+
+
+    /**
+     * Writes all buffered records to the file.
+     */
+    public void flush() throws IOException {
+
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        } finally {
+            buffer.compact();
+        }
+    }
+
+
+    /**
+     * Writes all buffered records to the file and closes it.
+     */
+    public void close() throws IOException {
+
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+
+    /**
+     * Calls the visitor for every review stored in the review log of the given file (in the
+     * order in which the reviews were recorded). The log is memory-mapped; hence, scanning the log
+     * is essentially limited by the memory bandwidth.
+     *
+     * @return The number of reviews.
+     */
+    public static long scan(@NotNull File file, @NotNull ReviewVisitor visitor)
+            throws IOException {
+
+        File reviewLogFile = reviewLogFile(file);
+        if (!reviewLogFile.exists())
+            return 0L;
+
+        try (FileChannel channel = FileChannel.open(
+                reviewLogFile.toPath(),
+                StandardOpenOption.READ)) {
+            long recordsCount = recordsCount(channel);
+            for (long first = 0L; first < recordsCount; first += SCAN_WINDOW) {
+                int count = (int) Math.min(SCAN_WINDOW, recordsCount - first);
+                IntBuffer records = channel.map(
+                        FileChannel.MapMode.READ_ONLY,
+                        HEADER_SIZE + first * RECORD_SIZE,
+                        (long) count * RECORD_SIZE).asIntBuffer();
+                for (int i = 0; i < count * 4; i += 4) {
+                    visitor.review(
+                            records.get(i),
+                            records.get(i + 1),
+                            records.get(i + 2) != 0,
+                            records.get(i + 3));
+                }
+            }
+            return recordsCount;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*  License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische
+ *    Universität Darmstadt nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+import de.tud.cs.se.flashcards.model.FlashcardSeries;
+import de.tud.cs.st.constraints.NotNull;
+import de.tud.cs.st.constraints.Null;
+
+
+/**
+ * Saves a flashcard series without blocking the Event Dispatch Thread (EDT).
+ * <p>
+ * On the EDT only the state that needs to be saved is captured: either the changes recorded by
+ * the {@link Journal} of the series (if the series is saved to the file it was opened from or
+ * saved to before) or a {@link DeckSnapshot}. Encoding and writing the data is done by a
+ * background thread; hence, the series can be edited while it is saved. All saves are done by
+ * the same thread in the order in which they were requested. Exports to text files are written
+ * by the same thread.
+ * </p>
+ * <p>
+ * All methods have to be called on the EDT.
+ * </p>
+ *
+ * @author Michael Eichberg
+ */
+public final class SaveService {
+
+    private static final ExecutorService WRITER;
+
+    static {
+        // The thread is not a daemon thread to make sure that pending saves are finished when the
+        // last window is closed; it terminates when it becomes idle.
+        ThreadPoolExecutor writer = new ThreadPoolExecutor(
+                1,
+                1,
+                1,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> new Thread(runnable, "Flashcards Writer"));
+        writer.allowCoreThreadTimeOut(true);
+        WRITER = writer;
+    }
+
+
+    private final FlashcardSeries flashcardSeries;
+
+
+    private Journal journal = null;
+
+
+    private @Null CompactionListener compactionListener = null;
+
+
+    private int pendingSaves = 0;
+
+
+    public SaveService(@NotNull FlashcardSeries flashcardSeries) {
+
+        this.flashcardSeries = flashcardSeries.getSourceModel();
+    }
+
+
+    /**
+     * Sets the listener that is informed if the journal of the series could not be compacted.
+     */
+    public void setCompactionListener(@Null CompactionListener compactionListener) {
+
+        this.compactionListener = compactionListener;
+        if (journal != null)
+            journal.setCompactionListener(compactionListener);
+    }
+
+
+    /**
+     * Starts journaling the changes of the series, which was just read from the given file.
+     */
+    public void opened(@NotNull File file) throws IOException {
+
+        closeJournal();
+        journal = Journal.attach(flashcardSeries, file);
+        journal.setCompactionListener(compactionListener);
+    }
+
+
+    /**
+     * Saves the series to the given file in the background; the state of the series at the time
+     * of this call is saved.
+     */
+    public void save(@NotNull File file, @NotNull SaveListener listener) {
+
+        final Journal saveJournal;
+        final Write write;
+        if (journal != null && journal.getFile().equals(file)) {
+            // only the changes need to be saved
+            saveJournal = journal;
+            byte[] commit = journal.takeChanges();
+            if (commit == null)
+                write = () -> {
+                    // nothing has changed
+                };
+            else
+                write = () -> saveJournal.append(commit);
+        } else {
+            DeckSnapshot snapshot = DeckSnapshot.capture(flashcardSeries);
+            closeJournal();
+            // all changes done after the snapshot was taken are journaled
+            saveJournal = Journal.record(flashcardSeries, file);
+            saveJournal.setCompactionListener(compactionListener);
+            journal = saveJournal;
+            write = () -> {
+                Store.saveSnapshot(snapshot, file);
+                saveJournal.open();
+            };
+        }
+
+        execute(file, saveJournal, write, listener);
+    }
+
+
+    /**
+     * Exports the series to the given text file in the background; the state of the series at
+     * the time of this call is exported. As in case of a save, only a {@link DeckSnapshot} is
+     * taken on the EDT.
+     */
+    public void export(
+            @NotNull File file,
+            @NotNull TextFormat format,
+            @NotNull SaveListener listener) {
+
+        DeckSnapshot snapshot = DeckSnapshot.capture(flashcardSeries);
+        execute(file, null, () -> format.exportCards(snapshot, file), listener);
+    }
+
+
+    private void execute(
+            @NotNull File file,
+            @Null Journal saveJournal,
+            @NotNull Write write,
+            @NotNull SaveListener listener) {
+
+        pendingSaves++;
+        WRITER.execute(() -> {
+            IOException failure = null;
+            try {
+                write.run();
+            } catch (IOException e) {
+                failure = e;
+            }
+            IOException exception = failure;
+            SwingUtilities.invokeLater(() -> saveDone(file, saveJournal, exception, listener));
+        });
+    }
+
+
+    private void saveDone(
+            @NotNull File file,
+            @Null Journal saveJournal,
+            @Null IOException exception,
+            @NotNull SaveListener listener) {
+
+        pendingSaves--;
+        if (exception == null) {
+            listener.saved(file);
+        } else {
+            // The journal does not match the file anymore; the next save has to save everything.
+            if (saveJournal != null && journal == saveJournal)
+                closeJournal();
+            listener.saveFailed(file, exception);
+        }
+    }
+
+
+    /**
+     * @return <code>true</code> if a save was requested that is not yet finished.
+     */
+    public boolean isSaving() {
+
+        return pendingSaves > 0;
+    }
+
+
+    /**
+     * Stops journaling the changes of the series; saves that are in progress are finished.
+     */
+    public void close() {
+
+        closeJournal();
+    }
+
+
+    private void closeJournal() {
+
+        if (journal != null) {
+            journal.detach();
+            journal = null;
+        }
+    }
+
+
+    private interface Write {
+
+        void run() throws IOException;
+    }
+}
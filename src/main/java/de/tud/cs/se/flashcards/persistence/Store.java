@@ -32,24 +32,43 @@
  */
 package de.tud.cs.se.flashcards.persistence;
 
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import de.tud.cs.se.flashcards.model.DefaultFlashcardSeries;
 import de.tud.cs.se.flashcards.model.Flashcard;
 import de.tud.cs.se.flashcards.model.FlashcardSeries;
+import de.tud.cs.se.flashcards.model.LazyFlashcardSeries;
 import de.tud.cs.st.constraints.NotNull;
 
 
 /**
  * Some helper methods related to persisting a flashcard series.
  * <p>
- * <b><font color="red">Attention: Persistence is currently not handled properly! Do never use Java
- * Serialization for long term storage! </font></b>
+ * Flashcard series are stored using a binary, column oriented file format (see {@link DeckFormat}).
+ * The cards are stored in blocks that are encoded using the selected {@link BlockCodec}; by default
+ * the blocks are compressed. The header of a file is validated before any card is read; hence,
+ * corrupt or truncated files are rejected immediately. Files that were stored using Java
+ * Serialization (the format used by previous versions) can still be read, but they will be
+ * converted when they are saved the next time.
+ * </p>
+ * <p>
+ * If a {@link Journal} exists for a file, the changes recorded by the journal are applied when
+ * the file is opened.
  * </p>
  *
  * @author Michael Eichberg
@@ -58,21 +77,149 @@ public final class Store {
 
     public static final @NotNull String FILE_ENDING = ".flashcards";
 
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+
+    /**
+     * Files that are larger than this threshold are memory-mapped when opened; i.e., opening them
+     * takes constant time and their blocks are decoded (in parallel) when they are accessed. Smaller
+     * files are read completely; their blocks are decoded in parallel while the file is read.
+     */
+    private static final long MAPPING_THRESHOLD = 8 * 1024 * 1024;
+
+
+    /**
+     * The first two bytes of every file written using Java Serialization.
+     */
+    private static final int SERIALIZATION_MAGIC = 0xACED;
+
+
+    private static final ConcurrentMap<File, Object> FILE_LOCKS = new ConcurrentHashMap<>();
+
+
+    private static volatile @NotNull BlockCodec codec = BlockCodecs.DEFLATE;
+
+
     private Store() {
         // prevent initialization
     }
 
+
+    /**
+     * @return The codec that is used to encode the blocks of saved files.
+     */
+    public static @NotNull BlockCodec getCodec() {
+
+        return codec;
+    }
+
+
+    /**
+     * Sets the codec that is used to encode the blocks of files that are saved afterwards. Files
+     * are always decoded using the codec they were saved with. By default, the blocks are
+     * compressed using {@link BlockCodecs#DEFLATE}.
+     */
+    public static void setCodec(@NotNull BlockCodec codec) {
+
+        Store.codec = codec;
+    }
+
+
+    /**
+     * Opens the given file. Large files are memory-mapped (see {@link #mapSeries(File)}).
+     */
     public static @NotNull FlashcardSeries openSeries(@NotNull File file) throws IOException {
 
-        try (ObjectInputStream oin = new ObjectInputStream(new FileInputStream(file))) {
-            DefaultFlashcardSeries series = new DefaultFlashcardSeries();
-            series.setNextCreationID(oin.readInt());
+        if (file.length() > MAPPING_THRESHOLD)
+            return mapSeries(file);
+        else
+            return readSeries(file);
+    }
+
+
+    /**
+     * Opens the given file by memory-mapping it. The flashcards are only decoded when they are
+     * accessed for the first time (see {@link LazyFlashcardSeries}). If the file cannot be mapped
+     * or if changes were journaled, it is read completely.
+     */
+    public static @NotNull FlashcardSeries mapSeries(@NotNull File file) throws IOException {
+
+        FlashcardSeries series = null;
+        if (!Journal.journalFile(file).exists())
+            series = MappedDeck.map(file);
+
+        if (series == null)
+            return readSeries(file);
+        else
+            return series;
+    }
+
+
+    private static @NotNull FlashcardSeries readSeries(@NotNull File file) throws IOException {
+
+        List<Flashcard> flashcards = new ArrayList<>();
+        int nextCreationID = readFlashcards(file, flashcards);
+        nextCreationID = Math.max(nextCreationID, Journal.replay(file, flashcards));
+
+        DefaultFlashcardSeries series = new DefaultFlashcardSeries();
+        series.setNextCreationID(nextCreationID);
+        for (Flashcard flashcard : flashcards) {
+            series.addCard(flashcard);
+        }
+        return series;
+    }
+
+
+    /**
+     * Reads the flashcards stored in the given file (ignoring a journal) and adds them to the list.
+     *
+     * @return The next creation id.
+     */
+    static int readFlashcards(@NotNull File file, @NotNull List<Flashcard> flashcards)
+            throws IOException {
+
+        try (FileInputStream fin = new FileInputStream(file);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(
+                        fin,
+                        BUFFER_SIZE))) {
+            long fileSize = fin.getChannel().size();
+            byte[] headerBytes = new byte[(int) Math.min(fileSize, DeckFormat.HEADER_SIZE)];
+            in.mark(headerBytes.length);
+            in.readFully(headerBytes);
+            in.reset();
+
+            ByteBuffer header = ByteBuffer.wrap(headerBytes);
+            if (headerBytes.length >= 4 && header.getInt(0) >>> 16 == SERIALIZATION_MAGIC)
+                return readSerializedFlashcards(in, flashcards);
+
+            // the header is validated before any card is read
+            DeckFormat.Header deckHeader = DeckFormat.readHeader(header, fileSize);
+            in.readFully(headerBytes, 0, DeckFormat.HEADER_SIZE);
+            DeckFormat.read(in, deckHeader, flashcards);
+            return deckHeader.nextCreationID;
+        }
+    }
+
+
+    private static int readSerializedFlashcards(
+            @NotNull DataInputStream in,
+            @NotNull List<Flashcard> flashcards) throws IOException {
+
+        try {
+            ObjectInputStream oin = new ObjectInputStream(in);
+            // Previous versions only stored the lowest byte of the next creation id; hence, the
+            // id is recomputed using the ids of the cards.
+            int nextCreationID = oin.readUnsignedByte();
             int size = oin.readInt();
+            if (size < 0)
+                throw new IOException("invalid number of flashcards: " + size);
             for (int i = 0; i < size; i++) {
-                Flashcard f = (Flashcard) oin.readObject();
-                series.addCard(f);
+                Flashcard flashcard = (Flashcard) oin.readObject();
+                nextCreationID = Math.max(nextCreationID, flashcard.getCreationID() + 1);
+                flashcards.add(flashcard);
             }
-            return series;
+            return nextCreationID;
 
         } catch (ClassNotFoundException e) {
             // The file did contain something unexpected; let's treat this as an IOException.
@@ -81,17 +228,95 @@ public final class Store {
     }
 
 
+    /**
+     * Saves the given series; an existing journal of the file is deleted.
+     * <p>
+     * The series is first written to a temporary file in the same directory, which is then
+     * atomically moved over the given file. Hence, the given file either contains the old or the
+     * new series, even if the application crashes while saving.
+     * </p>
+     */
     public static void saveSeries(@NotNull FlashcardSeries flashcardSeries, @NotNull File file)
             throws IOException {
 
-        FlashcardSeries fs = flashcardSeries.getSourceModel();
+        saveSnapshot(DeckSnapshot.capture(flashcardSeries), file);
+    }
+
 
-        try (ObjectOutputStream oOut = new ObjectOutputStream(new FileOutputStream(file))) {
-            oOut.write(flashcardSeries.getNextCreationID());
-            oOut.writeInt(fs.getSize());
-            for (int i = 0; i < fs.getSize(); i++) {
-                oOut.writeObject(fs.getElementAt(i));
+    /**
+     * Saves the snapshot as described by {@link #saveSeries(FlashcardSeries, File)}; can be
+     * called by any thread.
+     */
+    static void saveSnapshot(@NotNull DeckSnapshot snapshot, @NotNull File file)
+            throws IOException {
+
+        File tempFile = createTempFile(file);
+        try {
+            writeSnapshot(snapshot, tempFile);
+            // the journal of the file may be compacted concurrently (see Journal)
+            synchronized (fileLock(file)) {
+                replaceFile(tempFile, file);
+                Files.deleteIfExists(Journal.journalFile(file).toPath());
             }
+        } finally {
+            Files.deleteIfExists(tempFile.toPath());
+        }
+    }
+
+
+    /**
+     * @return The lock that has to be held while the given file or its journal is replaced or
+     *         while its journal is written.
+     */
+    static @NotNull Object fileLock(@NotNull File file) {
+
+        return FILE_LOCKS.computeIfAbsent(file.getAbsoluteFile(), lockedFile -> new Object());
+    }
+
+
+    /**
+     * Creates a new, empty file in the directory of the given file.
+     */
+    static @NotNull File createTempFile(@NotNull File file) throws IOException {
+
+        return File.createTempFile(
+                file.getName(),
+                ".tmp",
+                file.getAbsoluteFile().getParentFile());
+    }
+
+
+    /**
+     * Moves the source file over the target file; if supported by the file system the file is
+     * moved atomically.
+     */
+    static void replaceFile(@NotNull File source, @NotNull File target) throws IOException {
+
+        try {
+            Files.move(
+                    source.toPath(),
+                    target.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+
+    /**
+     * Writes the snapshot to the given file and forces the content to the storage device.
+     */
+    static void writeSnapshot(@NotNull DeckSnapshot snapshot, @NotNull File file)
+            throws IOException {
+
+        try (FileChannel channel = FileChannel.open(
+                file.toPath(),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DeckFormat.write(snapshot, codec, channel);
+            channel.force(true);
         }
     }
 }
@@ -0,0 +1,288 @@
+/*  License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische
+ *    Universität Darmstadt nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.persistence;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.tud.cs.se.flashcards.model.Flashcard;
+import de.tud.cs.se.flashcards.model.FlashcardSeries;
+import de.tud.cs.se.flashcards.model.FlashcardColumns;
+import de.tud.cs.st.constraints.NotNull;
+import de.tud.cs.st.constraints.Null;
+
+
+/**
+ * The text formats that can be used to exchange flashcards with other tools.
+ * <p>
+ * Each card is stored in one record with the fields: question, answer, created, remembered, not
+ * remembered, shown count, not remembered count and remembered in a row count. Dates use the ISO
+ * format (e.g., 2010-02-25); the date fields of cards that were never (not) remembered are empty.
+ * When importing, only the question and the answer are required. The first record contains the
+ * names of the fields; when importing, a first record that starts with "question" is skipped.
+ * </p>
+ * <p>
+ * Files are read and written in a streaming fashion using buffers of constant size (UTF-8
+ * encoded).
+ * </p>
+ *
+ * @author Michael Eichberg
+ */
+public enum TextFormat {
+
+    CSV(',', ".csv"),
+    TSV('\t', ".tsv");
+
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+
+    private static final String[] HEADER = {
+            "question",
+            "answer",
+            "created",
+            "remembered",
+            "not remembered",
+            "shown count",
+            "not remembered count",
+            "remembered in a row count" };
+
+
+    private final char delimiter;
+
+
+    private final String fileEnding;
+
+
+    TextFormat(char delimiter, @NotNull String fileEnding) {
+
+        this.delimiter = delimiter;
+        this.fileEnding = fileEnding;
+    }
+
+
+    public @NotNull String getFileEnding() {
+
+        return fileEnding;
+    }
+
+
+    /**
+     * @return The format of the given file (determined using the file ending) or
+     *         <code>null</code> if the file has no supported format.
+     */
+    public static @Null TextFormat forFile(@NotNull File file) {
+
+        String name = file.getName().toLowerCase();
+        for (TextFormat format : values()) {
+            if (name.endsWith(format.fileEnding))
+                return format;
+        }
+        return null;
+    }
+
+
+    /**
+     * Reads all cards stored in the given file. The cards do not belong to a series; to add them
+     * to a series use {@link FlashcardSeries#createAddCardsCommand(Flashcard[])}.
+     *
+     * @return The cards in the order in which they are stored in the file.
+     */
+    public @NotNull Flashcard[] importCards(@NotNull File file) throws IOException {
+
+        List<Flashcard> flashcards = new ArrayList<>();
+        List<String> fields = new ArrayList<>(HEADER.length);
+        try (DelimitedTextReader in = new DelimitedTextReader(new InputStreamReader(
+                new FileInputStream(file),
+                StandardCharsets.UTF_8), delimiter)) {
+            boolean firstRecord = true;
+            int lineNumber = in.getLineNumber();
+            while (in.readRecord(fields)) {
+                if (firstRecord) {
+                    firstRecord = false;
+                    // let's get rid of a byte order mark
+                    String first = fields.get(0);
+                    if (first.startsWith("\uFEFF"))
+                        first = first.substring(1);
+                    if (first.trim().equalsIgnoreCase(HEADER[0])) {
+                        lineNumber = in.getLineNumber();
+                        continue;
+                    }
+                    fields.set(0, first);
+                }
+
+                if (fields.size() > 1 || fields.get(0).length() > 0) // we skip empty lines
+                    flashcards.add(flashcard(fields, lineNumber));
+                lineNumber = in.getLineNumber();
+            }
+        }
+        return flashcards.toArray(new Flashcard[flashcards.size()]);
+    }
+
+
+    private static @NotNull Flashcard flashcard(@NotNull List<String> fields, int lineNumber)
+            throws IOException {
+
+        if (fields.size() < 2)
+            throw new IOException("the answer is missing (line " + lineNumber + ")");
+
+        try {
+            LocalDate created = date(fields, 2);
+            if (created == null)
+                created = LocalDate.now();
+            return new Flashcard(
+                    -1,
+                    fields.get(0),
+                    fields.get(1),
+                    created,
+                    date(fields, 3),
+                    date(fields, 4),
+                    count(fields, 5),
+                    count(fields, 6),
+                    count(fields, 7));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IOException("invalid value (line " + lineNumber + "): " + e.getMessage(), e);
+        }
+    }
+
+
+    private static @Null LocalDate date(@NotNull List<String> fields, int index) {
+
+        if (index >= fields.size() || fields.get(index).trim().length() == 0)
+            return null;
+        else
+            return LocalDate.parse(fields.get(index).trim());
+    }
+
+
+    private static int count(@NotNull List<String> fields, int index) {
+
+        if (index >= fields.size() || fields.get(index).trim().length() == 0)
+            return 0;
+
+        int count = Integer.parseInt(fields.get(index).trim());
+        if (count < 0)
+            throw new IllegalArgumentException("negative count: " + count);
+        return count;
+    }
+
+
+    /**
+     * Writes all cards of the given snapshot to the given file; can be called by any thread. As in
+     * case of {@link Store#saveSeries(FlashcardSeries, File)}, the cards are first written to a
+     * temporary file that then replaces the given file.
+     */
+    void exportCards(@NotNull DeckSnapshot snapshot, @NotNull File file) throws IOException {
+
+        int[][] columns = snapshot.columns;
+        File tempFile = Store.createTempFile(file);
+        try {
+            try (FileChannel channel = FileChannel.open(
+                    tempFile.toPath(),
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+                    Writer out = new BufferedWriter(new OutputStreamWriter(
+                            new ChannelOutputStream(channel),
+                            StandardCharsets.UTF_8), BUFFER_SIZE)) {
+                writeRecord(out, HEADER);
+                String[] fields = new String[HEADER.length];
+                for (int i = 0; i < snapshot.getSize(); i++) {
+                    fields[0] = snapshot.questions[i];
+                    fields[1] = snapshot.answers[i];
+                    fields[2] = format(columns[DeckFormat.CREATED][i]);
+                    fields[3] = format(columns[DeckFormat.REMEMBERED][i]);
+                    fields[4] = format(columns[DeckFormat.NOT_REMEMBERED][i]);
+                    fields[5] = String.valueOf(columns[DeckFormat.SHOWN_COUNT][i]);
+                    fields[6] = String.valueOf(columns[DeckFormat.NOT_REMEMBERED_COUNT][i]);
+                    fields[7] = String.valueOf(columns[DeckFormat.REMEMBERED_IN_A_ROW_COUNT][i]);
+                    writeRecord(out, fields);
+                }
+            }
+            Store.replaceFile(tempFile, file);
+        } finally {
+            Files.deleteIfExists(tempFile.toPath());
+        }
+    }
+
+
+    private static @NotNull String format(int epochDay) {
+
+        LocalDate date = FlashcardColumns.decodeDate(epochDay);
+        if (date == null)
+            return "";
+        else
+            return date.toString();
+    }
+
+
+    private void writeRecord(@NotNull Writer out, @NotNull String[] fields) throws IOException {
+
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0)
+                out.write(delimiter);
+            writeField(out, fields[i]);
+        }
+        out.write("\r\n");
+    }
+
+
+    private void writeField(@NotNull Writer out, @NotNull String field) throws IOException {
+
+        boolean quote = false;
+        for (int i = 0; i < field.length() && !quote; i++) {
+            char c = field.charAt(i);
+            quote = c == delimiter || c == '"' || c == '\n' || c == '\r';
+        }
+
+        if (quote) {
+            out.write('"');
+            out.write(field.replace("\"", "\"\""));
+            out.write('"');
+        } else {
+            out.write(field);
+        }
+    }
+}
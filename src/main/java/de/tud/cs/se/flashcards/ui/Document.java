@@ -0,0 +1,457 @@
+/*  License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische
+ *    Universität Darmstadt nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.ui;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+
+import javax.swing.Timer;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+
+import de.tud.cs.se.flashcards.model.CommandHistory;
+import de.tud.cs.se.flashcards.model.Flashcard;
+import de.tud.cs.se.flashcards.model.FlashcardSeries;
+import de.tud.cs.se.flashcards.persistence.ReviewLog;
+import de.tud.cs.se.flashcards.persistence.SaveListener;
+import de.tud.cs.se.flashcards.persistence.SaveService;
+import de.tud.cs.se.flashcards.persistence.Store;
+import de.tud.cs.se.flashcards.persistence.TextFormat;
+import de.tud.cs.st.constraints.NotNull;
+import de.tud.cs.st.constraints.Null;
+import de.tud.cs.util.Arrays;
+
+
+/**
+ * A flashcard series together with its file, its command history and the state related to
+ * saving it. A document is shared by all editors (windows) that show the same file (see
+ * {@link Workspace}).
+ * <p>
+ * All methods have to be called on the Event Dispatch Thread.
+ * </p>
+ *
+ * @author Michael Eichberg
+ */
+final class Document {
+
+    /**
+     * The interval (in milliseconds) in which changed documents are saved automatically.
+     */
+    private static final int AUTOSAVE_INTERVAL = 60 * 1000;
+
+
+    private static final DocumentStateListener[] NO_LISTENERS = new DocumentStateListener[0];
+
+
+    private final FlashcardSeries flashcards;
+
+
+    private final CommandHistory commands = new CommandHistory();
+
+
+    // Saves the document in the background.
+    private final SaveService saveService;
+
+
+    // Periodically saves the document (if the document has a file).
+    private final Timer autosaveTimer;
+
+
+    private DocumentStateListener[] listeners = NO_LISTENERS;
+
+
+    // The review log of the file; opened when the first review is recorded.
+    private @Null ReviewLog reviewLog = null;
+
+
+    // Set when the review log failed; no further reviews are recorded until the file changes.
+    private boolean reviewLogFailed = false;
+
+
+    // Set when saving the document automatically failed; reset when the document is saved.
+    private boolean autosaveFailed = false;
+
+
+    // The canonical file.
+    private @Null File file = null;
+
+
+    // The time of the last modification and the length of the file when it was opened or saved.
+    private long fileLastModified;
+
+
+    private long fileLength;
+
+
+    private boolean changed = false;
+
+
+    // The number of changes; used to determine whether the document was changed while it was saved.
+    private long changesCount = 0L;
+
+
+    // The number of editors that show this document (see Workspace).
+    private int editorsCount = 0;
+
+
+    Document(@NotNull FlashcardSeries flashcards) {
+
+        this.flashcards = flashcards.getSourceModel();
+        this.saveService = new SaveService(this.flashcards);
+        this.saveService.setCompactionListener((file, exception) -> reportProblem(
+                "The changes of the flashcards could not be integrated into:\n"
+                        + file.getName(),
+                exception));
+        this.autosaveTimer = new Timer(AUTOSAVE_INTERVAL, event -> autosave());
+
+        this.flashcards.addListDataListener(new ListDataListener() {
+
+            public void intervalAdded(ListDataEvent e) {
+
+                recordChange();
+            }
+
+
+            public void intervalRemoved(ListDataEvent e) {
+
+                recordChange();
+            }
+
+
+            public void contentsChanged(ListDataEvent e) {
+
+                recordChange();
+            }
+        });
+    }
+
+
+    /**
+     * Opens the given file; the changes of the document are journaled from now on.
+     */
+    static @NotNull Document open(@NotNull File file) throws IOException {
+
+        Document document = new Document(Store.openSeries(file));
+        document.saveService.opened(file);
+        document.setFile(file);
+        return document;
+    }
+
+
+    static @NotNull File canonicalFile(@NotNull File file) {
+
+        try {
+            return file.getCanonicalFile();
+        } catch (IOException e) {
+            return file.getAbsoluteFile();
+        }
+    }
+
+
+    private void setFile(@NotNull File file) {
+
+        File canonicalFile = canonicalFile(file);
+        if (!canonicalFile.equals(this.file)) {
+            closeReviewLog();
+            reviewLogFailed = false;
+        }
+
+        this.file = canonicalFile;
+        this.fileLastModified = file.lastModified();
+        this.fileLength = file.length();
+    }
+
+
+    /**
+     * @return The (source) flashcard series.
+     */
+    @NotNull FlashcardSeries getFlashcards() {
+
+        return flashcards;
+    }
+
+
+    @NotNull CommandHistory getCommands() {
+
+        return commands;
+    }
+
+
+    /**
+     * @return The canonical file of this document or <code>null</code> if this document was not
+     *         yet saved.
+     */
+    @Null File getFile() {
+
+        return file;
+    }
+
+
+    /**
+     * @return <code>true</code> if this document has unsaved changes.
+     */
+    boolean isChanged() {
+
+        return changed;
+    }
+
+
+    boolean isSaving() {
+
+        return saveService.isSaving();
+    }
+
+
+    /**
+     * @return <code>true</code> if the file was not changed (by another application) since it was
+     *         opened or saved.
+     */
+    boolean isUpToDate() {
+
+        return file != null && file.lastModified() == fileLastModified
+                && file.length() == fileLength;
+    }
+
+
+    int getEditorsCount() {
+
+        return editorsCount;
+    }
+
+
+    /**
+     * Called by the workspace when an editor starts showing this document.
+     */
+    void editorOpened() {
+
+        if (editorsCount == 0)
+            autosaveTimer.start();
+        editorsCount++;
+    }
+
+
+    /**
+     * Called by the workspace when an editor that showed this document is closed.
+     */
+    void editorClosed() {
+
+        editorsCount--;
+        if (editorsCount == 0)
+            autosaveTimer.stop();
+    }
+
+
+    void addDocumentStateListener(@NotNull DocumentStateListener listener) {
+
+        listeners = Arrays.append(listeners, listener);
+    }
+
+
+    void removeDocumentStateListener(@NotNull DocumentStateListener listener) {
+
+        listeners = Arrays.remove(listeners, listener, NO_LISTENERS);
+    }
+
+
+    private void notifyListeners() {
+
+        for (DocumentStateListener listener : listeners) {
+            listener.documentStateChanged(this);
+        }
+    }
+
+
+    private void reportProblem(@NotNull String message, @NotNull IOException exception) {
+
+        for (DocumentStateListener listener : listeners) {
+            listener.documentProblemOccurred(this, message, exception);
+        }
+    }
+
+
+    private void recordChange() {
+
+        changesCount++;
+        if (!changed) {
+            changed = true;
+            notifyListeners();
+        }
+    }
+
+
+    /**
+     * Saves this document in the background; the given listener is informed when the document was
+     * saved (after the state of this document was updated).
+     */
+    void save(@NotNull File file, @NotNull SaveListener listener) {
+
+        long savedChangesCount = changesCount;
+        saveService.save(file, new SaveListener() {
+
+            public void saved(File file) {
+
+                // the document may have been changed while it was saved
+                if (changesCount == savedChangesCount)
+                    changed = false;
+                autosaveFailed = false;
+                setFile(file);
+                notifyListeners();
+
+                listener.saved(file);
+            }
+
+
+            public void saveFailed(File file, IOException exception) {
+
+                listener.saveFailed(file, exception);
+            }
+        });
+    }
+
+
+    /**
+     * Exports the cards of this document to the given text file in the background; the given
+     * listener is informed when the cards were exported.
+     */
+    void export(@NotNull File file, @NotNull TextFormat format, @NotNull SaveListener listener) {
+
+        saveService.export(file, format, listener);
+    }
+
+
+    private void autosave() {
+
+        if (changed && file != null && !saveService.isSaving()) {
+            save(file, new SaveListener() {
+
+                public void saved(File file) {
+
+                    // nothing to do
+                }
+
+
+                public void saveFailed(File file, IOException exception) {
+
+                    // the document remains changed; the user is asked to save it when it is closed
+                    if (!autosaveFailed) {
+                        autosaveFailed = true;
+                        reportProblem("The flashcards could not be saved automatically to:\n"
+                                + file.getName() + "\nPlease save them manually.", exception);
+                    }
+                }
+            });
+        }
+    }
+
+
+    /**
+     * Records the review of the given card in the review log of the file; reviews of documents
+     * that were not yet saved are not recorded. The review is buffered until
+     * {@link #flushReviews()} is called or the buffer is full.
+     *
+     * @param responseTime
+     *           the time (in milliseconds) the user needed to answer the question.
+     */
+    void recordReview(@NotNull Flashcard flashcard, boolean remembered, int responseTime) {
+
+        if (file == null || reviewLogFailed)
+            return;
+
+        try {
+            if (reviewLog == null)
+                reviewLog = ReviewLog.open(file);
+            reviewLog.record(flashcard.getCreationID(), LocalDate.now(), remembered, responseTime);
+        } catch (IOException e) {
+            // the review log is not essential; learning can continue
+            reviewLogFailed(e);
+        }
+    }
+
+
+    /**
+     * Writes all recorded reviews to the review log.
+     */
+    void flushReviews() {
+
+        if (reviewLog == null)
+            return;
+
+        try {
+            reviewLog.flush();
+        } catch (IOException e) {
+            reviewLogFailed(e);
+        }
+    }
+
+
+    private void closeReviewLog() {
+
+        if (reviewLog == null)
+            return;
+
+        ReviewLog closedReviewLog = reviewLog;
+        reviewLog = null;
+        try {
+            closedReviewLog.close();
+        } catch (IOException e) {
+            reviewLogFailed(e);
+        }
+    }
+
+
+    /**
+     * Closes the review log and reports the problem; no further reviews are recorded.
+     */
+    private void reviewLogFailed(@NotNull IOException exception) {
+
+        if (reviewLogFailed)
+            return;
+
+        reviewLogFailed = true;
+        closeReviewLog();
+        reportProblem("The learning progress could not be recorded in the review log of:\n"
+                + file.getName(), exception);
+    }
+
+
+    /**
+     * Releases all resources; saves that are in progress are finished.
+     */
+    void dispose() {
+
+        autosaveTimer.stop();
+        saveService.close();
+        closeReviewLog();
+    }
+}
@@ -87,7 +87,7 @@ import javax.swing.event.ListDataListener;
 
 import de.tud.cs.se.flashcards.model.Command;
 import de.tud.cs.se.flashcards.model.CommandHistory;
-import de.tud.cs.se.flashcards.model.DefaultFlashcardSeries;
+import de.tud.cs.se.flashcards.model.CommandHistoryChangedListener;
 import de.tud.cs.se.flashcards.model.Flashcard;
 import de.tud.cs.se.flashcards.model.FlashcardObserver;
 import de.tud.cs.se.flashcards.model.FlashcardSeries;
@@ -95,7 +95,9 @@ import de.tud.cs.se.flashcards.model.FlashcardSeriesFilter;
 import de.tud.cs.se.flashcards.model.SortedFlashcardSeries;
 import de.tud.cs.se.flashcards.model.learning.LearningStrategies;
 import de.tud.cs.se.flashcards.model.learning.LearningStrategy;
+import de.tud.cs.se.flashcards.persistence.SaveListener;
 import de.tud.cs.se.flashcards.persistence.Store;
+import de.tud.cs.se.flashcards.persistence.TextFormat;
 import de.tud.cs.st.constraints.NotNull;
 import de.tud.cs.st.constraints.Null;
 
@@ -108,6 +110,15 @@ import de.tud.cs.st.constraints.Null;
  */
 public final class FlashcardsEditor {
 
+    /**
+     * The maximum number of closed (unmodified) documents that are kept in memory.
+     */
+    private static final int DOCUMENTS_CACHE_CAPACITY = 8;
+
+
+    private static final Workspace WORKSPACE = new Workspace(DOCUMENTS_CACHE_CAPACITY);
+
+
     // The UI components:
 
     private final JFrame frame;
@@ -191,13 +202,36 @@ public final class FlashcardsEditor {
     private final SortedFlashcardSeries sortedFlashcards;
 
 
-    private File file;
+    // The document is shared by all editors of the same file.
+    private final Document document;
 
 
-    private Flashcard infoPaneFlashcard = null;
+    private final DocumentStateListener documentStateListener = new DocumentStateListener() {
+
+        public void documentStateChanged(Document changedDocument) {
+
+            updateDocumentState();
+        }
+
+
+        public void documentProblemOccurred(
+                Document changedDocument,
+                String message,
+                IOException exception) {
+
+            if (frame.isDisplayable())
+                showMessageDialog(frame, message, "Problem with the flashcards", ERROR_MESSAGE);
+        }
+    };
+
 
+    private final CommandHistoryChangedListener commandHistoryChangedListener;
 
-    private boolean documentChanged = false;
+
+    private final ListDataListener listDataListener;
+
+
+    private Flashcard infoPaneFlashcard = null;
 
 
     // Factory method(s):
@@ -226,16 +260,13 @@ public final class FlashcardsEditor {
                     File file
     ) throws IOException {
 
-        this(Store.openSeries(file));
-
-        this.file = file;
-        Utilities.setFrameTitle(frame, file);
+        this(WORKSPACE.open(file));
     }
 
 
     private FlashcardsEditor(
             @NotNull
-                    FlashcardSeries flashcards
+                    Document document
     ) {
 
         /*
@@ -245,14 +276,16 @@ public final class FlashcardsEditor {
          *
          * All errors are handled as early as possible.
          *
-         * Each (Document)Frame is associated with exactly one FlashcardSeries.
+         * Each (Document)Frame is associated with exactly one FlashcardSeries; the series is
+         * shared with all other frames that show the same document.
          */
 
-        this.flashcards = flashcards;
+        this.document = document;
+        this.flashcards = document.getFlashcards();
         this.flashcardSeriesFilter = new FlashcardSeriesFilter(flashcards);
         this.sortedFlashcards = new SortedFlashcardSeries(flashcardSeriesFilter);
 
-        this.commands = new CommandHistory();
+        this.commands = document.getCommands();
 
         // setup of this frame; we need to do it here since the rootpane's
         // client property has to be set before the other components are created
@@ -269,7 +302,6 @@ public final class FlashcardsEditor {
         learnDialog = new LearnDialog(this);
 
         fileDialog = new java.awt.FileDialog(frame);
-        fileDialog.setFilenameFilter((directory, name) -> name.endsWith(Store.FILE_ENDING));
 
         // Setup the menu and its listeners:
         JMenuBar menuBar = setupMenuBar();
@@ -315,6 +347,9 @@ public final class FlashcardsEditor {
         // Setup of the main list
         list = new JList<>(sortedFlashcards);
         list.setCellRenderer(flashcardListCellRenderer);
+        // all cells have the same height; hence, the list only renders the visible cards (the
+        // cards of large series are loaded or sorted on demand)
+        list.setPrototypeCellValue(new Flashcard("Question", "Answer"));
 
         list.addListSelectionListener(event -> {
 
@@ -341,7 +376,10 @@ public final class FlashcardsEditor {
         frame.setSize(640, 480);
         frame.setLocationByPlatform(true);
         frame.setDefaultCloseOperation(javax.swing.WindowConstants.DO_NOTHING_ON_CLOSE);
+        listDataListener = createListDataListener();
+        commandHistoryChangedListener = createCommandHistoryChangedListener();
         addListeners(flashcards);
+        updateDocumentState();
 
         // Everything is setup; show the window:
         frame.setVisible(true);
@@ -370,6 +408,12 @@ public final class FlashcardsEditor {
                 (InputEvent.SHIFT_MASK | getDefaultToolkit().getMenuShortcutKeyMask())));
         saveAsFileMenuItem.addActionListener(event -> saveAsFlashcardSeries());
 
+        JMenuItem importFileMenuItem = new JMenuItem("Import...");
+        importFileMenuItem.addActionListener(event -> importFlashcards());
+
+        JMenuItem exportFileMenuItem = new JMenuItem("Export...");
+        exportFileMenuItem.addActionListener(event -> exportFlashcards());
+
         JMenuItem closeFileMenuItem = new JMenuItem("Close Window");
         closeFileMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_W, getDefaultToolkit()
                 .getMenuShortcutKeyMask()));
@@ -383,6 +427,9 @@ public final class FlashcardsEditor {
         fileMenu.add(saveFileMenuItem);
         fileMenu.add(saveAsFileMenuItem);
         fileMenu.addSeparator();
+        fileMenu.add(importFileMenuItem);
+        fileMenu.add(exportFileMenuItem);
+        fileMenu.addSeparator();
         fileMenu.add(closeFileMenuItem);
 
         JMenuBar menuBar = new JMenuBar();
@@ -402,22 +449,9 @@ public final class FlashcardsEditor {
         editButton.addActionListener(event -> editFlashcard());
 
         undoButton.setEnabled(false);
-        undoButton.addActionListener(e -> commands.undo());
+        undoButton.addActionListener(e -> inBatch(commands::undo));
         redoButton.setEnabled(false);
-        redoButton.addActionListener(e -> commands.redo());
-        commands.setCommandHistoryChangedListener(commands -> {
-
-            if (commands.undoableCommandsCount() == 0)
-                undoButton.setEnabled(false);
-            else
-                undoButton.setEnabled(true);
-
-            if (commands.redoableCommandsCount() == 0)
-                redoButton.setEnabled(false);
-            else
-                redoButton.setEnabled(true);
-
-        });
+        redoButton.addActionListener(e -> inBatch(commands::redo));
 
         playButton.addActionListener(event -> learn());
 
@@ -554,36 +588,80 @@ public final class FlashcardsEditor {
 
         });
 
-        flashcards.addListDataListener(new ListDataListener() {
+        flashcards.addListDataListener(listDataListener);
+        commands.addCommandHistoryChangedListener(commandHistoryChangedListener);
+        document.addDocumentStateListener(documentStateListener);
+    }
+
+
+    private void removeListeners(FlashcardSeries flashcards) {
+
+        flashcards.removeListDataListener(listDataListener);
+        commands.removeCommandHistoryChangedListener(commandHistoryChangedListener);
+        document.removeDocumentStateListener(documentStateListener);
+        flashcardSeriesFilter.dispose();
+        if (infoPaneFlashcard != null) {
+            infoPaneFlashcard.removeObserver(infoPaneUpdateObserver);
+            infoPaneFlashcard = null;
+        }
+    }
+
+
+    private ListDataListener createListDataListener() {
+
+        return new ListDataListener() {
 
             // Only GUI related functionality:
 
             public void contentsChanged(ListDataEvent event) {
 
-                documentChanged = true;
-                frame.getRootPane().putClientProperty("Window.documentModified", Boolean.TRUE);
+                // nothing to do
             }
 
 
             public void intervalAdded(ListDataEvent event) {
 
-                documentChanged = true;
-                frame.getRootPane().putClientProperty("Window.documentModified", Boolean.TRUE);
-
                 playButton.setEnabled(true);
             }
 
 
             public void intervalRemoved(ListDataEvent event) {
 
-                documentChanged = true;
-                frame.getRootPane().putClientProperty("Window.documentModified", Boolean.TRUE);
-
                 if (FlashcardsEditor.this.flashcards.getSize() == 0)
                     playButton.setEnabled(false);
             }
 
-        });
+        };
+    }
+
+
+    private CommandHistoryChangedListener createCommandHistoryChangedListener() {
+
+        return commands -> {
+
+            if (commands.undoableCommandsCount() == 0)
+                undoButton.setEnabled(false);
+            else
+                undoButton.setEnabled(true);
+
+            if (commands.redoableCommandsCount() == 0)
+                redoButton.setEnabled(false);
+            else
+                redoButton.setEnabled(true);
+
+        };
+    }
+
+
+    /**
+     * Updates the window to reflect the state of the (shared) document.
+     */
+    private void updateDocumentState() {
+
+        frame.getRootPane().putClientProperty("Window.documentModified", document.isChanged());
+        Utilities.setFrameTitle(frame, document.getFile());
+        commandHistoryChangedListener.historyChanged(commands);
+        playButton.setEnabled(flashcards.getSize() > 0);
     }
 
 
@@ -679,8 +757,15 @@ public final class FlashcardsEditor {
     }
 
 
+    @NotNull Document getDocument() {
+
+        return document;
+    }
+
+
     private void openFlashcardSeries() {
 
+        fileDialog.setFilenameFilter((directory, name) -> name.endsWith(Store.FILE_ENDING));
         fileDialog.setMode(FileDialog.LOAD);
         fileDialog.setVisible(true);
         String filename = fileDialog.getFile();
@@ -695,15 +780,16 @@ public final class FlashcardsEditor {
 
     private void saveFlashcardSeries() {
 
-        if (file == null)
+        if (document.getFile() == null)
             saveAsFlashcardSeries();
         else
-            doSave(file);
+            doSave(document.getFile());
     }
 
 
     private void saveAsFlashcardSeries() {
 
+        fileDialog.setFilenameFilter((directory, name) -> name.endsWith(Store.FILE_ENDING));
         fileDialog.setMode(FileDialog.SAVE);
         fileDialog.setVisible(true);
         String filename = fileDialog.getFile();
@@ -733,23 +819,84 @@ public final class FlashcardsEditor {
                     File file
     ) {
 
-        try {
+        document.save(file, new SaveListener() {
+
+            public void saved(File file) {
+
+                // the window's title is updated by the document listener
+            }
+
 
-            Store.saveSeries(sortedFlashcards, file);
-            this.documentChanged = false;
+            public void saveFailed(File file, IOException exception) {
 
-            // saving the file was successful, let's update the window's title
-            this.file = file;
-            this.frame.getRootPane().putClientProperty("Window.documentModified", false);
-            Utilities.setFrameTitle(frame, file);
+                if (frame.isDisplayable())
+                    showMessageDialog(frame, "Saving the flashcards to:\n" + file.getName()
+                            + "\nfailed.", "Could not save flashcards", ERROR_MESSAGE);
+            }
+        });
+    }
+
+
+    private void importFlashcards() {
+
+        fileDialog.setFilenameFilter(
+                (directory, name) -> TextFormat.forFile(new File(name)) != null);
+        fileDialog.setMode(FileDialog.LOAD);
+        fileDialog.setVisible(true);
+        String filename = fileDialog.getFile();
+        if (filename == null)
+            return;
 
+        File importFile = new File(fileDialog.getDirectory(), filename);
+        TextFormat format = TextFormat.forFile(importFile);
+        if (format == null)
+            format = TextFormat.CSV;
+        try {
+            Flashcard[] importedFlashcards = format.importCards(importFile);
+            // all cards are added using one command (and one event of the source model)
+            inBatch(() -> commands.execute(
+                    sortedFlashcards.createAddCardsCommand(importedFlashcards)));
         } catch (IOException e) {
-            showMessageDialog(frame, "Could not save flashcards", "Saving the flashcards to :\n"
-                    + file.getName() + "\nfailed.", ERROR_MESSAGE);
+            showMessageDialog(frame, "Importing the flashcards from:\n" + importFile.getName()
+                    + "\nfailed:\n" + e.getMessage(), "Could not import flashcards", ERROR_MESSAGE);
         }
     }
 
 
+    private void exportFlashcards() {
+
+        fileDialog.setFilenameFilter(
+                (directory, name) -> TextFormat.forFile(new File(name)) != null);
+        fileDialog.setMode(FileDialog.SAVE);
+        fileDialog.setVisible(true);
+        String filename = fileDialog.getFile();
+        if (filename == null)
+            return;
+
+        TextFormat format = TextFormat.forFile(new File(filename));
+        if (format == null) {
+            format = TextFormat.CSV;
+            filename += format.getFileEnding();
+        }
+        File exportFile = new File(fileDialog.getDirectory(), filename);
+        document.export(exportFile, format, new SaveListener() {
+
+            public void saved(File file) {
+
+                // nothing to do
+            }
+
+
+            public void saveFailed(File file, IOException exception) {
+
+                if (frame.isDisplayable())
+                    showMessageDialog(frame, "Exporting the flashcards to:\n" + file.getName()
+                            + "\nfailed.", "Could not export flashcards", ERROR_MESSAGE);
+            }
+        });
+    }
+
+
     private void learn() {
 
         Object message = JOptionPane.showInputDialog(
@@ -789,7 +936,7 @@ public final class FlashcardsEditor {
      */
     public static void newFlashcardEditor() {
 
-        new FlashcardsEditor(DefaultFlashcardSeries.createInitialFlashcardSeries());
+        new FlashcardsEditor(WORKSPACE.create());
     }
 
 
@@ -799,7 +946,9 @@ public final class FlashcardsEditor {
      */
     private boolean closeFlashcardEditor() {
 
-        if (documentChanged
+        // only the last editor of a document has to ask for unsaved changes
+        if (document.isChanged()
+                && document.getEditorsCount() == 1
                 && JOptionPane.showConfirmDialog(
                         frame,
                         "Your document contains unsaved changes, close?",
@@ -807,6 +956,9 @@ public final class FlashcardsEditor {
                         JOptionPane.OK_CANCEL_OPTION) == JOptionPane.CANCEL_OPTION)
             return false;
 
+        removeListeners(flashcards);
+        WORKSPACE.close(document);
+
         frame.setVisible(false);
         frame.dispose(); // required to give up all resources
         return true;
@@ -830,7 +982,30 @@ public final class FlashcardsEditor {
         int[] indices = list.getSelectedIndices();
         list.clearSelection();
 
-        commands.execute(sortedFlashcards.createRemoveCardsCommand(indices));
+        inBatch(() -> commands.execute(sortedFlashcards.createRemoveCardsCommand(indices)));
+    }
+
+
+    /**
+     * Performs the given changes as one batch (see {@link FlashcardSeries#beginBatch()}) of the
+     * source model and of the sorted series; i.e., the journal and the filter are informed once
+     * per removed or (re)added run of cards and the list is updated once.
+     */
+    private void inBatch(@NotNull Runnable changes) {
+
+        FlashcardSeries sourceModel = sortedFlashcards.getSourceModel();
+        sortedFlashcards.beginBatch();
+        sourceModel.beginBatch();
+        try {
+            changes.run();
+        } finally {
+            try {
+                // the (merged) events of the source model update the sorted series
+                sourceModel.endBatch();
+            } finally {
+                sortedFlashcards.endBatch();
+            }
+        }
     }
 
 
@@ -106,6 +106,14 @@ public class LearnDialog {
     private LearningStrategy learningStrategy; // set by the show method
 
 
+    // The time (see System.nanoTime) when the current question was shown.
+    private long questionShownTime;
+
+
+    // The time (in milliseconds) the user needed to answer the current question.
+    private int responseTime;
+
+
     LearnDialog(@NotNull FlashcardsEditor owner) {
 
         this.owner = owner;
@@ -137,6 +145,7 @@ public class LearnDialog {
         cancelButton.addActionListener(e -> {
 
             stopElapsedTimeUpdater();
+            owner.getDocument().flushReviews();
             dialog.setVisible(false);
         });
 
@@ -176,6 +185,7 @@ public class LearnDialog {
             @Override public void windowClosed(WindowEvent e) {
 
                 stopElapsedTimeUpdater();
+                owner.getDocument().flushReviews();
             }
 
         });
@@ -218,6 +228,9 @@ public class LearnDialog {
     private void showAnswer() {
 
         currentState = State.SHOWS_ANSWER;
+        responseTime = (int) Math.min(
+                Integer.MAX_VALUE,
+                (System.nanoTime() - questionShownTime) / 1000000L);
 
         updateContentLabel();
         titleLabel.setText("Answer");
@@ -233,14 +246,18 @@ public class LearnDialog {
 
     private void remembered() {
 
-        learningStrategy.current().setRemembered(LocalDate.now());
+        Flashcard flashcard = learningStrategy.current();
+        flashcard.setRemembered(LocalDate.now());
+        owner.getDocument().recordReview(flashcard, true, responseTime);
         showNextQuestion();
     }
 
 
     private void forgotten() {
 
-        learningStrategy.current().setNotRemembered(LocalDate.now());
+        Flashcard flashcard = learningStrategy.current();
+        flashcard.setNotRemembered(LocalDate.now());
+        owner.getDocument().recordReview(flashcard, false, responseTime);
         showNextQuestion();
     }
 
@@ -261,8 +278,10 @@ public class LearnDialog {
 
             dialog.getContentPane().revalidate();
             dialog.repaint();
+            questionShownTime = System.nanoTime();
         } else {
             stopElapsedTimeUpdater();
+            owner.getDocument().flushReviews();
 
             dialog.setVisible(false);
         }
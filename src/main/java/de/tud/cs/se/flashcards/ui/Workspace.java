@@ -0,0 +1,173 @@
+/*  License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische
+ *    Universität Darmstadt nor the names of its contributors may be used to
+ *    endorse or promote products derived from this software without specific
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.ui;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.tud.cs.se.flashcards.model.DefaultFlashcardSeries;
+import de.tud.cs.st.constraints.NotNull;
+
+
+/**
+ * Manages all documents of the application.
+ * <p>
+ * A file is opened at most once; all editors that show the same file share the same
+ * {@link Document} (identified by the file's canonical path). When the last editor of an
+ * unmodified document is closed, the document is kept in a cache of limited size. Hence,
+ * reopening a recently closed file does not require to read it again. The least recently closed
+ * document is evicted if the cache is full; a cached document whose file was changed in the
+ * meantime is read again.
+ * </p>
+ * <p>
+ * All methods have to be called on the Event Dispatch Thread.
+ * </p>
+ *
+ * @author Michael Eichberg
+ */
+final class Workspace {
+
+    private final List<Document> openDocuments = new ArrayList<>();
+
+
+    private final Map<File, Document> closedDocuments;
+
+
+    /**
+     * @param cacheCapacity
+     *           the maximum number of closed documents that are cached.
+     */
+    Workspace(final int cacheCapacity) {
+
+        this.closedDocuments = new LinkedHashMap<File, Document>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+
+            @Override protected boolean removeEldestEntry(Map.Entry<File, Document> eldest) {
+
+                if (size() > cacheCapacity) {
+                    eldest.getValue().dispose();
+                    return true;
+                } else {
+                    return false;
+                }
+            }
+        };
+    }
+
+
+    /**
+     * Opens the given file for a new editor; if the file is already open, the document is shared.
+     */
+    @NotNull Document open(@NotNull File file) throws IOException {
+
+        File canonicalFile = Document.canonicalFile(file);
+        for (Document document : openDocuments) {
+            if (canonicalFile.equals(document.getFile())) {
+                document.editorOpened();
+                return document;
+            }
+        }
+
+        Document document = closedDocuments.remove(canonicalFile);
+        if (document != null && !document.isUpToDate()) {
+            document.dispose();
+            document = null;
+        }
+        if (document == null)
+            document = Document.open(file);
+
+        return opened(document);
+    }
+
+
+    /**
+     * Creates a new document for a new editor.
+     */
+    @NotNull Document create() {
+
+        return opened(new Document(DefaultFlashcardSeries.createInitialFlashcardSeries()));
+    }
+
+
+    private @NotNull Document opened(@NotNull Document document) {
+
+        openDocuments.add(document);
+        document.editorOpened();
+        return document;
+    }
+
+
+    /**
+     * Called when an editor of the given document is closed.
+     */
+    void close(@NotNull Document document) {
+
+        document.editorClosed();
+        if (document.getEditorsCount() > 0)
+            return;
+
+        openDocuments.remove(document);
+        File file = document.getFile();
+        if (file != null && !document.isChanged() && !document.isSaving()) {
+            Document replacedDocument = closedDocuments.put(file, document);
+            if (replacedDocument != null)
+                replacedDocument.dispose();
+        } else {
+            document.dispose();
+        }
+    }
+
+
+    /**
+     * @return The number of documents that are shown by at least one editor.
+     */
+    int getOpenDocumentsCount() {
+
+        return openDocuments.size();
+    }
+
+
+    /**
+     * @return The number of closed documents that are cached.
+     */
+    int getCachedDocumentsCount() {
+
+        return closedDocuments.size();
+    }
+}
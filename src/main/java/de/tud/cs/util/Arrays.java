@@ -1,6 +1,8 @@
 package de.tud.cs.util;
 
 import java.lang.reflect.Array;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 import de.tud.cs.st.constraints.NotNull;
 import de.tud.cs.st.constraints.Null;
@@ -16,6 +18,13 @@ public final class Arrays {
     public static final int[] EMPTY_INT_ARRAY = new int[0];
 
 
+    /**
+     * The minimum number of keys that are sorted by one thread (see
+     * {@link #parallelSort(long[], int[])}).
+     */
+    private static final int MIN_PARALLEL_CHUNK_LENGTH = 1 << 14;
+
+
     private Arrays() {
 
         super();
@@ -306,4 +315,123 @@ public final class Arrays {
 
         return newts;
     }
+
+
+    /**
+     * Sorts the given keys in ascending order and reorders the values such that each value stays
+     * associated with its key; i.e., the value values[i] is associated with the key keys[i].
+     * <p>
+     * The keys are sorted using a (stable) radix sort that does not box the keys or the values; the
+     * passes over those bytes that are equal for all keys are skipped.
+     * </p>
+     */
+    public static void sort(@NotNull long[] keys, @NotNull int[] values) {
+
+        sort(keys, values, 1);
+    }
+
+
+    /**
+     * Sorts the given keys and values like {@link #sort(long[], int[])}, but uses all available
+     * processors for large arrays.
+     */
+    public static void parallelSort(@NotNull long[] keys, @NotNull int[] values) {
+
+        int chunksCount = Math.min(
+                Runtime.getRuntime().availableProcessors(),
+                keys.length / MIN_PARALLEL_CHUNK_LENGTH);
+        sort(keys, values, Math.max(chunksCount, 1));
+    }
+
+
+    /**
+     * Each pass of the radix sort first counts the bytes of each chunk of keys and then moves the
+     * keys of each chunk; the chunks are processed in parallel. Since the keys of the first chunk
+     * are moved before the keys of the second chunk with the same byte etc., the sort is stable.
+     */
+    private static void sort(@NotNull long[] keys, @NotNull int[] values, int chunksCount) {
+
+        if (keys.length != values.length)
+            throw new IllegalArgumentException(keys.length + " != " + values.length);
+        if (keys.length == 0)
+            return;
+
+        int length = keys.length;
+        int chunkLength = (length + chunksCount - 1) / chunksCount;
+        long[] sourceKeys = keys;
+        int[] sourceValues = values;
+        long[] targetKeys = new long[length];
+        int[] targetValues = new int[length];
+        int[][] offsets = new int[chunksCount][256];
+        for (int pass = 0; pass < 8; pass++) {
+            final int currentPass = pass;
+            final long[] passSourceKeys = sourceKeys;
+            final int[] passSourceValues = sourceValues;
+            final long[] passTargetKeys = targetKeys;
+            final int[] passTargetValues = targetValues;
+
+            forEachChunk(chunksCount, chunk -> {
+                int[] counts = offsets[chunk];
+                java.util.Arrays.fill(counts, 0);
+                int end = Math.min(length, (chunk + 1) * chunkLength);
+                for (int i = chunk * chunkLength; i < end; i++) {
+                    counts[digit(passSourceKeys[i], currentPass)]++;
+                }
+            });
+
+            int firstDigit = digit(sourceKeys[0], pass);
+            int firstDigitCount = 0;
+            for (int chunk = 0; chunk < chunksCount; chunk++) {
+                firstDigitCount += offsets[chunk][firstDigit];
+            }
+            if (firstDigitCount == length)
+                continue; // all keys have the same byte
+
+            int offset = 0;
+            for (int b = 0; b < 256; b++) {
+                for (int chunk = 0; chunk < chunksCount; chunk++) {
+                    int count = offsets[chunk][b];
+                    offsets[chunk][b] = offset;
+                    offset += count;
+                }
+            }
+
+            forEachChunk(chunksCount, chunk -> {
+                int[] chunkOffsets = offsets[chunk];
+                int end = Math.min(length, (chunk + 1) * chunkLength);
+                for (int i = chunk * chunkLength; i < end; i++) {
+                    long key = passSourceKeys[i];
+                    int target = chunkOffsets[digit(key, currentPass)]++;
+                    passTargetKeys[target] = key;
+                    passTargetValues[target] = passSourceValues[i];
+                }
+            });
+
+            sourceKeys = passTargetKeys;
+            sourceValues = passTargetValues;
+            targetKeys = passSourceKeys;
+            targetValues = passSourceValues;
+        }
+
+        if (sourceKeys != keys) {
+            System.arraycopy(sourceKeys, 0, keys, 0, length);
+            System.arraycopy(sourceValues, 0, values, 0, length);
+        }
+    }
+
+
+    private static void forEachChunk(int chunksCount, @NotNull IntConsumer action) {
+
+        if (chunksCount == 1)
+            action.accept(0);
+        else
+            IntStream.range(0, chunksCount).parallel().forEach(action);
+    }
+
+
+    private static int digit(long key, int pass) {
+
+        // the sign bit is flipped to sort negative keys before positive keys
+        return (int) (((key ^ Long.MIN_VALUE) >>> (pass * 8)) & 0xFF);
+    }
 }
@@ -0,0 +1,154 @@
+/** License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische 
+ *    Universität Darmstadt nor the names of its contributors may be used to 
+ *    endorse or promote products derived from this software without specific 
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+
+import org.junit.Test;
+
+
+/**
+ * Tests that a {@link PagedFlashcardSeries} that uses a {@link ColumnarFlashcardStorage} behaves
+ * like a {@link DefaultFlashcardSeries}.
+ *
+ * @author Michael Eichberg
+ */
+public class ColumnarFlashcardStorageTest {
+
+    @Test public void testCopySeries() {
+
+        DefaultFlashcardSeries series = DefaultFlashcardSeries.createInitialFlashcardSeries();
+        series.getElementAt(1).setRemembered(LocalDate.of(2010, 3, 1));
+        ColumnarFlashcardStorage storage = ColumnarFlashcardStorage.of(series);
+        PagedFlashcardSeries columnarSeries = new PagedFlashcardSeries(storage);
+
+        assertEquals(series.getSize(), columnarSeries.getSize());
+        for (int i = 0; i < series.getSize(); i++) {
+            Flashcard e = series.getElementAt(i);
+            Flashcard a = columnarSeries.getElementAt(i);
+            assertEquals(e.getQuestion(), a.getQuestion());
+            assertEquals(e.getAnswer(), a.getAnswer());
+            assertEquals(e.getCreated(), a.getCreated());
+            assertEquals(e.getRemembered(), a.getRemembered());
+            assertEquals(e.getNotRemembered(), a.getNotRemembered());
+            assertEquals(e.getShownCount(), a.getShownCount());
+            assertEquals(e.getRememberedInARowCount(), a.getRememberedInARowCount());
+            assertEquals(a.getCreationID(), columnarSeries.getCreationIDAt(i));
+        }
+        int row = columnarSeries.getCreationIDAt(1);
+        assertEquals(
+                LocalDate.of(2010, 3, 1).toEpochDay(),
+                storage.getColumnValue(row, FlashcardColumns.REMEMBERED));
+        assertEquals(
+                FlashcardColumns.NO_DATE,
+                storage.getColumnValue(row, FlashcardColumns.NOT_REMEMBERED));
+        assertEquals(row, storage.getColumnValue(row, FlashcardColumns.CREATION_ID));
+    }
+
+
+    @Test public void testChangesAreStored() {
+
+        ColumnarFlashcardStorage storage = new ColumnarFlashcardStorage();
+        PagedFlashcardSeries series = new PagedFlashcardSeries(storage);
+        Flashcard[] flashcards = new Flashcard[40];
+        for (int i = 0; i < flashcards.length; i++) {
+            flashcards[i] = new Flashcard("q" + i, "a" + i);
+        }
+        Command addCommand = series.createAddCardsCommand(flashcards);
+        addCommand.execute();
+        assertEquals(40, series.getSize());
+        assertEquals(40, storage.getRowsCount());
+
+        Flashcard flashcard = series.getElementAt(5);
+        flashcard.setNotRemembered(LocalDate.of(2010, 3, 2));
+        flashcard.createUpdateCommand("Q5", "A5").execute();
+        int row = flashcard.getCreationID();
+        assertEquals(1, storage.getColumnValue(row, FlashcardColumns.SHOWN_COUNT));
+        assertEquals(1, storage.getColumnValue(row, FlashcardColumns.NOT_REMEMBERED_COUNT));
+        assertEquals("Q5", storage.load(row).getQuestion());
+        assertTrue(storage.contains(row, "A5"));
+        assertFalse(storage.contains(row, "q5"));
+
+        Command removeCommand = series.createRemoveCardsCommand(new int[] { 0, 5 });
+        removeCommand.execute();
+        assertEquals(38, series.getSize());
+        assertTrue(storage.isRemoved(row));
+        assertEquals(-1, series.indexOfCreationID(row));
+        removeCommand.unexecute();
+        assertEquals(5, series.indexOfCreationID(row));
+
+        addCommand.unexecute();
+        assertEquals(0, series.getSize());
+        assertNull(storage.load(row).getRemembered());
+    }
+
+
+    @Test public void testViews() {
+
+        DefaultFlashcardSeries series = DefaultFlashcardSeries.createInitialFlashcardSeries();
+        PagedFlashcardSeries columnarSeries =
+                new PagedFlashcardSeries(ColumnarFlashcardStorage.of(series));
+        columnarSeries.createRemoveCardsCommand(new int[] { 1 }).execute();
+        series.createRemoveCardsCommand(new int[] { 1 }).execute();
+        columnarSeries.getElementAt(2).setRemembered(LocalDate.of(2010, 3, 1));
+        series.getElementAt(2).setRemembered(LocalDate.of(2010, 3, 1));
+
+        // the keys and the search term are evaluated using the storage
+        FlashcardSeriesFilter filter = new FlashcardSeriesFilter(columnarSeries);
+        filter.setSearchTerm("e");
+        SortedFlashcardSeries sortedSeries = new SortedFlashcardSeries(filter);
+        sortedSeries.setSortingStrategy(sortedSeries.lastTimeRememberedStrategy());
+
+        FlashcardSeriesFilter expectedFilter = new FlashcardSeriesFilter(series);
+        expectedFilter.setSearchTerm("e");
+        SortedFlashcardSeries expectedSeries = new SortedFlashcardSeries(expectedFilter);
+        expectedSeries.setSortingStrategy(expectedSeries.lastTimeRememberedStrategy());
+
+        assertEquals(expectedSeries.getSize(), sortedSeries.getSize());
+        for (int i = 0; i < expectedSeries.getSize(); i++) {
+            assertEquals(
+                    expectedSeries.getElementAt(i).getQuestion(),
+                    sortedSeries.getElementAt(i).getQuestion());
+        }
+        assertEquals(
+                "Beispiel",
+                sortedSeries.getElementAt(sortedSeries.getSize() - 1).getQuestion());
+        filter.dispose();
+        expectedFilter.dispose();
+    }
+}
@@ -80,4 +80,25 @@ public class CommandHistoryTest {
         assertEquals(0, commandHistory.redoableCommandsCount());
 
     }
+
+
+    @Test public void testListeners() {
+
+        CommandHistory commandHistory = new CommandHistory();
+        FlashcardSeries flashcards = new DefaultFlashcardSeries();
+        int[] notifications = new int[2];
+        CommandHistoryChangedListener first = history -> notifications[0]++;
+        CommandHistoryChangedListener second = history -> notifications[1]++;
+        commandHistory.addCommandHistoryChangedListener(first);
+        commandHistory.addCommandHistoryChangedListener(second);
+
+        commandHistory.execute(flashcards.createAddCardCommand(new Flashcard("1", "1")));
+        assertEquals(1, notifications[0]);
+        assertEquals(1, notifications[1]);
+
+        commandHistory.removeCommandHistoryChangedListener(first);
+        commandHistory.undo();
+        assertEquals(1, notifications[0]);
+        assertEquals(2, notifications[1]);
+    }
 }
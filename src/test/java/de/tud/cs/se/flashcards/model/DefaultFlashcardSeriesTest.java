@@ -38,6 +38,10 @@ import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.swing.event.ListDataEvent;
 import javax.swing.event.ListDataListener;
 
@@ -296,4 +300,322 @@ public class DefaultFlashcardSeriesTest {
         assertSame(a, fs.getElementAt(1));
         assertSame(c, fs.getElementAt(0));
     }
+
+
+    @Test public void testUndoRedoOfAddCards() {
+
+        FlashcardSeries fs = new DefaultFlashcardSeries();
+        Flashcard a = new Flashcard("a", "a");
+        fs.createAddCardCommand(a).execute();
+
+        final int[] events = { 0 };
+        fs.addListDataListener(new ListDataListener() {
+
+            public void contentsChanged(ListDataEvent e) {
+
+                fail("unexpected event");
+            }
+
+
+            public void intervalAdded(ListDataEvent e) {
+
+                events[0]++;
+                assertEquals(0, e.getIndex0());
+                assertEquals(1, e.getIndex1());
+            }
+
+
+            public void intervalRemoved(ListDataEvent e) {
+
+                events[0]++;
+                assertEquals(0, e.getIndex0());
+                assertEquals(1, e.getIndex1());
+            }
+        });
+
+        Flashcard b = new Flashcard("b", "b");
+        Flashcard c = new Flashcard("c", "c");
+        Command bcC = fs.createAddCardsCommand(new Flashcard[] { b, c });
+        bcC.execute();
+        assertEquals(1, events[0]);
+        assertEquals(3, fs.getSize());
+        assertSame(b, fs.getElementAt(0));
+        assertSame(c, fs.getElementAt(1));
+        assertSame(a, fs.getElementAt(2));
+        assertEquals(1, b.getCreationID());
+        assertEquals(2, c.getCreationID());
+
+        bcC.unexecute();
+        assertEquals(2, events[0]);
+        assertEquals(1, fs.getSize());
+        assertSame(a, fs.getElementAt(0));
+
+        bcC.execute();
+        assertEquals(3, events[0]);
+        assertSame(c, fs.getElementAt(1));
+    }
+
+
+    @Test public void testUndoRedoOfRemoveCards() {
+
+        DefaultFlashcardSeries fs = new DefaultFlashcardSeries();
+        Flashcard[] flashcards = new Flashcard[10];
+        for (int i = 0; i < flashcards.length; i++) {
+            flashcards[i] = new Flashcard("q" + i, "a" + i);
+        }
+        fs.createAddCardsCommand(flashcards).execute();
+        SortedFlashcardSeries sfs = new SortedFlashcardSeries(fs);
+        FlashcardSeriesFilter fsf = new FlashcardSeriesFilter(fs);
+
+        final List<String> events = new ArrayList<>();
+        fs.addListDataListener(new ListDataListener() {
+
+            public void contentsChanged(ListDataEvent e) {
+
+                fail("unexpected event");
+            }
+
+
+            public void intervalAdded(ListDataEvent e) {
+
+                events.add("+" + e.getIndex0() + "-" + e.getIndex1());
+            }
+
+
+            public void intervalRemoved(ListDataEvent e) {
+
+                events.add("-" + e.getIndex0() + "-" + e.getIndex1());
+            }
+        });
+
+        Command rC = fs.createRemoveCardsCommand(new int[] { 1, 2, 3, 6, 8, 9 });
+        rC.execute();
+        assertEquals("[-8-9, -6-6, -1-3]", events.toString());
+        assertEquals(4, fs.getSize());
+        assertSame(flashcards[0], fs.getElementAt(0));
+        assertSame(flashcards[4], fs.getElementAt(1));
+        assertSame(flashcards[5], fs.getElementAt(2));
+        assertSame(flashcards[7], fs.getElementAt(3));
+        assertEquals(4, sfs.getSize());
+        assertEquals(4, fsf.getSize());
+        assertSame(flashcards[7], fsf.getElementAt(3));
+
+        events.clear();
+        rC.unexecute();
+        assertEquals("[+1-3, +6-6, +8-9]", events.toString());
+        for (int i = 0; i < flashcards.length; i++) {
+            assertSame(flashcards[i], fs.getElementAt(i));
+            assertSame(flashcards[i], fsf.getElementAt(i));
+        }
+        SortedFlashcardSeries expected = new SortedFlashcardSeries(fs);
+        assertEquals(expected.getSize(), sfs.getSize());
+        for (int i = 0; i < sfs.getSize(); i++) {
+            assertSame(expected.getElementAt(i), sfs.getElementAt(i));
+        }
+    }
+
+
+    @Test public void testContentsChangedAfterStructuralChanges() {
+
+        DefaultFlashcardSeries fs = DefaultFlashcardSeries.createInitialFlashcardSeries();
+        final int[] changedIndex = { -1 };
+        fs.addListDataListener(new ListDataListener() {
+
+            public void contentsChanged(ListDataEvent e) {
+
+                assertEquals(e.getIndex0(), e.getIndex1());
+                changedIndex[0] = e.getIndex0();
+            }
+
+
+            public void intervalAdded(ListDataEvent e) {
+
+            }
+
+
+            public void intervalRemoved(ListDataEvent e) {
+
+            }
+        });
+
+        Flashcard flashcard = fs.getElementAt(3);
+        flashcard.setRemembered(LocalDate.now());
+        assertEquals(3, changedIndex[0]);
+
+        fs.createAddCardCommand(new Flashcard("a", "a")).execute();
+        flashcard.setRemembered(LocalDate.now());
+        assertEquals(4, changedIndex[0]);
+
+        Command rC = fs.createRemoveCardsCommand(new int[] { 0, 1, 2 });
+        rC.execute();
+        flashcard.setRemembered(LocalDate.now());
+        assertEquals(1, changedIndex[0]);
+
+        rC.unexecute();
+        flashcard.setRemembered(LocalDate.now());
+        assertEquals(4, changedIndex[0]);
+
+        // removing cards in the middle only moves the following cards
+        Flashcard firstFlashcard = fs.getElementAt(0);
+        rC = fs.createRemoveCardsCommand(new int[] { 1, 3 });
+        rC.execute();
+        flashcard.setRemembered(LocalDate.now());
+        assertEquals(2, changedIndex[0]);
+        firstFlashcard.setRemembered(LocalDate.now());
+        assertEquals(0, changedIndex[0]);
+        rC.unexecute();
+        flashcard.setRemembered(LocalDate.now());
+        assertEquals(4, changedIndex[0]);
+
+        // adding cards and changing them in turn must not rebuild the index of all cards
+        Command aC = fs.createAddCardsCommand(
+                new Flashcard[] { new Flashcard("b", "b"), new Flashcard("c", "c") });
+        aC.execute();
+        flashcard.setRemembered(LocalDate.now());
+        assertEquals(6, changedIndex[0]);
+        aC.unexecute();
+        flashcard.setRemembered(LocalDate.now());
+        assertEquals(4, changedIndex[0]);
+
+        Flashcard lastFlashcard = new Flashcard("z", "z");
+        fs.addCard(lastFlashcard);
+        for (int i = 0; i < 100000; i++) {
+            Flashcard newFlashcard = new Flashcard("q" + i, "a");
+            fs.createAddCardCommand(newFlashcard).execute();
+            newFlashcard.setRemembered(LocalDate.now());
+            assertEquals(0, changedIndex[0]);
+        }
+        lastFlashcard.setRemembered(LocalDate.now());
+        assertEquals(fs.getSize() - 1, changedIndex[0]);
+    }
+
+
+    @Test public void testBatch() {
+
+        DefaultFlashcardSeries fs = DefaultFlashcardSeries.createInitialFlashcardSeries();
+        SortedFlashcardSeries sfs = new SortedFlashcardSeries(fs);
+        final List<String> events = new ArrayList<>();
+        sfs.addListDataListener(new ListDataListener() {
+
+            public void contentsChanged(ListDataEvent e) {
+
+                events.add("*" + e.getIndex0() + "-" + e.getIndex1());
+            }
+
+
+            public void intervalAdded(ListDataEvent e) {
+
+                events.add("+" + e.getIndex0() + "-" + e.getIndex1());
+            }
+
+
+            public void intervalRemoved(ListDataEvent e) {
+
+                events.add("-" + e.getIndex0() + "-" + e.getIndex1());
+            }
+        });
+        int size = fs.getSize();
+
+        // the cards are added one after another at the end of the sorted series
+        sfs.beginBatch();
+        sfs.beginBatch();
+        sfs.createAddCardCommand(new Flashcard("a", "a")).execute();
+        sfs.endBatch();
+        sfs.createAddCardCommand(new Flashcard("b", "b")).execute();
+        assertTrue(events.isEmpty());
+        sfs.endBatch();
+        assertEquals("[+" + size + "-" + (size + 1) + "]", events.toString());
+
+        // the removed cards are not adjacent
+        events.clear();
+        sfs.beginBatch();
+        Command rC = sfs.createRemoveCardsCommand(new int[] { 0, 2, 3 });
+        rC.execute();
+        sfs.endBatch();
+        assertEquals("[-0-" + (size + 1) + ", +0-" + (size - 2) + "]", events.toString());
+        assertEquals(size - 1, sfs.getSize());
+
+        try {
+            sfs.endBatch();
+            fail("endBatch without beginBatch");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+
+    @Test public void testBatchOfSourceModel() {
+
+        DefaultFlashcardSeries fs = DefaultFlashcardSeries.createInitialFlashcardSeries();
+        final List<String> events = new ArrayList<>();
+        fs.addListDataListener(new ListDataListener() {
+
+            public void contentsChanged(ListDataEvent e) {
+
+                events.add("*" + e.getIndex0() + "-" + e.getIndex1());
+            }
+
+
+            public void intervalAdded(ListDataEvent e) {
+
+                events.add("+" + e.getIndex0() + "-" + e.getIndex1());
+            }
+
+
+            public void intervalRemoved(ListDataEvent e) {
+
+                events.add("-" + e.getIndex0() + "-" + e.getIndex1());
+            }
+        });
+        int size = fs.getSize();
+
+        // the listeners of a source model are never informed that all cards were replaced
+        fs.beginBatch();
+        Command rC = fs.createRemoveCardsCommand(new int[] { 0, 2, 3, 5 });
+        rC.execute();
+        assertTrue(events.isEmpty());
+        fs.endBatch();
+        assertEquals("[-5-5, -2-3, -0-0]", events.toString());
+        assertEquals(size - 4, fs.getSize());
+
+        events.clear();
+        fs.beginBatch();
+        rC.unexecute();
+        fs.endBatch();
+        assertEquals("[+0-0, +2-3, +5-5]", events.toString());
+        assertEquals(size, fs.getSize());
+    }
+
+
+    @Test public void testMergeEvents() {
+
+        Object source = new Object();
+        ListDataEvent added = new ListDataEvent(source, ListDataEvent.INTERVAL_ADDED, 2, 4);
+        ListDataEvent merged = AbstractFlashcardSeries.merge(
+                added,
+                new ListDataEvent(source, ListDataEvent.INTERVAL_ADDED, 5, 6));
+        assertEquals(2, merged.getIndex0());
+        assertEquals(6, merged.getIndex1());
+        assertSame(added, AbstractFlashcardSeries.merge(
+                added,
+                new ListDataEvent(source, ListDataEvent.CONTENTS_CHANGED, 3, 4)));
+        assertEquals(null, AbstractFlashcardSeries.merge(
+                added,
+                new ListDataEvent(source, ListDataEvent.INTERVAL_ADDED, 0, 1)));
+
+        ListDataEvent removed = new ListDataEvent(source, ListDataEvent.INTERVAL_REMOVED, 3, 4);
+        merged = AbstractFlashcardSeries.merge(
+                removed,
+                new ListDataEvent(source, ListDataEvent.INTERVAL_REMOVED, 1, 2));
+        assertEquals(1, merged.getIndex0());
+        assertEquals(4, merged.getIndex1());
+        merged = AbstractFlashcardSeries.merge(
+                removed,
+                new ListDataEvent(source, ListDataEvent.INTERVAL_REMOVED, 3, 3));
+        assertEquals(3, merged.getIndex0());
+        assertEquals(5, merged.getIndex1());
+        assertEquals(null, AbstractFlashcardSeries.merge(
+                removed,
+                new ListDataEvent(source, ListDataEvent.INTERVAL_REMOVED, 4, 4)));
+    }
 }
@@ -34,7 +34,9 @@ package de.tud.cs.se.flashcards.model;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
+import java.time.LocalDate;
 import java.util.Stack;
 
 import javax.swing.event.ListDataEvent;
@@ -290,4 +292,79 @@ public class FlashcardSeriesFilterTest {
         assertEquals(4, fsf.getSize());
 
     }
+
+
+    @Test public void testAddCards() {
+
+        FlashcardSeries dfs = new DefaultFlashcardSeries();
+        dfs.createAddCardCommand(new Flashcard("x", "x")).execute();
+        dfs.createAddCardCommand(new Flashcard("ab", "ab")).execute();
+        FlashcardSeriesFilter fsf = new FlashcardSeriesFilter(dfs);
+        fsf.setSearchTerm("a");
+        SortedFlashcardSeries sfs = new SortedFlashcardSeries(fsf);
+        fsf.addListDataListener(ldl);
+
+        Flashcard a_a = new Flashcard("a", "a");
+        Flashcard d_d = new Flashcard("d", "d");
+        Flashcard a_e = new Flashcard("a", "e");
+        sfs.createAddCardsCommand(new Flashcard[] { a_a, d_d, a_e }).execute();
+
+        // the accepted cards are added using a single event
+        assertEquals(1, ldl.lastEvents.size());
+        assertEquals(ListDataEvent.INTERVAL_ADDED, ldl.lastEvent().getType());
+        assertEquals(0, ldl.lastEvent().getIndex0());
+        assertEquals(1, ldl.lastEvent().getIndex1());
+        assertEquals(3, fsf.getSize());
+        assertSame(a_a, fsf.getElementAt(0));
+        assertSame(a_e, fsf.getElementAt(1));
+
+        // all cards were created on the same day; hence, they are sorted by their creation id
+        assertEquals(3, sfs.getSize());
+        for (int i = 1; i < sfs.getSize(); i++) {
+            assertTrue(sfs.getElementAt(i - 1).getCreationID() < sfs
+                    .getElementAt(i)
+                    .getCreationID());
+        }
+    }
+
+
+    @Test public void testChangedCardsAreReportedAsRuns() {
+
+        DefaultFlashcardSeries dfs = new DefaultFlashcardSeries();
+        for (String text : new String[] { "a", "b", "ab", "ba" }) {
+            dfs.createAddCardCommand(new Flashcard(text, text)).execute();
+        }
+        // [ba, ab, b, a]
+        FlashcardSeriesFilter fsf = new FlashcardSeriesFilter(dfs);
+        fsf.setSearchTerm("a");
+        fsf.addListDataListener(ldl);
+
+        dfs.beginBatch();
+        for (int i = 0; i < dfs.getSize(); i++) {
+            dfs.getElementAt(i).setRemembered(LocalDate.now());
+        }
+        dfs.endBatch();
+
+        // the filtered card "b" does not split the run
+        assertEquals(1, ldl.lastEvents.size());
+        assertEquals(ListDataEvent.CONTENTS_CHANGED, ldl.lastEvent().getType());
+        assertEquals(0, ldl.lastEvent().getIndex0());
+        assertEquals(2, ldl.lastEvent().getIndex1());
+
+        // the run is reported before a card is filtered
+        ldl.lastEvents.clear();
+        dfs.beginBatch();
+        dfs.getElementAt(0).createUpdateCommand("b", "b").execute();
+        for (int i = 1; i < dfs.getSize(); i++) {
+            dfs.getElementAt(i).setNotRemembered(LocalDate.now());
+        }
+        dfs.endBatch();
+        assertEquals(2, ldl.lastEvents.size());
+        assertEquals(ListDataEvent.CONTENTS_CHANGED, ldl.lastEvents.get(0).getType());
+        assertEquals(1, ldl.lastEvents.get(0).getIndex0());
+        assertEquals(2, ldl.lastEvents.get(0).getIndex1());
+        assertEquals(ListDataEvent.INTERVAL_REMOVED, ldl.lastEvent().getType());
+        assertEquals(0, ldl.lastEvent().getIndex0());
+        assertEquals(2, fsf.getSize());
+    }
 }
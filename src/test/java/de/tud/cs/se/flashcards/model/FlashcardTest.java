@@ -0,0 +1,87 @@
+/** License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische 
+ *    Universität Darmstadt nor the names of its contributors may be used to 
+ *    endorse or promote products derived from this software without specific 
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.model;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.LocalDate;
+
+import org.junit.Test;
+
+
+/**
+ * Tests the management of the observers of a flashcard.
+ *
+ * @author Michael Eichberg
+ */
+public class FlashcardTest {
+
+    @Test public void testObservers() {
+
+        final StringBuilder notifications = new StringBuilder();
+        Flashcard flashcard = new Flashcard("q", "a");
+        FlashcardObserver a = f -> notifications.append('a');
+        FlashcardObserver b = f -> notifications.append('b');
+        FlashcardObserver c = new FlashcardObserver() {
+
+            public void cardChanged(Flashcard f) {
+
+                notifications.append('c');
+                f.removeObserver(this);
+            }
+        };
+
+        flashcard.addObserver(a);
+        flashcard.setRemembered(LocalDate.now());
+        assertEquals("a", notifications.toString());
+
+        flashcard.addObserver(b);
+        flashcard.addObserver(c);
+        flashcard.setRemembered(LocalDate.now());
+        // the observer that was added last is notified first
+        assertEquals("acba", notifications.toString());
+
+        // c removed itself
+        flashcard.setRemembered(LocalDate.now());
+        assertEquals("acbaba", notifications.toString());
+
+        flashcard.removeObserver(a);
+        flashcard.removeObserver(c); // not registered
+        flashcard.setRemembered(LocalDate.now());
+        assertEquals("acbabab", notifications.toString());
+
+        flashcard.removeObserver(b);
+        flashcard.setRemembered(LocalDate.now());
+        assertEquals("acbabab", notifications.toString());
+    }
+}
@@ -0,0 +1,119 @@
+/** License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische 
+ *    Universität Darmstadt nor the names of its contributors may be used to 
+ *    endorse or promote products derived from this software without specific 
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.model;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.LocalDate;
+
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+
+import org.junit.Test;
+
+
+/**
+ * Tests that a lazy flashcard series only loads the cards that are accessed.
+ *
+ * @author Michael Eichberg
+ */
+public class LazyFlashcardSeriesTest {
+
+    static class CountingLoader implements FlashcardLoader {
+
+        int loadedCount = 0;
+
+
+        public int getSize() {
+
+            return 10;
+        }
+
+
+        public Flashcard load(int index) {
+
+            loadedCount++;
+            return new Flashcard("q" + index, "a" + index);
+        }
+
+
+        public void loadColumns(int[] columns, int[][] values) {
+
+            throw new UnsupportedOperationException();
+        }
+    }
+
+
+    @Test public void testRemoveAndUndoDoNotLoadCards() {
+
+        CountingLoader loader = new CountingLoader();
+        LazyFlashcardSeries series = new LazyFlashcardSeries(loader, 10);
+        Flashcard loadedFlashcard = series.getElementAt(3);
+        final int[] changedIndex = { -1 };
+        series.addListDataListener(new ListDataListener() {
+
+            public void contentsChanged(ListDataEvent e) {
+
+                changedIndex[0] = e.getIndex0();
+            }
+
+
+            public void intervalAdded(ListDataEvent e) {
+
+                // nothing to do
+            }
+
+
+            public void intervalRemoved(ListDataEvent e) {
+
+                // nothing to do
+            }
+        });
+
+        Command removeCommand = series.createRemoveCardsCommand(new int[] { 1, 2, 3, 7 });
+        removeCommand.execute();
+        assertEquals(1, loader.loadedCount);
+        loadedFlashcard.setRemembered(LocalDate.now());
+        assertEquals(-1, changedIndex[0]);
+
+        removeCommand.unexecute();
+        assertEquals(1, loader.loadedCount);
+        loadedFlashcard.setRemembered(LocalDate.now());
+        assertEquals(3, changedIndex[0]);
+
+        // the cards that are loaded after the undo are observed
+        series.getElementAt(2).setRemembered(LocalDate.now());
+        assertEquals(2, loader.loadedCount);
+        assertEquals(2, changedIndex[0]);
+    }
+}
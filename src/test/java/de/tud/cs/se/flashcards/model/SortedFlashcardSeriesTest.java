@@ -0,0 +1,389 @@
+/** License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische 
+ *    Universität Darmstadt nor the names of its contributors may be used to 
+ *    endorse or promote products derived from this software without specific 
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import javax.swing.SwingUtilities;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+
+import org.junit.Test;
+
+
+/**
+ * Tests that a sorted flashcard series stays sorted when the underlying series is changed and
+ * that its events describe the changes.
+ *
+ * @author Michael Eichberg
+ */
+public class SortedFlashcardSeriesTest {
+
+    @Test public void testRankedTree() {
+
+        Random random = new Random(42);
+        RankedTree tree = new RankedTree();
+        List<RankedTree.Node> expected = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            if (expected.isEmpty() || random.nextInt(3) != 0) {
+                RankedTree.Node node = new RankedTree.Node();
+                int rank = random.nextInt(expected.size() + 1);
+                tree.insert(rank, node);
+                expected.add(rank, node);
+            } else {
+                RankedTree.Node node = expected.remove(random.nextInt(expected.size()));
+                tree.remove(node);
+            }
+        }
+
+        assertEquals(expected.size(), tree.size());
+        for (int rank = 0; rank < expected.size(); rank++) {
+            assertSame(expected.get(rank), tree.get(rank));
+            assertEquals(rank, tree.rank(expected.get(rank)));
+        }
+
+        tree.build(expected.toArray(new RankedTree.Node[0]));
+        for (int rank = 0; rank < expected.size(); rank++) {
+            assertEquals(rank, tree.rank(expected.get(rank)));
+        }
+    }
+
+
+    @Test public void testChangesOfTheUnderlyingSeries() {
+
+        Random random = new Random(42);
+        CommandHistory history = new CommandHistory();
+        DefaultFlashcardSeries series = new DefaultFlashcardSeries();
+        SortedFlashcardSeries sorted = new SortedFlashcardSeries(series);
+        sorted.setSortingStrategy(sorted.timesRememberedInARowStrategy());
+
+        // the events have to match the state of the sorted series when they are fired
+        List<Flashcard> mirror = new ArrayList<>();
+        sorted.addListDataListener(new ListDataListener() {
+
+            public void intervalAdded(ListDataEvent e) {
+
+                for (int i = e.getIndex0(); i <= e.getIndex1(); i++) {
+                    mirror.add(i, sorted.getElementAt(i));
+                }
+            }
+
+
+            public void intervalRemoved(ListDataEvent e) {
+
+                mirror.subList(e.getIndex0(), e.getIndex1() + 1).clear();
+            }
+
+
+            public void contentsChanged(ListDataEvent e) {
+
+                for (int i = e.getIndex0(); i <= e.getIndex1(); i++) {
+                    mirror.set(i, sorted.getElementAt(i));
+                }
+            }
+        });
+
+        LocalDate date = LocalDate.of(2010, 3, 1);
+        for (int step = 0; step < 300; step++) {
+            switch (random.nextInt(5)) {
+            case 0:
+                history.execute(sorted.createAddCardCommand(new Flashcard("q" + step, "a")));
+                break;
+            case 1:
+                Flashcard[] flashcards = new Flashcard[1 + random.nextInt(5)];
+                for (int i = 0; i < flashcards.length; i++) {
+                    flashcards[i] = new Flashcard("q" + step + "/" + i, "a");
+                }
+                history.execute(sorted.createAddCardsCommand(flashcards));
+                break;
+            case 2:
+                if (sorted.getSize() > 2)
+                    history.execute(sorted.createRemoveCardsCommand(new int[] { 0, 2 }));
+                break;
+            case 3:
+                if (history.undoableCommandsCount() > 0)
+                    history.undo();
+                break;
+            default:
+                if (sorted.getSize() > 0) {
+                    Flashcard flashcard = series.getElementAt(random.nextInt(series.getSize()));
+                    if (random.nextBoolean())
+                        flashcard.setRemembered(date);
+                    else
+                        flashcard.setNotRemembered(date);
+                }
+            }
+
+            assertEquals(sorted.getSize(), mirror.size());
+            for (int i = 0; i < mirror.size(); i++) {
+                assertSame(mirror.get(i), sorted.getElementAt(i));
+            }
+        }
+
+        SortedFlashcardSeries resorted = new SortedFlashcardSeries(series);
+        resorted.setSortingStrategy(resorted.timesRememberedInARowStrategy());
+        assertEquals(resorted.getSize(), sorted.getSize());
+        for (int i = 0; i < sorted.getSize(); i++) {
+            assertSame(resorted.getElementAt(i), sorted.getElementAt(i));
+        }
+    }
+
+
+    @Test public void testChangeThatKeepsTheSortKey() {
+
+        DefaultFlashcardSeries series = new DefaultFlashcardSeries();
+        series.createAddCardsCommand(new Flashcard[] {
+                new Flashcard("a", "a"), new Flashcard("b", "b"), new Flashcard("c", "c") })
+                .execute();
+        SortedFlashcardSeries sorted = new SortedFlashcardSeries(series);
+        Flashcard flashcard = sorted.getElementAt(1);
+
+        List<String> events = new ArrayList<>();
+        sorted.addListDataListener(new ListDataListener() {
+
+            public void intervalAdded(ListDataEvent e) {
+
+                events.add("added");
+            }
+
+
+            public void intervalRemoved(ListDataEvent e) {
+
+                events.add("removed");
+            }
+
+
+            public void contentsChanged(ListDataEvent e) {
+
+                events.add("changed " + e.getIndex0() + "-" + e.getIndex1());
+            }
+        });
+        flashcard.createUpdateCommand("x", "y").execute();
+
+        assertEquals("[changed 1-1]", events.toString());
+        assertSame(flashcard, sorted.getElementAt(1));
+    }
+
+
+    @Test public void testBackgroundSort() throws Exception {
+
+        DefaultFlashcardSeries series = new DefaultFlashcardSeries();
+        SortedFlashcardSeries[] sorted = new SortedFlashcardSeries[1];
+        Flashcard[] flashcards = new Flashcard[SortedFlashcardSeries.BACKGROUND_SORT_THRESHOLD];
+        Flashcard newFlashcard = new Flashcard("new", "a");
+        List<String> events = new ArrayList<>();
+        SwingUtilities.invokeAndWait(() -> {
+            for (int i = 0; i < flashcards.length; i++) {
+                flashcards[i] = new Flashcard("q" + i, "a");
+            }
+            series.createAddCardsCommand(flashcards).execute();
+            flashcards[0].setRemembered(LocalDate.of(2010, 3, 1));
+
+            sorted[0] = new SortedFlashcardSeries(series);
+            sorted[0].addListDataListener(new ListDataListener() {
+
+                public void intervalAdded(ListDataEvent e) {
+
+                    events.add("added " + e.getIndex0() + "-" + e.getIndex1());
+                }
+
+
+                public void intervalRemoved(ListDataEvent e) {
+
+                    events.add("removed " + e.getIndex0() + "-" + e.getIndex1());
+                }
+
+
+                public void contentsChanged(ListDataEvent e) {
+
+                    events.add("changed " + e.getIndex0() + "-" + e.getIndex1());
+                }
+            });
+            sorted[0].setSortingStrategy(sorted[0].timesRememberedInARowStrategy());
+
+            // the new order is shown immediately
+            assertTrue(sorted[0].showsPreview());
+            assertEquals("[changed 0-" + (flashcards.length - 1) + "]", events.toString());
+            assertSame(flashcards[1], sorted[0].getElementAt(0));
+            assertSame(flashcards[2], sorted[0].getElementAt(1));
+        });
+
+        waitUntilSorted(sorted[0]);
+        SwingUtilities.invokeAndWait(() -> {
+            assertEquals(1, events.size());
+            assertSame(flashcards[1], sorted[0].getElementAt(0));
+            assertSame(flashcards[0], sorted[0].getElementAt(flashcards.length - 1));
+
+            // changes while the preview is shown restart the background sort; the preview is
+            // reported as changed
+            events.clear();
+            sorted[0].setSortingStrategy(sorted[0].dateCreatedStrategy());
+            assertSame(flashcards[0], sorted[0].getElementAt(0));
+            int size = flashcards.length;
+            sorted[0].createRemoveCardsCommand(new int[] { 5 }).execute();
+            assertTrue(sorted[0].showsPreview());
+            assertEquals(size - 1, sorted[0].getSize());
+            series.createAddCardCommand(newFlashcard).execute();
+            assertTrue(sorted[0].showsPreview());
+            assertEquals(size, sorted[0].getSize());
+            assertEquals(
+                    "[changed 0-" + (size - 1) + ", removed " + (size - 1) + "-" + (size - 1)
+                            + ", changed 0-" + (size - 2) + ", added " + (size - 1) + "-"
+                            + (size - 1) + ", changed 0-" + (size - 1) + "]",
+                    events.toString());
+            assertSame(flashcards[0], sorted[0].getElementAt(0));
+            assertSame(flashcards[6], sorted[0].getElementAt(5));
+        });
+
+        waitUntilSorted(sorted[0]);
+        SwingUtilities.invokeAndWait(() -> {
+            assertEquals(flashcards.length, sorted[0].getSize());
+            assertSame(flashcards[0], sorted[0].getElementAt(0));
+            assertSame(flashcards[6], sorted[0].getElementAt(5));
+            assertSame(newFlashcard, sorted[0].getElementAt(flashcards.length - 1));
+        });
+    }
+
+
+    private static void waitUntilSorted(SortedFlashcardSeries sorted) throws Exception {
+
+        long deadline = System.currentTimeMillis() + 10000;
+        boolean[] preview = new boolean[] { true };
+        while (preview[0] && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            SwingUtilities.invokeAndWait(() -> preview[0] = sorted.showsPreview());
+        }
+        assertFalse(preview[0]);
+    }
+
+
+    @Test public void testPartiallySortedIndices() {
+
+        Random random = new Random(42);
+        int size = 5000;
+        long[][] keys = new long[2][size];
+        for (int uIndex = 0; uIndex < size; uIndex++) {
+            keys[0][uIndex] = random.nextInt(20) - 10;
+            keys[1][uIndex] = uIndex;
+        }
+        int[] expected = new int[size];
+        for (int uIndex = 0; uIndex < size; uIndex++) {
+            expected[uIndex] = uIndex;
+        }
+        PartiallySortedIndices.sort(keys, expected, false);
+
+        PartiallySortedIndices indices = new PartiallySortedIndices(keys, size);
+        assertEquals(expected[0], indices.get(0));
+        assertEquals(expected[PartiallySortedIndices.PAGE_SIZE], indices.get(
+                PartiallySortedIndices.PAGE_SIZE));
+        assertEquals(expected[700], indices.get(700));
+        for (int position = 0; position < size; position++) {
+            assertEquals(expected[position], indices.get(position));
+        }
+    }
+
+
+    @Test public void testCompositeSortOrder() {
+
+        Random random = new Random(42);
+        LocalDate date = LocalDate.of(2010, 3, 1);
+        Flashcard[] flashcards = new Flashcard[200];
+        for (int i = 0; i < flashcards.length; i++) {
+            LocalDate notRemembered = null;
+            if (random.nextBoolean())
+                notRemembered = date.plusDays(random.nextInt(5));
+            flashcards[i] = new Flashcard(
+                    -1, "q" + i, "a", date, null, notRemembered, random.nextInt(4), 0, 0);
+        }
+        DefaultFlashcardSeries series = new DefaultFlashcardSeries();
+        series.createAddCardsCommand(flashcards).execute();
+        SortedFlashcardSeries sorted = new SortedFlashcardSeries(series);
+        sorted.setSortingStrategy(FlashcardSortOrder.descending(FlashcardSortKey.NOT_REMEMBERED)
+                .thenAscending(FlashcardSortKey.SHOWN_COUNT));
+
+        Comparator<Flashcard> expectedOrder = Comparator
+                .comparingLong((Flashcard f) -> FlashcardColumns.encodeDate(f.getNotRemembered()))
+                .reversed()
+                .thenComparingInt(Flashcard::getShownCount)
+                .thenComparingInt(Flashcard::getCreationID);
+        List<Flashcard> expected = new ArrayList<>(Arrays.asList(flashcards));
+        expected.sort(expectedOrder);
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i), sorted.getElementAt(i));
+        }
+
+        // a changed card is moved to its new position
+        Flashcard flashcard = expected.get(expected.size() - 1);
+        flashcard.setNotRemembered(date.plusDays(10));
+        assertSame(flashcard, sorted.getElementAt(0));
+    }
+
+
+    @Test public void testLastTimeRememberedStrategy() {
+
+        LocalDate date = LocalDate.of(2010, 3, 1);
+        LocalDate[] remembered = { date.plusDays(1), null, date, date.plusDays(1), null,
+                date.minusDays(1) };
+        Flashcard[] flashcards = new Flashcard[remembered.length];
+        for (int i = 0; i < flashcards.length; i++) {
+            flashcards[i] = new Flashcard(-1, "q" + i, "a", date, remembered[i], null, 0, 0, 0);
+        }
+        DefaultFlashcardSeries series = new DefaultFlashcardSeries();
+        series.createAddCardsCommand(flashcards).execute();
+        SortedFlashcardSeries sorted = new SortedFlashcardSeries(series);
+        sorted.setSortingStrategy(sorted.lastTimeRememberedStrategy());
+
+        // cards that were never remembered come first; cards that were remembered on the same day
+        // are sorted by their creation id
+        int[] expected = { 1, 4, 5, 2, 0, 3 };
+        for (int i = 0; i < expected.length; i++) {
+            assertSame(flashcards[expected[i]], sorted.getElementAt(i));
+        }
+
+        flashcards[4].setRemembered(date);
+        expected = new int[] { 1, 5, 2, 4, 0, 3 };
+        for (int i = 0; i < expected.length; i++) {
+            assertSame(flashcards[expected[i]], sorted.getElementAt(i));
+        }
+    }
+}
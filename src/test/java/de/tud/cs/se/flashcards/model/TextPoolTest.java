@@ -0,0 +1,84 @@
+/** License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische 
+ *    Universität Darmstadt nor the names of its contributors may be used to 
+ *    endorse or promote products derived from this software without specific 
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.time.LocalDate;
+
+import org.junit.Test;
+
+
+/**
+ * Tests that equal texts of flashcards are shared.
+ *
+ * @author Michael Eichberg
+ */
+public class TextPoolTest {
+
+    @Test public void testEqualTextsAreShared() {
+
+        Flashcard a = new Flashcard(new String("Hund"), new String("dog"));
+        Flashcard b = new Flashcard(
+                -1,
+                new String("Hund"),
+                new String("dog"),
+                LocalDate.of(2010, 3, 1),
+                null,
+                null,
+                0,
+                0,
+                0);
+        assertSame(a.getQuestion(), b.getQuestion());
+        assertSame(a.getAnswer(), b.getAnswer());
+
+        Flashcard c = new Flashcard("Katze", "cat");
+        c.createUpdateCommand(new String("Hund"), new String("cat")).execute();
+        assertSame(a.getQuestion(), c.getQuestion());
+    }
+
+
+    @Test public void testLongTextsAreNotPooled() {
+
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i <= TextPool.MAX_LENGTH; i++) {
+            text.append('x');
+        }
+        String longText = text.toString();
+        String equalText = new String(longText);
+        assertEquals(longText, TextPool.intern(longText));
+        assertNotSame(longText, TextPool.intern(equalText));
+    }
+}
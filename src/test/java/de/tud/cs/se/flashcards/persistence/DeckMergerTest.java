@@ -0,0 +1,199 @@
+/** License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische 
+ *    Universität Darmstadt nor the names of its contributors may be used to 
+ *    endorse or promote products derived from this software without specific 
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+
+import org.junit.Test;
+
+import de.tud.cs.se.flashcards.model.DefaultFlashcardSeries;
+import de.tud.cs.se.flashcards.model.Flashcard;
+import de.tud.cs.se.flashcards.model.FlashcardSeries;
+
+
+/**
+ * Tests the merging of two flashcard series.
+ *
+ * @author Michael Eichberg
+ */
+public class DeckMergerTest {
+
+    private static final LocalDate CREATED = LocalDate.of(2010, 3, 1);
+
+
+    private static Flashcard flashcard(
+            int creationID,
+            String question,
+            LocalDate created,
+            LocalDate remembered,
+            LocalDate notRemembered,
+            int shownCount,
+            int rememberedInARowCount) {
+
+        return new Flashcard(
+                creationID,
+                question,
+                question.toUpperCase(),
+                created,
+                remembered,
+                notRemembered,
+                shownCount,
+                0,
+                rememberedInARowCount);
+    }
+
+
+    private static DefaultFlashcardSeries series(int nextCreationID, Flashcard... flashcards) {
+
+        DefaultFlashcardSeries series = new DefaultFlashcardSeries();
+        for (Flashcard flashcard : flashcards) {
+            series.addCard(flashcard);
+        }
+        series.setNextCreationID(nextCreationID);
+        return series;
+    }
+
+
+    @Test public void testUnionOfCards() {
+
+        FlashcardSeries ours = series(
+                5,
+                flashcard(4, "d", CREATED, null, null, 0, 0),
+                flashcard(1, "a", CREATED, null, null, 0, 0));
+        FlashcardSeries theirs = series(
+                7,
+                flashcard(6, "f", CREATED, null, null, 0, 0),
+                flashcard(2, "b", CREATED, null, null, 0, 0),
+                flashcard(1, "a", CREATED, null, null, 0, 0));
+
+        MergeResult result = DeckMerger.merge(ours, theirs);
+        assertEquals(1, result.getMergedCount());
+        assertEquals(0, result.getRenumberedCount());
+        assertTrue(result.getConflicts().isEmpty());
+
+        FlashcardSeries merged = result.createSeries();
+        assertEquals(4, merged.getSize());
+        assertEquals(7, merged.getNextCreationID());
+        int[] expectedIDs = { 6, 4, 2, 1 };
+        for (int i = 0; i < expectedIDs.length; i++) {
+            assertEquals(expectedIDs[i], merged.getElementAt(i).getCreationID());
+        }
+        assertEquals("f", merged.getElementAt(0).getQuestion());
+        assertEquals("D", merged.getElementAt(1).getAnswer());
+    }
+
+
+    @Test public void testCombineStatistics() {
+
+        LocalDate day1 = LocalDate.of(2010, 3, 2);
+        LocalDate day2 = LocalDate.of(2010, 3, 3);
+        LocalDate day3 = LocalDate.of(2010, 3, 4);
+        FlashcardSeries ours = series(
+                3,
+                flashcard(2, "b", CREATED, day1, null, 5, 0),
+                flashcard(1, "a", CREATED, day3, day1, 4, 3));
+        FlashcardSeries theirs = series(
+                3,
+                flashcard(2, "b", CREATED, day1, day2, 2, 0),
+                flashcard(1, "a", CREATED, day2, null, 6, 1));
+
+        FlashcardSeries merged = DeckMerger.merge(ours, theirs).createSeries();
+        Flashcard b = merged.getElementAt(0);
+        assertEquals(day1, b.getRemembered());
+        assertEquals(day2, b.getNotRemembered());
+        assertEquals(5, b.getShownCount());
+        assertEquals(0, b.getRememberedInARowCount());
+        Flashcard a = merged.getElementAt(1);
+        assertEquals(day3, a.getRemembered());
+        assertEquals(day1, a.getNotRemembered());
+        assertEquals(6, a.getShownCount());
+        // "our" card was reviewed last
+        assertEquals(3, a.getRememberedInARowCount());
+    }
+
+
+    @Test public void testConflictsAndRenumbering() {
+
+        FlashcardSeries ours = series(
+                3,
+                flashcard(2, "b", CREATED, null, null, 0, 0),
+                flashcard(1, "a", CREATED, null, null, 0, 0));
+        FlashcardSeries theirs = series(
+                4,
+                flashcard(3, "c", CREATED, null, null, 0, 0),
+                flashcard(2, "x", CREATED.plusDays(1), null, null, 0, 0),
+                flashcard(1, "a2", CREATED, null, null, 0, 0));
+
+        MergeResult result = DeckMerger.merge(ours, theirs);
+        assertEquals(1, result.getMergedCount());
+        assertEquals(1, result.getRenumberedCount());
+        assertEquals(1, result.getConflicts().size());
+        MergeResult.Conflict conflict = result.getConflicts().get(0);
+        assertEquals(1, conflict.getCreationID());
+        assertEquals("a", conflict.getOurQuestion());
+        assertEquals("a2", conflict.getTheirQuestion());
+        assertEquals("A2", conflict.getTheirAnswer());
+
+        FlashcardSeries merged = result.createSeries();
+        assertEquals(4, merged.getSize());
+        assertEquals(5, merged.getNextCreationID());
+        assertEquals(4, merged.getElementAt(0).getCreationID());
+        assertEquals("x", merged.getElementAt(0).getQuestion());
+        assertEquals("c", merged.getElementAt(1).getQuestion());
+        assertEquals("b", merged.getElementAt(2).getQuestion());
+        assertEquals("a", merged.getElementAt(3).getQuestion());
+    }
+
+
+    @Test public void testMergeFiles() throws IOException {
+
+        DefaultFlashcardSeries series = DefaultFlashcardSeries.createInitialFlashcardSeries();
+        File ours = StoreTest.createTempFile();
+        Store.saveSeries(series, ours);
+        series.getElementAt(0).setRemembered(LocalDate.of(2010, 3, 5));
+        series.createAddCardCommand(new Flashcard("neu", "new")).execute();
+        File theirs = StoreTest.createTempFile();
+        Store.saveSeries(series, theirs);
+
+        MergeResult result = DeckMerger.merge(ours, theirs);
+        assertEquals(series.getSize() - 1, result.getMergedCount());
+        File merged = StoreTest.createTempFile();
+        result.save(merged);
+        StoreTest.assertSameFlashcards(series, Store.openSeries(merged));
+    }
+}
@@ -0,0 +1,191 @@
+/** License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische 
+ *    Universität Darmstadt nor the names of its contributors may be used to 
+ *    endorse or promote products derived from this software without specific 
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.persistence;
+
+import static de.tud.cs.se.flashcards.persistence.StoreTest.assertSameFlashcards;
+import static de.tud.cs.se.flashcards.persistence.StoreTest.createTempFile;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.time.LocalDate;
+
+import org.junit.Test;
+
+import de.tud.cs.se.flashcards.model.Command;
+import de.tud.cs.se.flashcards.model.DefaultFlashcardSeries;
+import de.tud.cs.se.flashcards.model.Flashcard;
+import de.tud.cs.se.flashcards.model.FlashcardSeries;
+
+
+/**
+ * Tests that the changes recorded by a journal are applied when a series is opened.
+ *
+ * @author Michael Eichberg
+ */
+public class JournalTest {
+
+    @Test public void testCommitAndReplay() throws IOException {
+
+        DefaultFlashcardSeries series = DefaultFlashcardSeries.createInitialFlashcardSeries();
+        File file = createTempFile();
+        Store.saveSeries(series, file);
+        long snapshotLength = file.length();
+
+        Journal journal = Journal.attach(series, file);
+        series.createAddCardCommand(new Flashcard("neu", "new")).execute();
+        Command removeCommand = series.createRemoveCardsCommand(new int[] { 2, 3 });
+        removeCommand.execute();
+        series.getElementAt(1).setRemembered(LocalDate.of(2010, 2, 25));
+        removeCommand.unexecute();
+        series.getElementAt(4).createUpdateCommand("Frage", "question").execute();
+        journal.commit();
+        journal.detach();
+
+        assertEquals(snapshotLength, file.length());
+        FlashcardSeries openedSeries = Store.openSeries(file);
+        assertSameFlashcards(series, openedSeries);
+        assertEquals(series.getNextCreationID(), openedSeries.getNextCreationID());
+    }
+
+
+    @Test public void testUncommittedChangesAreIgnored() throws IOException {
+
+        DefaultFlashcardSeries series = DefaultFlashcardSeries.createInitialFlashcardSeries();
+        File file = createTempFile();
+        Store.saveSeries(series, file);
+
+        Journal journal = Journal.attach(series, file);
+        series.getElementAt(0).setNotRemembered(LocalDate.of(2010, 2, 25));
+        journal.commit();
+        FlashcardSeries committedSeries = Store.openSeries(file);
+
+        series.getElementAt(1).setNotRemembered(LocalDate.of(2010, 2, 26));
+        journal.commit();
+        File journalFile = Journal.journalFile(file);
+        try (RandomAccessFile raf = new RandomAccessFile(journalFile, "rw")) {
+            raf.setLength(raf.length() - 3); // simulates a crash while committing
+        }
+
+        assertSameFlashcards(committedSeries, Store.openSeries(file));
+
+        // further commits are appended to the last complete commit
+        journal.detach();
+        journal = Journal.attach(committedSeries, file);
+        committedSeries.getElementAt(2).setRemembered(LocalDate.of(2010, 2, 27));
+        journal.commit();
+        assertSameFlashcards(committedSeries, Store.openSeries(file));
+    }
+
+
+    @Test public void testSaveSeriesDeletesJournal() throws IOException {
+
+        DefaultFlashcardSeries series = DefaultFlashcardSeries.createInitialFlashcardSeries();
+        File file = createTempFile();
+        Store.saveSeries(series, file);
+
+        Journal journal = Journal.attach(series, file);
+        series.createRemoveCardsCommand(new int[] { 0 }).execute();
+        journal.commit();
+        journal.detach();
+
+        Store.saveSeries(series, file);
+        assertFalse(Journal.journalFile(file).exists());
+        assertSameFlashcards(series, Store.openSeries(file));
+    }
+
+
+    @Test public void testJournalOfReplacedFileIsIgnored() throws IOException {
+
+        DefaultFlashcardSeries series = DefaultFlashcardSeries.createInitialFlashcardSeries();
+        File file = createTempFile();
+        Store.saveSeries(series, file);
+
+        Journal journal = Journal.attach(series, file);
+        series.getElementAt(1).setNotRemembered(LocalDate.of(2010, 2, 25));
+        journal.commit();
+        journal.detach();
+
+        // the file is replaced without deleting the journal
+        DefaultFlashcardSeries otherSeries = DefaultFlashcardSeries.createInitialFlashcardSeries();
+        otherSeries.getElementAt(0).createUpdateCommand("Frage", "question").execute();
+        Store.writeSnapshot(DeckSnapshot.capture(otherSeries), file);
+
+        assertSameFlashcards(otherSeries, Store.openSeries(file));
+    }
+
+
+    @Test public void testCorruptTextLength() throws IOException {
+
+        DefaultFlashcardSeries series = DefaultFlashcardSeries.createInitialFlashcardSeries();
+        File file = createTempFile();
+        Store.saveSeries(series, file);
+
+        Journal journal = Journal.attach(series, file);
+        series.getElementAt(0).createUpdateCommand("Frage", "question").execute();
+        journal.commit();
+        FlashcardSeries committedSeries = Store.openSeries(file);
+
+        series.getElementAt(1).createUpdateCommand("x", "y").execute();
+        journal.commit();
+        journal.detach();
+
+        // the length of the question "x" of the last commit; the answer "y" and the commit
+        // (type and next creation id) follow
+        File journalFile = Journal.journalFile(file);
+        long lengthPosition = journalFile.length() - 5 - 1 - 4 - 1 - 4;
+
+        // a text that exceeds the journal is handled like a commit that was not written
+        // completely
+        try (RandomAccessFile raf = new RandomAccessFile(journalFile, "rw")) {
+            raf.seek(lengthPosition);
+            raf.writeInt(DeckFormat.MAX_BLOCK_SIZE - 1);
+        }
+        assertSameFlashcards(committedSeries, Store.openSeries(file));
+
+        // an invalid length is rejected before any memory is allocated
+        try (RandomAccessFile raf = new RandomAccessFile(journalFile, "rw")) {
+            raf.seek(lengthPosition);
+            raf.writeInt(Integer.MAX_VALUE - 1);
+        }
+        try {
+            Store.openSeries(file);
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
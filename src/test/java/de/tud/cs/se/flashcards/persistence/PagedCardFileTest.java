@@ -0,0 +1,227 @@
+/** License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische 
+ *    Universität Darmstadt nor the names of its contributors may be used to 
+ *    endorse or promote products derived from this software without specific 
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.persistence;
+
+import static de.tud.cs.se.flashcards.persistence.StoreTest.createLargeSeries;
+import static de.tud.cs.se.flashcards.persistence.StoreTest.createTempFile;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+
+import org.junit.Test;
+
+import de.tud.cs.se.flashcards.model.Command;
+import de.tud.cs.se.flashcards.model.DefaultFlashcardSeries;
+import de.tud.cs.se.flashcards.model.Flashcard;
+import de.tud.cs.se.flashcards.model.FlashcardSeries;
+import de.tud.cs.se.flashcards.model.FlashcardSeriesFilter;
+import de.tud.cs.se.flashcards.model.PagedFlashcardSeries;
+import de.tud.cs.se.flashcards.model.SortedFlashcardSeries;
+
+
+/**
+ * Tests that a {@link PagedCardFile} stores a series using a small page cache and that its
+ * series behaves like a {@link DefaultFlashcardSeries}.
+ *
+ * @author Michael Eichberg
+ */
+public class PagedCardFileTest {
+
+    private static File createStoreFile() throws IOException {
+
+        File file = createTempFile();
+        PagedCardFile.textsFile(file).deleteOnExit();
+        return file;
+    }
+
+
+    /**
+     * Compares the content of the cards; the creation ids of the cards of a paged series differ.
+     */
+    private static void assertSameContent(FlashcardSeries expected, FlashcardSeries actual) {
+
+        assertEquals(expected.getSize(), actual.getSize());
+        for (int i = 0; i < expected.getSize(); i++) {
+            Flashcard e = expected.getElementAt(i);
+            Flashcard a = actual.getElementAt(i);
+            assertEquals(e.getQuestion(), a.getQuestion());
+            assertEquals(e.getAnswer(), a.getAnswer());
+            assertEquals(e.getCreated(), a.getCreated());
+            assertEquals(e.getRemembered(), a.getRemembered());
+            assertEquals(e.getShownCount(), a.getShownCount());
+        }
+    }
+
+
+    @Test public void testCreateAndOpen() throws IOException {
+
+        DefaultFlashcardSeries series = createLargeSeries(5000);
+        File file = createStoreFile();
+
+        PagedCardFile store = PagedCardFile.create(file, series, 2);
+        PagedFlashcardSeries pagedSeries = store.getSeries();
+        assertSameContent(series, pagedSeries);
+        for (int i = 0; i < pagedSeries.getSize(); i += 97) {
+            int creationID = pagedSeries.getElementAt(i).getCreationID();
+            assertEquals(i, pagedSeries.indexOfCreationID(creationID));
+        }
+        store.close();
+
+        store = PagedCardFile.open(file, 2);
+        pagedSeries = store.getSeries();
+        assertSameContent(series, pagedSeries);
+
+        // the index of the series grows
+        int creationID = pagedSeries.getElementAt(0).getCreationID();
+        Flashcard[] flashcards = new Flashcard[4000];
+        for (int i = 0; i < flashcards.length; i++) {
+            flashcards[i] = new Flashcard("q" + i, "a" + i);
+        }
+        pagedSeries.createAddCardsCommand(flashcards).execute();
+        assertEquals(9000, pagedSeries.getSize());
+        assertSame(flashcards[3999], pagedSeries.getElementAt(3999));
+        assertEquals(4000, pagedSeries.indexOfCreationID(creationID));
+        store.close();
+    }
+
+
+    private static void execute(
+            Command command,
+            Command expectedCommand,
+            FlashcardSeries expected,
+            FlashcardSeries actual) {
+
+        command.execute();
+        expectedCommand.execute();
+        assertSameContent(expected, actual);
+    }
+
+
+    @Test public void testCommands() throws IOException {
+
+        DefaultFlashcardSeries series = DefaultFlashcardSeries.createInitialFlashcardSeries();
+        PagedCardFile store = PagedCardFile.create(createStoreFile(), series, 2);
+        PagedFlashcardSeries pagedSeries = store.getSeries();
+
+        Flashcard flashcard = new Flashcard("neu", "new");
+        Command[] commands = new Command[3];
+        Command[] expectedCommands = new Command[3];
+
+        commands[0] = pagedSeries.createAddCardCommand(flashcard);
+        expectedCommands[0] = series.createAddCardCommand(flashcard.clone());
+        execute(commands[0], expectedCommands[0], series, pagedSeries);
+
+        commands[1] = pagedSeries.createAddCardsCommand(new Flashcard[] {
+                new Flashcard("a", "a"),
+                new Flashcard("b", "b") });
+        expectedCommands[1] = series.createAddCardsCommand(new Flashcard[] {
+                new Flashcard("a", "a"),
+                new Flashcard("b", "b") });
+        execute(commands[1], expectedCommands[1], series, pagedSeries);
+
+        commands[2] = pagedSeries.createRemoveCardsCommand(new int[] { 1, 3, 5 });
+        expectedCommands[2] = series.createRemoveCardsCommand(new int[] { 1, 3, 5 });
+        execute(commands[2], expectedCommands[2], series, pagedSeries);
+        assertEquals(1, pagedSeries.indexOfCreationID(flashcard.getCreationID()));
+
+        for (int c = commands.length - 1; c >= 0; c--) {
+            commands[c].unexecute();
+            expectedCommands[c].unexecute();
+            assertSameContent(series, pagedSeries);
+        }
+        store.close();
+    }
+
+
+    @Test public void testChangesAreStored() throws IOException {
+
+        DefaultFlashcardSeries series = createLargeSeries(500);
+        File file = createStoreFile();
+        PagedCardFile store = PagedCardFile.create(file, series, 2);
+        PagedFlashcardSeries pagedSeries = store.getSeries();
+
+        pagedSeries.getElementAt(7).setRemembered(LocalDate.of(2010, 2, 25));
+        pagedSeries.getElementAt(300).createUpdateCommand("Frage", "question").execute();
+        pagedSeries.getElementAt(300).setRemembered(LocalDate.of(2010, 2, 26));
+        // a text with the same length as the stored text
+        Flashcard flashcard = pagedSeries.getElementAt(301);
+        StringBuilder question = new StringBuilder(flashcard.getQuestion());
+        question.setCharAt(0, (char) (question.charAt(0) + 1));
+        flashcard.createUpdateCommand(question.toString(), flashcard.getAnswer()).execute();
+        pagedSeries.createRemoveCardsCommand(new int[] { 0, 499 }).execute();
+        assertEquals(498, pagedSeries.getSize());
+
+        // the store is not closed; hence, the removed cards are determined by scanning the rows
+        store.flush();
+        PagedCardFile reopenedStore = PagedCardFile.open(file, 2);
+        FlashcardSeries reopenedSeries = reopenedStore.getSeries();
+        assertSameContent(pagedSeries, reopenedSeries);
+        assertEquals(LocalDate.of(2010, 2, 25), reopenedSeries.getElementAt(6).getRemembered());
+        assertEquals("Frage", reopenedSeries.getElementAt(299).getQuestion());
+        assertEquals(LocalDate.of(2010, 2, 26), reopenedSeries.getElementAt(299).getRemembered());
+        assertEquals(question.toString(), reopenedSeries.getElementAt(300).getQuestion());
+
+        // the next creation id is determined by the rows
+        int nextCreationID = pagedSeries.getNextCreationID();
+        pagedSeries.setNextCreationID(0);
+        assertEquals(nextCreationID, pagedSeries.getNextCreationID());
+        reopenedStore.close();
+        store.close();
+    }
+
+
+    @Test public void testViews() throws IOException {
+
+        DefaultFlashcardSeries series = createLargeSeries(1000);
+        PagedCardFile store = PagedCardFile.create(createStoreFile(), series, 2);
+        PagedFlashcardSeries pagedSeries = store.getSeries();
+
+        FlashcardSeriesFilter filter = new FlashcardSeriesFilter(pagedSeries);
+        filter.setSearchTerm("Nummer 99");
+        assertEquals(11, filter.getSize()); // 99 and 990 - 999
+        SortedFlashcardSeries sortedSeries = new SortedFlashcardSeries(filter);
+        sortedSeries.setSortingStrategy(sortedSeries.timesRememberedInARowStrategy());
+        assertEquals(11, sortedSeries.getSize());
+
+        Flashcard flashcard = new Flashcard("Nummer 99?", "no");
+        sortedSeries.createAddCardCommand(flashcard).execute();
+        assertEquals(12, sortedSeries.getSize());
+        assertSame(flashcard, pagedSeries.getElementAt(0));
+        filter.dispose();
+        store.close();
+    }
+}
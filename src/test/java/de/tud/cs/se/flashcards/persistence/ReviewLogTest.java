@@ -0,0 +1,125 @@
+/** License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische 
+ *    Universität Darmstadt nor the names of its contributors may be used to 
+ *    endorse or promote products derived from this software without specific 
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.persistence;
+
+import static de.tud.cs.se.flashcards.persistence.StoreTest.createTempFile;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.time.LocalDate;
+
+import org.junit.Test;
+
+
+/**
+ * Tests that the reviews recorded by a {@link ReviewLog} can be scanned.
+ *
+ * @author Michael Eichberg
+ */
+public class ReviewLogTest {
+
+    private static File createDeckFile() throws IOException {
+
+        File file = createTempFile();
+        ReviewLog.reviewLogFile(file).deleteOnExit();
+        return file;
+    }
+
+
+    @Test public void testRecordAndScan() throws IOException {
+
+        File file = createDeckFile();
+        assertEquals(0L, ReviewLog.scan(file, (id, day, remembered, time) -> fail("no review")));
+
+        LocalDate day = LocalDate.of(2010, 2, 25);
+        try (ReviewLog log = ReviewLog.open(file)) {
+            // more reviews than fit into the buffer
+            for (int i = 0; i < 10000; i++) {
+                log.record(i, day.plusDays(i % 7), i % 3 == 0, i * 10);
+            }
+        }
+
+        int[] next = { 0 };
+        long count = ReviewLog.scan(file, (id, epochDay, remembered, time) -> {
+            int i = next[0]++;
+            assertEquals(i, id);
+            assertEquals(day.plusDays(i % 7).toEpochDay(), epochDay);
+            assertEquals(i % 3 == 0, remembered);
+            assertEquals(i * 10, time);
+        });
+        assertEquals(10000L, count);
+        assertEquals(10000, next[0]);
+    }
+
+
+    @Test public void testIncompleteRecordIsOverwritten() throws IOException {
+
+        File file = createDeckFile();
+        try (ReviewLog log = ReviewLog.open(file)) {
+            log.record(1, LocalDate.of(2010, 2, 25), true, 1000);
+            log.record(2, LocalDate.of(2010, 2, 25), false, 2000);
+        }
+        File reviewLogFile = ReviewLog.reviewLogFile(file);
+        try (RandomAccessFile raf = new RandomAccessFile(reviewLogFile, "rw")) {
+            raf.setLength(raf.length() - 3); // simulates a crash while writing
+        }
+        assertEquals(1L, ReviewLog.scan(file, (id, day, remembered, t) -> assertTrue(remembered)));
+
+        try (ReviewLog log = ReviewLog.open(file)) {
+            log.record(3, LocalDate.of(2010, 2, 26), false, 3000);
+        }
+        int[] ids = new int[2];
+        int[] next = { 0 };
+        ReviewLog.scan(file, (id, day, remembered, time) -> ids[next[0]++] = id);
+        assertEquals(1, ids[0]);
+        assertEquals(3, ids[1]);
+        assertEquals(
+                ReviewLog.HEADER_SIZE + 2 * ReviewLog.RECORD_SIZE,
+                reviewLogFile.length());
+    }
+
+
+    @Test(expected = IOException.class) public void testScanUnknownFormat() throws IOException {
+
+        File file = createDeckFile();
+        try (RandomAccessFile raf = new RandomAccessFile(ReviewLog.reviewLogFile(file), "rw")) {
+            raf.writeLong(42L);
+        }
+        ReviewLog.scan(file, (id, day, remembered, time) -> fail("unexpected review"));
+    }
+
+}
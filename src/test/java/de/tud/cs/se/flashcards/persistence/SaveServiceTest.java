@@ -0,0 +1,136 @@
+/** License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische 
+ *    Universität Darmstadt nor the names of its contributors may be used to 
+ *    endorse or promote products derived from this software without specific 
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.persistence;
+
+import static de.tud.cs.se.flashcards.persistence.StoreTest.assertSameFlashcards;
+import static de.tud.cs.se.flashcards.persistence.StoreTest.createTempFile;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.Test;
+
+import de.tud.cs.se.flashcards.model.DefaultFlashcardSeries;
+import de.tud.cs.se.flashcards.model.Flashcard;
+
+
+/**
+ * Tests that the {@link SaveService} saves the state of a series at the time the save was
+ * requested and that the series can be changed while it is saved.
+ *
+ * @author Michael Eichberg
+ */
+public class SaveServiceTest {
+
+    // Collects the outcomes of the saves; "null" signals a successful save.
+    private final BlockingQueue<Object> outcomes = new LinkedBlockingQueue<>();
+
+
+    private final SaveListener listener = new SaveListener() {
+
+        public void saved(File file) {
+
+            assertTrue(SwingUtilities.isEventDispatchThread());
+            outcomes.add(file);
+        }
+
+
+        public void saveFailed(File file, IOException exception) {
+
+            assertTrue(SwingUtilities.isEventDispatchThread());
+            outcomes.add(exception);
+        }
+    };
+
+
+    private Object nextOutcome() throws InterruptedException {
+
+        Object outcome = outcomes.poll(10, TimeUnit.SECONDS);
+        assertTrue(outcome != null);
+        return outcome;
+    }
+
+
+    @Test public void testSaveWhileChanging() throws Exception {
+
+        DefaultFlashcardSeries series = DefaultFlashcardSeries.createInitialFlashcardSeries();
+        File file = createTempFile();
+        Journal.journalFile(file).deleteOnExit();
+        SaveService saveService = new SaveService(series);
+
+        SwingUtilities.invokeAndWait(() -> {
+            saveService.save(file, listener);
+            assertTrue(saveService.isSaving());
+
+            // changes done after the save was requested are journaled
+            series.getElementAt(0).setRemembered(LocalDate.of(2010, 2, 25));
+            series.createAddCardCommand(new Flashcard("neu", "new")).execute();
+            saveService.save(file, listener);
+        });
+        assertEquals(file, nextOutcome());
+        assertEquals(file, nextOutcome());
+        assertTrue(Journal.journalFile(file).exists());
+
+        SwingUtilities.invokeAndWait(() -> {
+            assertFalse(saveService.isSaving());
+            saveService.close();
+        });
+        assertSameFlashcards(series, Store.openSeries(file));
+    }
+
+
+    @Test public void testSaveFailed() throws Exception {
+
+        DefaultFlashcardSeries series = DefaultFlashcardSeries.createInitialFlashcardSeries();
+        File directory = createTempFile();
+        File file = new File(directory, "does-not-exist" + Store.FILE_ENDING);
+        SaveService saveService = new SaveService(series);
+
+        SwingUtilities.invokeAndWait(() -> saveService.save(file, listener));
+        assertTrue(nextOutcome() instanceof IOException);
+
+        // the next save to the same file is a complete save (and fails again)
+        SwingUtilities.invokeAndWait(() -> saveService.save(file, listener));
+        assertTrue(nextOutcome() instanceof IOException);
+        assertFalse(file.exists());
+    }
+}
@@ -0,0 +1,417 @@
+/** License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische 
+ *    Universität Darmstadt nor the names of its contributors may be used to 
+ *    endorse or promote products derived from this software without specific 
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.persistence;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.time.LocalDate;
+
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+
+import org.junit.Test;
+
+import de.tud.cs.se.flashcards.model.Command;
+import de.tud.cs.se.flashcards.model.DefaultFlashcardSeries;
+import de.tud.cs.se.flashcards.model.Flashcard;
+import de.tud.cs.se.flashcards.model.FlashcardSeries;
+import de.tud.cs.se.flashcards.model.FlashcardSeriesFilter;
+import de.tud.cs.se.flashcards.model.SortedFlashcardSeries;
+
+
+/**
+ * Tests that flashcard series survive a round trip through the file system.
+ *
+ * @author Michael Eichberg
+ */
+public class StoreTest {
+
+    static File createTempFile() throws IOException {
+
+        File file = File.createTempFile("flashcards", Store.FILE_ENDING);
+        file.deleteOnExit();
+        return file;
+    }
+
+
+    static void assertSameFlashcards(FlashcardSeries expected, FlashcardSeries actual) {
+
+        assertEquals(expected.getSize(), actual.getSize());
+        for (int i = 0; i < expected.getSize(); i++) {
+            Flashcard e = expected.getElementAt(i);
+            Flashcard a = actual.getElementAt(i);
+            assertEquals(e.getCreationID(), a.getCreationID());
+            assertEquals(e.getQuestion(), a.getQuestion());
+            assertEquals(e.getAnswer(), a.getAnswer());
+            assertEquals(e.getCreated(), a.getCreated());
+            assertEquals(e.getRemembered(), a.getRemembered());
+            assertEquals(e.getNotRemembered(), a.getNotRemembered());
+            assertEquals(e.getShownCount(), a.getShownCount());
+            assertEquals(e.getNotRememberedCount(), a.getNotRememberedCount());
+            assertEquals(e.getRememberedInARowCount(), a.getRememberedInARowCount());
+        }
+    }
+
+
+    @Test public void testSaveAndOpenSeries() throws IOException {
+
+        DefaultFlashcardSeries series = DefaultFlashcardSeries.createInitialFlashcardSeries();
+        series.getElementAt(0).setRemembered(LocalDate.of(2010, 2, 25));
+        series.getElementAt(1).setNotRemembered(LocalDate.of(2010, 2, 26));
+        series.createAddCardCommand(new Flashcard("Grüße", "greetings ☃")).execute();
+        series.createAddCardCommand(new Flashcard("", "")).execute();
+
+        File file = createTempFile();
+        Store.saveSeries(series, file);
+        FlashcardSeries openedSeries = Store.openSeries(file);
+
+        assertSameFlashcards(series, openedSeries);
+    }
+
+
+    @Test public void testMapSeries() throws IOException {
+
+        DefaultFlashcardSeries series = DefaultFlashcardSeries.createInitialFlashcardSeries();
+        series.getElementAt(2).setRemembered(LocalDate.of(2010, 2, 25));
+        File file = createTempFile();
+        Store.saveSeries(series, file);
+
+        FlashcardSeries mappedSeries = Store.mapSeries(file);
+        assertSameFlashcards(series, mappedSeries);
+        assertSame(mappedSeries.getElementAt(3), mappedSeries.getElementAt(3));
+
+        final int[] changedIndex = { -1 };
+        mappedSeries.addListDataListener(new ListDataListener() {
+
+            public void contentsChanged(ListDataEvent e) {
+
+                changedIndex[0] = e.getIndex0();
+            }
+
+
+            public void intervalAdded(ListDataEvent e) {
+
+                // nothing to do
+            }
+
+
+            public void intervalRemoved(ListDataEvent e) {
+
+                // nothing to do
+            }
+        });
+
+        Flashcard flashcard = new Flashcard("neu", "new");
+        mappedSeries.createAddCardCommand(flashcard).execute();
+        Flashcard lastFlashcard = mappedSeries.getElementAt(series.getSize());
+        Command removeCommand = mappedSeries.createRemoveCardsCommand(new int[] { 1, 5 });
+        removeCommand.execute();
+        assertEquals(series.getSize() - 1, mappedSeries.getSize());
+        assertSame(flashcard, mappedSeries.getElementAt(0));
+        lastFlashcard.setRemembered(LocalDate.of(2010, 2, 26));
+        assertEquals(series.getSize() - 2, changedIndex[0]);
+        removeCommand.unexecute();
+        assertEquals(series.getSize() + 1, mappedSeries.getSize());
+        lastFlashcard.setRemembered(LocalDate.of(2010, 2, 27));
+        assertEquals(series.getSize(), changedIndex[0]);
+        assertEquals(
+                series.getElementAt(0).getQuestion(),
+                mappedSeries.getElementAt(1).getQuestion());
+
+        Flashcard[] flashcards = { new Flashcard("a", "a"), new Flashcard("b", "b") };
+        Command addCommand = mappedSeries.createAddCardsCommand(flashcards);
+        addCommand.execute();
+        assertSame(flashcards[1], mappedSeries.getElementAt(1));
+        assertSame(flashcard, mappedSeries.getElementAt(2));
+        addCommand.unexecute();
+        assertSame(flashcard, mappedSeries.getElementAt(0));
+        addCommand.execute();
+
+        // saving the series to the mapped file must not affect cards that were not yet loaded
+        Store.saveSeries(mappedSeries, file);
+        assertSameFlashcards(mappedSeries, Store.openSeries(file));
+    }
+
+
+    @Test public void testSortMappedSeries() throws IOException {
+
+        // the series is stored in multiple blocks
+        DefaultFlashcardSeries series = createLargeSeries(5000);
+        for (int i = 0; i < series.getSize(); i += 7) {
+            series.getElementAt(i).setRemembered(LocalDate.of(2010, 3, 1));
+        }
+        File file = createTempFile();
+        Store.saveSeries(series, file);
+
+        FlashcardSeries mappedSeries = Store.mapSeries(file);
+        // a card that was loaded and changed
+        mappedSeries.getElementAt(10).setRemembered(LocalDate.of(2010, 3, 2));
+        series.getElementAt(10).setRemembered(LocalDate.of(2010, 3, 2));
+
+        FlashcardSeriesFilter filter = new FlashcardSeriesFilter(mappedSeries);
+        SortedFlashcardSeries sortedSeries = new SortedFlashcardSeries(filter);
+        sortedSeries.setSortingStrategy(sortedSeries.timesRememberedInARowStrategy());
+        SortedFlashcardSeries expectedSeries = new SortedFlashcardSeries(series);
+        expectedSeries.setSortingStrategy(expectedSeries.timesRememberedInARowStrategy());
+        assertEquals(expectedSeries.getSize(), sortedSeries.getSize());
+        for (int i = 0; i < expectedSeries.getSize(); i++) {
+            assertEquals(
+                    expectedSeries.getElementAt(i).getQuestion(),
+                    sortedSeries.getElementAt(i).getQuestion());
+        }
+        filter.dispose();
+
+        // the blocks are decoded in advance when the cards are loaded in order
+        assertSameFlashcards(Store.openSeries(file), Store.mapSeries(file));
+    }
+
+
+    @Test public void testSaveSeriesReplacesFile() throws IOException {
+
+        File directory = Files.createTempDirectory("flashcards").toFile();
+        directory.deleteOnExit();
+        File file = new File(directory, "series" + Store.FILE_ENDING);
+        file.deleteOnExit();
+
+        DefaultFlashcardSeries series = DefaultFlashcardSeries.createInitialFlashcardSeries();
+        Store.saveSeries(series, file);
+        series.createRemoveCardsCommand(new int[] { 0, 1 }).execute();
+        Store.saveSeries(series, file);
+
+        // no temporary files are left behind
+        assertArrayEquals(new String[] { file.getName() }, directory.list());
+        assertSameFlashcards(series, Store.openSeries(file));
+    }
+
+
+    @Test public void testSaveAndOpenEmptySeries() throws IOException {
+
+        File file = createTempFile();
+        Store.saveSeries(new DefaultFlashcardSeries(), file);
+
+        assertEquals(0, Store.openSeries(file).getSize());
+    }
+
+
+    @Test(expected = IOException.class) public void testOpenUnknownFormat() throws IOException {
+
+        File file = createTempFile();
+        Files.write(file.toPath(), new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+
+        Store.openSeries(file);
+    }
+
+
+    @Test public void testNextCreationID() throws IOException {
+
+        DefaultFlashcardSeries series = createLargeSeries(300);
+        series.createRemoveCardsCommand(new int[] { 0 }).execute();
+        File file = createTempFile();
+        Store.saveSeries(series, file);
+
+        assertEquals(300, series.getNextCreationID());
+        assertEquals(300, Store.openSeries(file).getNextCreationID());
+        assertEquals(300, Store.mapSeries(file).getNextCreationID());
+    }
+
+
+    /**
+     * Tests that corrupt headers and truncated files are rejected by both readers before any card
+     * is decoded.
+     */
+    @Test public void testOpenCorruptOrTruncatedFile() throws IOException {
+
+        File file = createTempFile();
+        Store.saveSeries(createLargeSeries(100), file);
+        long length = file.length();
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(8); // the next creation id
+            raf.writeInt(101);
+        }
+        assertOpenFails(file);
+
+        Store.saveSeries(createLargeSeries(100), file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(length - 1);
+        }
+        assertOpenFails(file);
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(DeckFormat.HEADER_SIZE - 1);
+        }
+        assertOpenFails(file);
+
+        Store.saveSeries(createLargeSeries(100), file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(length + 1);
+        }
+        assertOpenFails(file);
+    }
+
+
+    private static void assertOpenFails(File file) {
+
+        for (boolean map : new boolean[] { false, true }) {
+            try {
+                if (map)
+                    Store.mapSeries(file);
+                else
+                    Store.openSeries(file);
+                fail("opening the " + file + " succeeded");
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+
+    @Test public void testOpenSerializedFile() throws IOException {
+
+        // the format used by previous versions only stored the lowest byte of the next id
+        DefaultFlashcardSeries series = createLargeSeries(300);
+        File file = createTempFile();
+        try (ObjectOutputStream oOut = new ObjectOutputStream(new FileOutputStream(file))) {
+            oOut.write(series.getNextCreationID());
+            oOut.writeInt(series.getSize());
+            for (int i = 0; i < series.getSize(); i++) {
+                oOut.writeObject(series.getElementAt(i));
+            }
+        }
+
+        FlashcardSeries openedSeries = Store.openSeries(file);
+        assertSameFlashcards(series, openedSeries);
+        assertEquals(300, openedSeries.getNextCreationID());
+    }
+
+
+    static DefaultFlashcardSeries createLargeSeries(int size) {
+
+        DefaultFlashcardSeries series = new DefaultFlashcardSeries();
+        Flashcard[] flashcards = new Flashcard[size];
+        for (int i = 0; i < size; i++) {
+            flashcards[i] = new Flashcard("Frage Nummer " + i, "the answer to question " + i);
+        }
+        series.createAddCardsCommand(flashcards).execute();
+        series.getElementAt(size / 2).setRemembered(LocalDate.of(2010, 2, 25));
+        return series;
+    }
+
+
+    @Test public void testCodecs() throws IOException {
+
+        // the series is stored in multiple blocks
+        DefaultFlashcardSeries series = createLargeSeries(10000);
+        BlockCodec defaultCodec = Store.getCodec();
+        try {
+            for (BlockCodec codec : new BlockCodec[] { BlockCodecs.NONE, BlockCodecs.DEFLATE }) {
+                Store.setCodec(codec);
+                File file = createTempFile();
+                Store.saveSeries(series, file);
+
+                assertSameFlashcards(series, Store.openSeries(file));
+                assertSameFlashcards(Store.openSeries(file), Store.mapSeries(file));
+            }
+        } finally {
+            Store.setCodec(defaultCodec);
+        }
+    }
+
+
+    @Test public void testCompression() throws IOException {
+
+        DefaultFlashcardSeries series = createLargeSeries(10000);
+        BlockCodec defaultCodec = Store.getCodec();
+        try {
+            File uncompressedFile = createTempFile();
+            Store.setCodec(BlockCodecs.NONE);
+            Store.saveSeries(series, uncompressedFile);
+
+            File compressedFile = createTempFile();
+            Store.setCodec(BlockCodecs.DEFLATE);
+            Store.saveSeries(series, compressedFile);
+
+            assertTrue(compressedFile.length() * 2 < uncompressedFile.length());
+        } finally {
+            Store.setCodec(defaultCodec);
+        }
+    }
+
+
+    @Test(expected = IOException.class) public void testOpenCorruptBlock() throws IOException {
+
+        File file = createTempFile();
+        Store.saveSeries(createLargeSeries(100), file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(DeckFormat.HEADER_SIZE + DeckFormat.BLOCK_HEADER_SIZE + 10);
+            int b = raf.read();
+            raf.seek(DeckFormat.HEADER_SIZE + DeckFormat.BLOCK_HEADER_SIZE + 10);
+            raf.write(b ^ 0xFF);
+        }
+        Store.openSeries(file);
+    }
+
+
+    @Test public void testOpenInvalidBlockLength() throws IOException {
+
+        File file = createTempFile();
+        Store.saveSeries(createLargeSeries(100), file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // the decoded length of the first block
+            raf.seek(DeckFormat.HEADER_SIZE + 8);
+            raf.writeInt(Integer.MAX_VALUE);
+        }
+        try {
+            Store.openSeries(file);
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+        try {
+            Store.mapSeries(file);
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
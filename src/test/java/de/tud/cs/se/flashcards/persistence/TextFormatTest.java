@@ -0,0 +1,132 @@
+/** License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische 
+ *    Universität Darmstadt nor the names of its contributors may be used to 
+ *    endorse or promote products derived from this software without specific 
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.persistence;
+
+import static de.tud.cs.se.flashcards.persistence.StoreTest.createTempFile;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+
+import org.junit.Test;
+
+import de.tud.cs.se.flashcards.model.DefaultFlashcardSeries;
+import de.tud.cs.se.flashcards.model.Flashcard;
+
+
+/**
+ * Tests importing and exporting flashcards using CSV and TSV files.
+ *
+ * @author Michael Eichberg
+ */
+public class TextFormatTest {
+
+    private static File write(String content) throws IOException {
+
+        File file = createTempFile();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+
+    @Test public void testForFile() {
+
+        assertSame(TextFormat.CSV, TextFormat.forFile(new File("deck.CSV")));
+        assertSame(TextFormat.TSV, TextFormat.forFile(new File("deck.tsv")));
+        assertNull(TextFormat.forFile(new File("deck" + Store.FILE_ENDING)));
+    }
+
+
+    @Test public void testExportAndImport() throws IOException {
+
+        DefaultFlashcardSeries series = DefaultFlashcardSeries.createInitialFlashcardSeries();
+        series.getElementAt(0).setRemembered(LocalDate.of(2010, 2, 25));
+        series.getElementAt(1).setNotRemembered(LocalDate.of(2010, 2, 26));
+        series.createAddCardCommand(new Flashcard("\"quoted\", a\ttab", "two\r\nlines")).execute();
+
+        for (TextFormat format : TextFormat.values()) {
+            File file = createTempFile();
+            format.exportCards(DeckSnapshot.capture(series), file);
+            Flashcard[] flashcards = format.importCards(file);
+
+            assertEquals(series.getSize(), flashcards.length);
+            for (int i = 0; i < flashcards.length; i++) {
+                Flashcard expected = series.getElementAt(i);
+                Flashcard actual = flashcards[i];
+                assertEquals(expected.getQuestion(), actual.getQuestion());
+                assertEquals(expected.getAnswer(), actual.getAnswer());
+                assertEquals(expected.getCreated(), actual.getCreated());
+                assertEquals(expected.getRemembered(), actual.getRemembered());
+                assertEquals(expected.getNotRemembered(), actual.getNotRemembered());
+                assertEquals(expected.getShownCount(), actual.getShownCount());
+                assertEquals(expected.getNotRememberedCount(), actual.getNotRememberedCount());
+                assertEquals(
+                        expected.getRememberedInARowCount(),
+                        actual.getRememberedInARowCount());
+            }
+        }
+    }
+
+
+    @Test public void testImportWithoutHeaderAndStatistics() throws IOException {
+
+        File file = write("Haus,House\r\n\r\n\"Hund\",\"Dog\"\rKatze,\"Cat\"\"s\",2010-02-25");
+        Flashcard[] flashcards = TextFormat.CSV.importCards(file);
+
+        assertEquals(3, flashcards.length);
+        assertEquals("Haus", flashcards[0].getQuestion());
+        assertEquals("House", flashcards[0].getAnswer());
+        assertEquals("Dog", flashcards[1].getAnswer());
+        assertEquals("Cat\"s", flashcards[2].getAnswer());
+        assertEquals(LocalDate.of(2010, 2, 25), flashcards[2].getCreated());
+        assertEquals(0, flashcards[2].getShownCount());
+    }
+
+
+    @Test(expected = IOException.class) public void testImportInvalidDate() throws IOException {
+
+        TextFormat.TSV.importCards(write("question\tanswer\tcreated\nHaus\tHouse\t25.02.2010\n"));
+    }
+
+
+    @Test(expected = IOException.class) public void testImportUnterminatedQuote()
+            throws IOException {
+
+        TextFormat.CSV.importCards(write("Haus,\"House\n"));
+    }
+}
@@ -0,0 +1,142 @@
+/** License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische 
+ *    Universität Darmstadt nor the names of its contributors may be used to 
+ *    endorse or promote products derived from this software without specific 
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.se.flashcards.ui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import de.tud.cs.se.flashcards.model.DefaultFlashcardSeries;
+import de.tud.cs.se.flashcards.model.Flashcard;
+import de.tud.cs.se.flashcards.persistence.Store;
+
+
+/**
+ * Tests that the {@link Workspace} shares open documents and caches closed, unmodified documents.
+ *
+ * @author Michael Eichberg
+ */
+public class WorkspaceTest {
+
+    private static File createFile() throws IOException {
+
+        File file = File.createTempFile("flashcards", Store.FILE_ENDING);
+        file.deleteOnExit();
+        Store.saveSeries(DefaultFlashcardSeries.createInitialFlashcardSeries(), file);
+        return file;
+    }
+
+
+    @Test public void testOpenSharesDocument() throws IOException {
+
+        Workspace workspace = new Workspace(2);
+        File file = createFile();
+
+        Document document = workspace.open(file);
+        assertSame(document, workspace.open(new File(file.getParentFile(), file.getName())));
+        assertEquals(1, workspace.getOpenDocumentsCount());
+        assertEquals(2, document.getEditorsCount());
+
+        workspace.close(document);
+        assertEquals(1, workspace.getOpenDocumentsCount());
+        assertEquals(0, workspace.getCachedDocumentsCount());
+
+        workspace.close(document);
+        assertEquals(0, workspace.getOpenDocumentsCount());
+        assertEquals(1, workspace.getCachedDocumentsCount());
+    }
+
+
+    @Test public void testReopenCachedDocument() throws IOException {
+
+        Workspace workspace = new Workspace(2);
+        File file = createFile();
+
+        Document document = workspace.open(file);
+        workspace.close(document);
+        assertSame(document, workspace.open(file));
+        assertEquals(0, workspace.getCachedDocumentsCount());
+
+        // a changed document is never cached
+        document.getCommands().execute(
+                document.getFlashcards().createAddCardCommand(new Flashcard("neu", "new")));
+        assertTrue(document.isChanged());
+        workspace.close(document);
+        assertEquals(0, workspace.getCachedDocumentsCount());
+        assertNotSame(document, workspace.open(file));
+    }
+
+
+    @Test public void testCacheEviction() throws IOException {
+
+        Workspace workspace = new Workspace(2);
+        File[] files = { createFile(), createFile(), createFile() };
+
+        Document[] documents = new Document[files.length];
+        for (int i = 0; i < files.length; i++) {
+            documents[i] = workspace.open(files[i]);
+            workspace.close(documents[i]);
+        }
+        assertEquals(2, workspace.getCachedDocumentsCount());
+
+        // the least recently closed document was evicted
+        assertNotSame(documents[0], workspace.open(files[0]));
+        assertSame(documents[2], workspace.open(files[2]));
+    }
+
+
+    @Test public void testReloadChangedFile() throws IOException {
+
+        Workspace workspace = new Workspace(2);
+        File file = createFile();
+
+        Document document = workspace.open(file);
+        workspace.close(document);
+
+        DefaultFlashcardSeries series = DefaultFlashcardSeries.createInitialFlashcardSeries();
+        series.createAddCardCommand(new Flashcard("neu", "new")).execute();
+        Store.saveSeries(series, file);
+
+        Document reopenedDocument = workspace.open(file);
+        assertNotSame(document, reopenedDocument);
+        assertEquals(series.getSize(), reopenedDocument.getFlashcards().getSize());
+        assertFalse(reopenedDocument.isChanged());
+    }
+}
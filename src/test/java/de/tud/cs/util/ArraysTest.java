@@ -0,0 +1,84 @@
+/** License (BSD Style License):
+ *  Copyright (c) 2010
+ *  Software Engineering
+ *  Department of Computer Science
+ *  Technische Universität Darmstadt
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  - Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  - Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *  - Neither the name of the Software Engineering Group or Technische 
+ *    Universität Darmstadt nor the names of its contributors may be used to 
+ *    endorse or promote products derived from this software without specific 
+ *    prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *  ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ *  LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ *  CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ *  SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ *  INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ *  CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ *  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *  POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.tud.cs.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+
+/**
+ * Tests the sorting of keys together with associated values.
+ *
+ * @author Michael Eichberg
+ */
+public class ArraysTest {
+
+    @Test public void testSortKeysAndValues() {
+
+        Random random = new Random(42);
+        long[] keys = new long[1000];
+        int[] values = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            // negative keys, keys that differ only in the lower bits and duplicates
+            keys[i] = ((long) (random.nextInt(100) - 50) << 32) | random.nextInt(10);
+            values[i] = i;
+        }
+        long[] originalKeys = keys.clone();
+        long[] expectedKeys = keys.clone();
+        java.util.Arrays.sort(expectedKeys);
+
+        Arrays.sort(keys, values);
+
+        assertArrayEquals(expectedKeys, keys);
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(originalKeys[values[i]], keys[i]);
+            // the sort is stable
+            if (i > 0 && keys[i - 1] == keys[i])
+                assertTrue(values[i - 1] < values[i]);
+        }
+    }
+
+
+    @Test public void testSortEmptyArrays() {
+
+        long[] keys = new long[0];
+        int[] values = new int[0];
+        Arrays.sort(keys, values);
+        assertEquals(0, keys.length);
+    }
+}